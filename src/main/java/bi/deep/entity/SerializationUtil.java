@@ -17,93 +17,316 @@ package bi.deep.entity;
 
 import bi.deep.entity.dimension.IPRange;
 import bi.deep.entity.dimension.IPRangeArray;
-import inet.ipaddr.IPAddress;
-import inet.ipaddr.format.IPAddressRange;
+import bi.deep.entity.dimension.IPRangeConsumer;
+import bi.deep.util.IPAddressBits;
 import inet.ipaddr.ipv4.IPv4Address;
 import inet.ipaddr.ipv6.IPv6Address;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 
+// Ranges are written in the legacy layout, the int address byte count followed by the length prefixed lower and
+// upper address bytes, unless the compact layout is asked for. That one is a header byte with the COMPACT bit set
+// followed by the fixed width lower bound and then nothing for a single address, the prefix length byte for a prefix
+// block or the upper bound otherwise. The first byte of a legacy range is always 0, so both layouts can be told apart
+// range by range.
 public final class SerializationUtil {
+    private static final int COMPACT = 0x80;
+    private static final int IPV6 = 0x01;
+    private static final int SINGLE_VALUE = 0x02;
+    private static final int PREFIX_BLOCK = 0x04;
 
     private SerializationUtil() {
         throw new AssertionError("No bi.deep.entity.SerializationUtil instances for you!");
     }
 
-    public static byte[] serialize(IPRange range) throws IOException {
+    // Largest number of bytes a range takes in the given layout, compact ranges may take fewer
+    public static int maxRangeSize(boolean ipv6, boolean compact) {
+        final int width = ipv6 ? IPv6Address.BYTE_COUNT : IPv4Address.BYTE_COUNT;
+        return compact ? Byte.BYTES + 2 * width : 3 * Integer.BYTES + 2 * width;
+    }
+
+    public static byte[] serialize(IPRange range, boolean compact) throws IOException {
         try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
                 DataOutputStream out = new DataOutputStream(bos)) {
-            serialize(range.getAddressRange(), out);
+            range.forEachRange((ipv6, lowerHi, lowerLo, upperHi, upperLo) ->
+                    writeRange(ipv6, lowerHi, lowerLo, upperHi, upperLo, compact, out));
             return bos.toByteArray();
         }
     }
 
-    public static byte[] serialize(IPRangeArray rangeArray) throws IOException {
+    public static byte[] serialize(IPRangeArray rangeArray, boolean compact) throws IOException {
         try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
                 DataOutputStream out = new DataOutputStream(bos)) {
-            for (IPAddressRange range : rangeArray.getAddressRanges()) {
-                serialize(range, out);
-            }
+            rangeArray.forEachRange((ipv6, lowerHi, lowerLo, upperHi, upperLo) ->
+                    writeRange(ipv6, lowerHi, lowerLo, upperHi, upperLo, compact, out));
             return bos.toByteArray();
         }
     }
 
-    public static IPRangeArray deserializeToIPRangeArray(byte[] data) throws IOException {
-        List<IPAddressRange> array = new ArrayList<>();
+    public static IPRangeArray deserializeToIPRangeArray(byte[] data) {
+        return deserializeToIPRangeArray(ByteBuffer.wrap(data), data.length);
+    }
 
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(data);
-                DataInputStream in = new DataInputStream(bis)) {
-            while (in.available() > 0) {
-                array.add(deserialize(in));
-            }
+    // Reads numBytes from the buffer position without copying them out first, the position ends after the value. The
+    // ranges are counted from their headers and read straight into the bounds arrays of the result.
+    public static IPRangeArray deserializeToIPRangeArray(ByteBuffer buffer, int numBytes) {
+        final ByteBuffer in = bigEndian(buffer);
+        final int end = in.position() + numBytes;
+        final ArrayBounds bounds = new ArrayBounds(countRanges(in, end));
+
+        while (in.position() < end) {
+            readRange(in, bounds);
         }
 
-        return new IPRangeArray(array);
+        advance(buffer, in);
+        return bounds.build();
+    }
+
+    public static IPRange deserializeToIPRange(byte[] data) {
+        return deserializeToIPRange(ByteBuffer.wrap(data), data.length);
     }
 
-    public static IPRange deserializeToIPRange(byte[] data) throws IOException {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(data);
-                DataInputStream in = new DataInputStream(bis)) {
-            return new IPRange(deserialize(in));
+    public static IPRange deserializeToIPRange(ByteBuffer buffer, int numBytes) {
+        final ByteBuffer in = bigEndian(buffer);
+        final SingleRange range = new SingleRange();
+        readRange(in, range);
+        advance(buffer, in);
+        return range.range;
+    }
+
+    // Values are always written big endian, only a buffer in another order is duplicated
+    private static ByteBuffer bigEndian(ByteBuffer buffer) {
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? buffer : buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static void advance(ByteBuffer buffer, ByteBuffer in) {
+        if (in != buffer) {
+            buffer.position(in.position());
         }
     }
 
-    private static IPAddressRange deserialize(DataInputStream in) throws IOException {
-        int version = in.readInt();
-        byte[] lowerBytes = new byte[in.readInt()];
-        in.readFully(lowerBytes);
+    private static int countRanges(ByteBuffer in, int end) {
+        int count = 0;
 
-        byte[] upperBytes = new byte[in.readInt()];
-        in.readFully(upperBytes);
+        for (int position = in.position(); position < end; count++) {
+            position += rangeLength(in, position);
+        }
 
-        return parseAddress(version, lowerBytes).spanWithRange(parseAddress(version, upperBytes));
+        return count;
     }
 
-    private static IPAddress parseAddress(int version, byte[] bytes) {
-        switch (version) {
-            case IPv4Address.BYTE_COUNT:
-                return new IPv4Address(bytes);
-            case IPv6Address.BYTE_COUNT:
-                return new IPv6Address(bytes);
-            default:
+    private static int rangeLength(ByteBuffer in, int position) {
+        final int header = in.get(position) & 0xFF;
+
+        if ((header & COMPACT) == 0) {
+            // [address byte count][lower length][lower][upper length][upper]
+            final int width = in.getInt(position);
+
+            if (width != IPv4Address.BYTE_COUNT && width != IPv6Address.BYTE_COUNT) {
                 throw new IllegalArgumentException("Unknown IP version");
+            }
+
+            return 3 * Integer.BYTES + 2 * width;
+        }
+
+        final int width = (header & IPV6) != 0 ? IPv6Address.BYTE_COUNT : IPv4Address.BYTE_COUNT;
+        return 1 + width + ((header & SINGLE_VALUE) != 0 ? 0 : (header & PREFIX_BLOCK) != 0 ? 1 : width);
+    }
+
+    private static void readRange(ByteBuffer in, IPRangeConsumer consumer) {
+        final int header = in.get(in.position()) & 0xFF;
+
+        if ((header & COMPACT) != 0) {
+            readCompactRange(in, consumer);
+        } else {
+            readLegacyRange(in, consumer);
+        }
+    }
+
+    private static void readCompactRange(ByteBuffer in, IPRangeConsumer consumer) {
+        final int header = in.get() & 0xFF;
+        final boolean ipv6 = (header & IPV6) != 0;
+        final long lowerHi = ipv6 ? in.getLong() : 0L;
+        final long lowerLo = ipv6 ? in.getLong() : Integer.toUnsignedLong(in.getInt());
+
+        if ((header & SINGLE_VALUE) != 0) {
+            consumer.accept(ipv6, lowerHi, lowerLo, lowerHi, lowerLo);
+        } else if ((header & PREFIX_BLOCK) != 0) {
+            final int bits = ipv6 ? IPAddressBits.IPV6_BITS : IPAddressBits.IPV4_BITS;
+            final int prefixLength = in.get() & 0xFF;
+            consumer.accept(
+                    ipv6,
+                    lowerHi,
+                    lowerLo,
+                    IPAddressBits.blockUpperHi(bits, lowerHi, prefixLength),
+                    IPAddressBits.blockUpperLo(bits, lowerLo, prefixLength));
+        } else {
+            final long upperHi = ipv6 ? in.getLong() : 0L;
+            final long upperLo = ipv6 ? in.getLong() : Integer.toUnsignedLong(in.getInt());
+            consumer.accept(ipv6, lowerHi, lowerLo, upperHi, upperLo);
+        }
+    }
+
+    private static void readLegacyRange(ByteBuffer in, IPRangeConsumer consumer) {
+        final int version = in.getInt();
+
+        if (version == IPv4Address.BYTE_COUNT) {
+            readLength(in, version);
+            final long lower = Integer.toUnsignedLong(in.getInt());
+            readLength(in, version);
+            consumer.accept(false, 0L, lower, 0L, Integer.toUnsignedLong(in.getInt()));
+        } else if (version == IPv6Address.BYTE_COUNT) {
+            readLength(in, version);
+            final long lowerHi = in.getLong();
+            final long lowerLo = in.getLong();
+            readLength(in, version);
+            final long upperHi = in.getLong();
+            consumer.accept(true, lowerHi, lowerLo, upperHi, in.getLong());
+        } else {
+            throw new IllegalArgumentException("Unknown IP version");
+        }
+    }
+
+    private static void readLength(ByteBuffer in, int expected) {
+        if (in.getInt() != expected) {
+            throw new IllegalArgumentException("Unexpected address length");
+        }
+    }
+
+    private static void writeRange(
+            boolean ipv6,
+            long lowerHi,
+            long lowerLo,
+            long upperHi,
+            long upperLo,
+            boolean compact,
+            DataOutputStream out) {
+        try {
+            if (!compact) {
+                final int width = ipv6 ? IPv6Address.BYTE_COUNT : IPv4Address.BYTE_COUNT;
+                out.writeInt(width);
+                out.writeInt(width);
+                writeAddress(ipv6, lowerHi, lowerLo, out);
+                out.writeInt(width);
+                writeAddress(ipv6, upperHi, upperLo, out);
+                return;
+            }
+
+            final int bits = ipv6 ? IPAddressBits.IPV6_BITS : IPAddressBits.IPV4_BITS;
+            final int prefixLength = IPAddressBits.prefixLength(bits, lowerHi, lowerLo, upperHi, upperLo);
+            final int layout = prefixLength == bits ? SINGLE_VALUE : prefixLength >= 0 ? PREFIX_BLOCK : 0;
+
+            out.writeByte(COMPACT | (ipv6 ? IPV6 : 0) | layout);
+            writeAddress(ipv6, lowerHi, lowerLo, out);
+
+            if (layout == PREFIX_BLOCK) {
+                out.writeByte(prefixLength);
+            } else if (layout == 0) {
+                writeAddress(ipv6, upperHi, upperLo, out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    private static void serialize(IPAddressRange range, DataOutputStream out) throws IOException {
-        IPAddress lowerAddress = range.getLower();
-        byte[] lowerBytes = lowerAddress.getBytes();
-        out.writeInt(range.getByteCount());
-        out.writeInt(lowerBytes.length);
-        out.write(lowerBytes);
+    private static void writeAddress(boolean ipv6, long hi, long lo, DataOutputStream out) throws IOException {
+        if (ipv6) {
+            out.writeLong(hi);
+            out.writeLong(lo);
+        } else {
+            out.writeInt((int) lo);
+        }
+    }
+
+    private static final class SingleRange implements IPRangeConsumer {
+        private IPRange range;
+
+        @Override
+        public void accept(boolean ipv6, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+            range = new IPRange(ipv6, lowerHi, lowerLo, upperHi, upperLo);
+        }
+    }
+
+    // Fills the bounds arrays in the order the ranges were written. Values written before ranges were kept sorted
+    // may come in another order, those fall back to collecting IPRange objects and sorting them.
+    private static final class ArrayBounds implements IPRangeConsumer {
+        private final long[] lowerHi;
+        private final long[] lowerLo;
+        private final long[] upperHi;
+        private final long[] upperLo;
+        private int size;
+        private int ipv6Start = -1;
+
+        @Nullable
+        private List<IPRange> unsorted;
+
+        private ArrayBounds(int count) {
+            lowerHi = new long[count];
+            lowerLo = new long[count];
+            upperHi = new long[count];
+            upperLo = new long[count];
+        }
+
+        @Override
+        public void accept(boolean ipv6, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+            if (unsorted == null && !follows(ipv6, lowerHi, lowerLo, upperHi, upperLo)) {
+                unsorted = new ArrayList<>(this.lowerHi.length);
+
+                for (int i = 0; i < size; i++) {
+                    unsorted.add(new IPRange(
+                            ipv6Start >= 0 && i >= ipv6Start,
+                            this.lowerHi[i],
+                            this.lowerLo[i],
+                            this.upperHi[i],
+                            this.upperLo[i]));
+                }
+            }
+
+            if (unsorted != null) {
+                unsorted.add(new IPRange(ipv6, lowerHi, lowerLo, upperHi, upperLo));
+                return;
+            }
+
+            if (ipv6 && ipv6Start < 0) {
+                ipv6Start = size;
+            }
+
+            this.lowerHi[size] = lowerHi;
+            this.lowerLo[size] = lowerLo;
+            this.upperHi[size] = upperHi;
+            this.upperLo[size] = upperLo;
+            size++;
+        }
 
-        byte[] upperBytes = range.getUpper().getBytes();
-        out.writeInt(upperBytes.length);
-        out.write(upperBytes);
+        // Strictly after the previous range in array order
+        private boolean follows(boolean ipv6, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+            if (size == 0 || (ipv6 && ipv6Start < 0)) {
+                return true;
+            }
+            if (!ipv6 && ipv6Start >= 0) {
+                return false;
+            }
+
+            final int last = size - 1;
+            final int cmp = IPAddressBits.compare(this.lowerHi[last], this.lowerLo[last], lowerHi, lowerLo);
+            return cmp != 0
+                    ? cmp < 0
+                    : IPAddressBits.compare(this.upperHi[last], this.upperLo[last], upperHi, upperLo) < 0;
+        }
+
+        private IPRangeArray build() {
+            if (unsorted != null) {
+                return IPRangeArray.fromRanges(unsorted);
+            }
+
+            return IPRangeArray.fromSortedBounds(ipv6Start < 0 ? size : ipv6Start, lowerHi, lowerLo, upperHi, upperLo);
+        }
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import javax.annotation.Nullable;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.data.input.impl.DimensionSchema.MultiValueHandling;
+import org.apache.druid.segment.DimensionHandler;
+import org.apache.druid.segment.column.CapabilitiesBasedFormat;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ColumnCapabilitiesImpl;
+import org.apache.druid.segment.column.ColumnFormat;
+import org.apache.druid.segment.column.ColumnType;
+
+public class IPAddressColumnFormat implements ColumnFormat {
+    private final MultiValueHandling multiValueHandling;
+    private final boolean hasBitmapIndexes;
+    private final boolean hasMultipleValues;
+
+    public IPAddressColumnFormat(
+            MultiValueHandling multiValueHandling, boolean hasBitmapIndexes, boolean hasMultipleValues) {
+        this.multiValueHandling = multiValueHandling;
+        this.hasBitmapIndexes = hasBitmapIndexes;
+        this.hasMultipleValues = hasMultipleValues;
+    }
+
+    @Override
+    public ColumnType getLogicalType() {
+        return ColumnType.STRING;
+    }
+
+    @Override
+    public DimensionHandler getColumnHandler(String columnName) {
+        return new IPAddressDimensionHandler(columnName, multiValueHandling, hasBitmapIndexes);
+    }
+
+    @Override
+    public DimensionSchema getColumnSchema(String columnName) {
+        return new IPAddressDimensionSchema(columnName, multiValueHandling, hasBitmapIndexes);
+    }
+
+    // Merged with a plain string column the values are no longer all normalized, so it becomes a plain column too
+    @Override
+    public ColumnFormat merge(@Nullable ColumnFormat otherFormat) {
+        if (otherFormat == null) {
+            return this;
+        }
+
+        if (otherFormat instanceof IPAddressColumnFormat) {
+            final IPAddressColumnFormat other = (IPAddressColumnFormat) otherFormat;
+            return new IPAddressColumnFormat(
+                    multiValueHandling,
+                    hasBitmapIndexes && other.hasBitmapIndexes,
+                    hasMultipleValues || other.hasMultipleValues);
+        }
+
+        return new CapabilitiesBasedFormat(toColumnCapabilities()).merge(otherFormat);
+    }
+
+    @Override
+    public ColumnCapabilities toColumnCapabilities() {
+        return ColumnCapabilitiesImpl.createDefault()
+                .setType(ColumnType.STRING)
+                .setDictionaryEncoded(true)
+                .setDictionaryValuesSorted(true)
+                .setDictionaryValuesUnique(true)
+                .setHasBitmapIndexes(hasBitmapIndexes)
+                .setHasMultipleValues(hasMultipleValues);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import bi.deep.entity.index.IPAddressColumnIndexSupplier;
+import bi.deep.guice.IPRangeDimensionModule;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import java.nio.channels.WritableByteChannel;
+import javax.annotation.Nullable;
+import org.apache.druid.data.input.impl.DimensionSchema.MultiValueHandling;
+import org.apache.druid.java.util.common.io.smoosh.FileSmoosher;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.serde.ColumnPartSerde;
+
+// Follows the string dictionary part of an ipAddress column and holds no data of its own. Reading it marks the
+// dictionary as numerically ordered and restores the ipAddress handler, so reindexing keeps the column type.
+@JsonTypeName(IPRangeDimensionModule.ADDRESS_TYPE_NAME)
+public class IPAddressColumnPartSerde implements ColumnPartSerde {
+    private static final Serializer NO_DATA = new Serializer() {
+        @Override
+        public long getSerializedSize() {
+            return 0;
+        }
+
+        @Override
+        public void writeTo(WritableByteChannel channel, FileSmoosher smoosher) {}
+    };
+
+    private final MultiValueHandling multiValueHandling;
+    private final boolean createBitmapIndex;
+
+    @JsonCreator
+    public IPAddressColumnPartSerde(
+            @JsonProperty("multiValueHandling") @Nullable MultiValueHandling multiValueHandling,
+            @JsonProperty("createBitmapIndex") boolean createBitmapIndex) {
+        this.multiValueHandling = multiValueHandling == null ? MultiValueHandling.ofDefault() : multiValueHandling;
+        this.createBitmapIndex = createBitmapIndex;
+    }
+
+    @JsonProperty("multiValueHandling")
+    public MultiValueHandling getMultiValueHandling() {
+        return multiValueHandling;
+    }
+
+    @JsonProperty("createBitmapIndex")
+    public boolean isCreateBitmapIndex() {
+        return createBitmapIndex;
+    }
+
+    @Override
+    public Serializer getSerializer() {
+        return NO_DATA;
+    }
+
+    @Override
+    public Deserializer getDeserializer() {
+        return (buffer, builder, columnConfig, parent) -> {
+            final ColumnIndexSupplier indexSupplier = builder.build().getIndexSupplier();
+
+            if (indexSupplier != null) {
+                builder.setIndexSupplier(new IPAddressColumnIndexSupplier(indexSupplier), createBitmapIndex, false);
+            }
+
+            builder.setColumnFormat(new IPAddressColumnFormat(
+                    multiValueHandling,
+                    createBitmapIndex,
+                    builder.getCapabilitiesBuilder().hasMultipleValues().isTrue()));
+        };
+    }
+}
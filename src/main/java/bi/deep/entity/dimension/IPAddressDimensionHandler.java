@@ -0,0 +1,71 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import java.io.File;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.data.input.impl.DimensionSchema.MultiValueHandling;
+import org.apache.druid.java.util.common.io.Closer;
+import org.apache.druid.segment.DimensionIndexer;
+import org.apache.druid.segment.DimensionMergerV9;
+import org.apache.druid.segment.IndexSpec;
+import org.apache.druid.segment.ProgressIndicator;
+import org.apache.druid.segment.StringDimensionHandler;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
+
+public class IPAddressDimensionHandler extends StringDimensionHandler {
+    private final MultiValueHandling multiValueHandling;
+    private final boolean hasBitmapIndexes;
+
+    public IPAddressDimensionHandler(
+            String dimensionName, MultiValueHandling multiValueHandling, boolean hasBitmapIndexes) {
+        super(dimensionName, multiValueHandling, hasBitmapIndexes, false);
+        this.multiValueHandling = multiValueHandling;
+        this.hasBitmapIndexes = hasBitmapIndexes;
+    }
+
+    @Override
+    public DimensionSchema getDimensionSchema(ColumnCapabilities capabilities) {
+        return new IPAddressDimensionSchema(getDimensionName(), multiValueHandling, hasBitmapIndexes);
+    }
+
+    @Override
+    public DimensionIndexer<Integer, int[], String> makeIndexer() {
+        return new IPAddressDimensionIndexer(multiValueHandling, hasBitmapIndexes);
+    }
+
+    @Override
+    public DimensionMergerV9 makeMerger(
+            String outputName,
+            IndexSpec indexSpec,
+            SegmentWriteOutMedium segmentWriteOutMedium,
+            ColumnCapabilities capabilities,
+            ProgressIndicator progress,
+            File segmentBaseDir,
+            Closer closer) {
+        return new IPAddressDimensionMergerV9(
+                outputName,
+                multiValueHandling,
+                hasBitmapIndexes,
+                indexSpec,
+                segmentWriteOutMedium,
+                capabilities,
+                progress,
+                segmentBaseDir,
+                closer);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import bi.deep.util.IPRangeUtil;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.druid.data.input.impl.DimensionSchema.MultiValueHandling;
+import org.apache.druid.error.DruidException;
+import org.apache.druid.java.util.common.parsers.ParseException;
+import org.apache.druid.segment.EncodedKeyComponent;
+import org.apache.druid.segment.StringDimensionIndexer;
+import org.apache.druid.segment.column.ColumnFormat;
+
+public class IPAddressDimensionIndexer extends StringDimensionIndexer {
+    private final MultiValueHandling multiValueHandling;
+    private final boolean hasBitmapIndexes;
+
+    public IPAddressDimensionIndexer(MultiValueHandling multiValueHandling, boolean hasBitmapIndexes) {
+        super(multiValueHandling, hasBitmapIndexes, false);
+        this.multiValueHandling = multiValueHandling;
+        this.hasBitmapIndexes = hasBitmapIndexes;
+    }
+
+    @Override
+    public EncodedKeyComponent<int[]> processRowValsToUnsortedEncodedKeyComponent(
+            @Nullable Object dimValues, boolean reportParseExceptions) {
+        final Object normalized;
+
+        if (dimValues instanceof List) {
+            normalized = ((List<?>) dimValues)
+                    .stream()
+                    .map(value -> normalize(value, reportParseExceptions))
+                    .collect(Collectors.toList());
+        } else {
+            normalized = normalize(dimValues, reportParseExceptions);
+        }
+
+        return super.processRowValsToUnsortedEncodedKeyComponent(normalized, reportParseExceptions);
+    }
+
+    // Persisting realtime rows picks the column handler from this format, so it has to keep the ipAddress type
+    @Override
+    public ColumnFormat getFormat() {
+        return new IPAddressColumnFormat(
+                multiValueHandling,
+                hasBitmapIndexes,
+                getColumnCapabilities().hasMultipleValues().isTrue());
+    }
+
+    @Nullable
+    private static String normalize(@Nullable Object value, boolean reportParseExceptions) {
+        try {
+            return IPRangeUtil.toSortableString(value);
+        } catch (DruidException e) {
+            // Ingestion records parse exceptions and keeps the row, with a null value for this column
+            if (reportParseExceptions) {
+                throw new ParseException(String.valueOf(value), e, "Invalid IP address [%s]", value);
+            }
+            return null;
+        }
+    }
+}
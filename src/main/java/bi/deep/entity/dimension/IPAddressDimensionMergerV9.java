@@ -0,0 +1,60 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import java.io.File;
+import org.apache.druid.data.input.impl.DimensionSchema.MultiValueHandling;
+import org.apache.druid.java.util.common.io.Closer;
+import org.apache.druid.segment.IndexSpec;
+import org.apache.druid.segment.ProgressIndicator;
+import org.apache.druid.segment.StringDimensionMergerV9;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ColumnDescriptor;
+import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
+
+public class IPAddressDimensionMergerV9 extends StringDimensionMergerV9 {
+    private final MultiValueHandling multiValueHandling;
+    private final boolean hasBitmapIndexes;
+
+    public IPAddressDimensionMergerV9(
+            String dimensionName,
+            MultiValueHandling multiValueHandling,
+            boolean hasBitmapIndexes,
+            IndexSpec indexSpec,
+            SegmentWriteOutMedium segmentWriteOutMedium,
+            ColumnCapabilities capabilities,
+            ProgressIndicator progress,
+            File segmentBaseDir,
+            Closer closer) {
+        super(dimensionName, indexSpec, segmentWriteOutMedium, capabilities, progress, segmentBaseDir, closer);
+        this.multiValueHandling = multiValueHandling;
+        this.hasBitmapIndexes = hasBitmapIndexes;
+    }
+
+    // The string parts are written as usual, followed by a part recording the column type
+    @Override
+    public ColumnDescriptor makeColumnDescriptor() {
+        final ColumnDescriptor descriptor = super.makeColumnDescriptor();
+        final ColumnDescriptor.Builder builder = new ColumnDescriptor.Builder()
+                .setValueType(descriptor.getValueType())
+                .setHasMultipleValues(descriptor.isHasMultipleValues());
+
+        descriptor.getParts().forEach(builder::addSerde);
+
+        return builder.addSerde(new IPAddressColumnPartSerde(multiValueHandling, hasBitmapIndexes))
+                .build();
+    }
+}
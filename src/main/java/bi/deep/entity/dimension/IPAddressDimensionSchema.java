@@ -0,0 +1,46 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import bi.deep.guice.IPRangeDimensionModule;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import org.apache.druid.data.input.impl.StringDimensionSchema;
+import org.apache.druid.segment.DimensionHandler;
+
+// Stored as a regular string column, values are normalized so that the sorted dictionary follows the numeric order
+@JsonTypeName(IPRangeDimensionModule.ADDRESS_TYPE_NAME)
+public class IPAddressDimensionSchema extends StringDimensionSchema {
+
+    @JsonCreator
+    public IPAddressDimensionSchema(
+            @JsonProperty("name") String name,
+            @JsonProperty("multiValueHandling") MultiValueHandling multiValueHandling,
+            @JsonProperty("createBitmapIndex") Boolean createBitmapIndex) {
+        super(name, multiValueHandling, createBitmapIndex);
+    }
+
+    @Override
+    public String getTypeName() {
+        return IPRangeDimensionModule.ADDRESS_TYPE_NAME;
+    }
+
+    @Override
+    public DimensionHandler getDimensionHandler() {
+        return new IPAddressDimensionHandler(getName(), getMultiValueHandling(), hasBitmapIndex());
+    }
+}
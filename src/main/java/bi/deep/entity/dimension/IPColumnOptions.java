@@ -0,0 +1,68 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+// Layout and index options of a native IP column as bits, the same set is used for ipRange and ipRangeArray columns
+public final class IPColumnOptions {
+    public static final int COLUMNAR_BOUNDS = 1;
+    public static final int DICTIONARY_ENCODED = 1 << 1;
+    public static final int PREFIX_BLOOM_FILTER = 1 << 2;
+    public static final int PREFIX_INDEX = 1 << 3;
+    public static final int NORMALIZE_RANGES = 1 << 4;
+    public static final int INTERVAL_INDEX = 1 << 5;
+    public static final int ZONE_MAP = 1 << 6;
+    public static final int SUMMARY = 1 << 7;
+    public static final int COMPACT_ENCODING = 1 << 8;
+
+    public static final IPColumnOptions DEFAULT = new IPColumnOptions(0);
+
+    private final int flags;
+
+    private IPColumnOptions(int flags) {
+        this.flags = flags;
+    }
+
+    public static IPColumnOptions of(int flags) {
+        return flags == 0 ? DEFAULT : new IPColumnOptions(flags);
+    }
+
+    public IPColumnOptions with(int option, boolean enabled) {
+        return of(enabled ? flags | option : flags & ~option);
+    }
+
+    public boolean has(int option) {
+        return (flags & option) != 0;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof IPColumnOptions && flags == ((IPColumnOptions) o).flags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(flags);
+    }
+
+    @Override
+    public String toString() {
+        return "IPColumnOptions{flags=" + Integer.toBinaryString(flags) + '}';
+    }
+}
@@ -16,15 +16,15 @@
 package bi.deep.entity.dimension;
 
 import bi.deep.entity.SerializationUtil;
+import bi.deep.util.IPAddressBits;
 import bi.deep.util.IPRangeUtil;
+import bi.deep.util.SortedIPAddresses;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.format.IPAddressRange;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Objects;
 import java.util.SortedSet;
 import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
@@ -32,15 +32,52 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.druid.error.InvalidInput;
 import org.apache.druid.java.util.common.IAE;
 
+// Bounds are kept as unsigned hi/lo halves (IPv4 only uses lo), inet.ipaddr objects are only built on demand
 @JsonSerialize(using = IPRangeSerializer.class)
 public class IPRange implements Serializable, IPRangeHandler, Comparable<IPRange> {
     public static final IPRange EMPTY = new IPRange(null);
-    public static final Comparator<IPRange> COMPARATOR = Comparator.nullsFirst(
-            Comparator.comparing(IPRange::getAddressRange, Comparator.nullsFirst(Comparator.naturalOrder())));
-    private final IPAddressRange addressRange;
+    public static final Comparator<IPRange> COMPARATOR = Comparator.nullsFirst(IPRange::compareTo);
+
+    private final boolean empty;
+    private final boolean ipv6;
+    // Parsed from a single address rather than a range, only affects how the range is rendered
+    private final boolean singleAddress;
+    private final long lowerHi;
+    private final long lowerLo;
+    private final long upperHi;
+    private final long upperLo;
 
     public IPRange(@Nullable IPAddressRange addressRange) {
-        this.addressRange = addressRange;
+        if (addressRange == null) {
+            this.empty = true;
+            this.ipv6 = false;
+            this.singleAddress = false;
+            this.lowerHi = this.lowerLo = this.upperHi = this.upperLo = 0L;
+        } else {
+            final IPAddress lower = addressRange.getLower();
+            final IPAddress upper = addressRange.getUpper();
+            this.empty = false;
+            this.ipv6 = lower.isIPv6();
+            this.singleAddress = addressRange instanceof IPAddress && !((IPAddress) addressRange).isMultiple();
+            this.lowerHi = IPAddressBits.hi(lower);
+            this.lowerLo = IPAddressBits.lo(lower);
+            this.upperHi = IPAddressBits.hi(upper);
+            this.upperLo = IPAddressBits.lo(upper);
+        }
+    }
+
+    public IPRange(boolean ipv6, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+        this(ipv6, false, lowerHi, lowerLo, upperHi, upperLo);
+    }
+
+    IPRange(boolean ipv6, boolean singleAddress, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+        this.empty = false;
+        this.ipv6 = ipv6;
+        this.singleAddress = singleAddress;
+        this.lowerHi = lowerHi;
+        this.lowerLo = lowerLo;
+        this.upperHi = upperHi;
+        this.upperLo = upperLo;
     }
 
     public static IPRange fromString(String val) {
@@ -57,34 +94,91 @@ public class IPRange implements Serializable, IPRangeHandler, Comparable<IPRange
         return new IPRange(range);
     }
 
+    @Nullable
     public IPAddressRange getAddressRange() {
-        return addressRange;
+        if (empty) {
+            return null;
+        }
+
+        return singleAddress ? getLower() : getLower().spanWithRange(getUpper());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean isIPv6() {
+        return ipv6;
+    }
+
+    public boolean isSingleAddress() {
+        return singleAddress;
+    }
+
+    public IPAddress getLower() {
+        return IPAddressBits.toAddress(ipv6, lowerHi, lowerLo);
+    }
+
+    public IPAddress getUpper() {
+        return IPAddressBits.toAddress(ipv6, upperHi, upperLo);
+    }
+
+    public long getLowerHi() {
+        return lowerHi;
+    }
+
+    public long getLowerLo() {
+        return lowerLo;
+    }
+
+    public long getUpperHi() {
+        return upperHi;
+    }
+
+    public long getUpperLo() {
+        return upperLo;
     }
 
     public boolean contains(IPAddress value) {
-        return value != null && addressRange != null && addressRange.contains(value);
+        if (value == null || empty || value.isIPv6() != ipv6) {
+            return false;
+        }
+
+        return contains(IPAddressBits.hi(value), IPAddressBits.lo(value));
     }
 
     @Override
+    public boolean contains(SortedIPAddresses addresses) {
+        return !empty && addresses.anyWithin(ipv6, lowerHi, lowerLo, upperHi, upperLo);
+    }
+
     public boolean contains(SortedSet<IPAddress> addresses) {
-        if (addressRange == null || CollectionUtils.isEmpty(addresses)) {
+        if (empty || CollectionUtils.isEmpty(addresses)) {
             return false;
         }
 
-        Iterator<IPAddress> addressIter = addresses.iterator();
-        IPAddress lower = addressRange.getLower();
+        for (IPAddress address : addresses) {
+            if (address.isIPv6() != ipv6) {
+                continue;
+            }
 
-        while (addressIter.hasNext()) {
-            IPAddress address = addressIter.next();
+            final long hi = IPAddressBits.hi(address);
+            final long lo = IPAddressBits.lo(address);
 
-            if (address.compareTo(lower) >= 0) {
-                return addressRange.contains(address);
+            if (IPAddressBits.compare(hi, lo, lowerHi, lowerLo) >= 0) {
+                return IPAddressBits.compare(hi, lo, upperHi, upperLo) <= 0;
             }
         }
 
         return false;
     }
 
+    private boolean contains(long hi, long lo) {
+        return IPAddressBits.compare(hi, lo, lowerHi, lowerLo) >= 0
+                && IPAddressBits.compare(hi, lo, upperHi, upperLo) <= 0;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -96,28 +190,56 @@ public class IPRange implements Serializable, IPRangeHandler, Comparable<IPRange
         }
 
         final IPRange that = (IPRange) obj;
-        return Objects.equals(addressRange, that.addressRange);
+        return empty == that.empty
+                && ipv6 == that.ipv6
+                && lowerHi == that.lowerHi
+                && lowerLo == that.lowerLo
+                && upperHi == that.upperHi
+                && upperLo == that.upperLo;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(addressRange);
+        int result = Boolean.hashCode(empty);
+        result = 31 * result + Boolean.hashCode(ipv6);
+        result = 31 * result + Long.hashCode(lowerHi);
+        result = 31 * result + Long.hashCode(lowerLo);
+        result = 31 * result + Long.hashCode(upperHi);
+        return 31 * result + Long.hashCode(upperLo);
     }
 
     @Override
     public String toString() {
-        return IPRangeUtil.toString(addressRange);
+        if (empty) {
+            return "null";
+        }
+
+        if (isSingleAddress()) {
+            return getLower().toString();
+        }
+
+        return getLower().toCanonicalString() + "-" + getUpper().toCanonicalString();
     }
 
+    // Empty ranges first, then IPv4 before IPv6, then by lower and upper bound
     @Override
     public int compareTo(IPRange other) {
-        return COMPARATOR.compare(this, other);
+        if (empty || other.empty) {
+            return Boolean.compare(!empty, !other.empty);
+        }
+
+        if (ipv6 != other.ipv6) {
+            return Boolean.compare(ipv6, other.ipv6);
+        }
+
+        final int cmp = IPAddressBits.compare(lowerHi, lowerLo, other.lowerHi, other.lowerLo);
+        return cmp != 0 ? cmp : IPAddressBits.compare(upperHi, upperLo, other.upperHi, other.upperLo);
     }
 
     @Override
-    public byte[] toBytes() {
+    public byte[] toBytes(boolean compact) {
         try {
-            return SerializationUtil.serialize(this);
+            return SerializationUtil.serialize(this, compact);
         } catch (IOException e) {
             throw new IAE("Unable to convert to bytes", e);
         }
@@ -143,7 +265,17 @@ public class IPRange implements Serializable, IPRangeHandler, Comparable<IPRange
     }
 
     @Override
-    public int getLengthOfEncodedKeyComponent() {
-        return IPRangeUtil.getSize(addressRange);
+    public void forEachRange(IPRangeConsumer consumer) {
+        if (!empty) {
+            consumer.accept(ipv6, lowerHi, lowerLo, upperHi, upperLo);
+        }
+    }
+
+    @Override
+    public int getLengthOfEncodedKeyComponent(boolean compact) {
+        if (empty) {
+            return 0;
+        }
+        return SerializationUtil.maxRangeSize(ipv6, compact);
     }
 }
@@ -18,33 +18,162 @@ package bi.deep.entity.dimension;
 import static inet.ipaddr.Address.ADDRESS_LOW_VALUE_COMPARATOR;
 
 import bi.deep.entity.SerializationUtil;
+import bi.deep.util.IPAddressBits;
 import bi.deep.util.IPRangeUtil;
+import bi.deep.util.SortedIPAddresses;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.format.IPAddressRange;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.druid.java.util.common.IAE;
 
+// Ranges sorted by version, lower and upper bound in parallel primitive arrays, IPv4 ranges first.
+// maxUpper holds the running maximum of the upper bounds within each version, so a single binary search
+// on the lower bounds answers containment even when ranges overlap.
 @JsonSerialize(using = IPRangeArraySerializer.class)
 public class IPRangeArray implements Serializable, IPRangeHandler, Comparable<IPRangeArray> {
     public static final IPRangeArray EMPTY = new IPRangeArray(Collections.emptyList());
     public static final Comparator<IPRangeArray> COMPARATOR = Comparator.nullsFirst(IPRangeArray::compareTo);
-    private final SortedSet<IPAddressRange> addressRanges;
+    private static final Comparator<IPRange> RANGE_ORDER =
+            Comparator.<IPRange>naturalOrder().thenComparing(IPRange::isSingleAddress);
+
+    private final int ipv6Start;
+    private final long[] lowerHi;
+    private final long[] lowerLo;
+    private final long[] upperHi;
+    private final long[] upperLo;
+    private final long[] maxUpperHi;
+    private final long[] maxUpperLo;
+
+    // Ranges parsed from a single address, null when there are none
+    @Nullable
+    private final BitSet singleAddresses;
 
     public IPRangeArray(List<IPAddressRange> addressRanges) {
-        this.addressRanges = new TreeSet<>(ADDRESS_LOW_VALUE_COMPARATOR);
-        this.addressRanges.addAll(addressRanges);
+        this(addressRanges.stream().map(IPRange::new).toArray(IPRange[]::new));
+    }
+
+    private IPRangeArray(IPRange[] ranges) {
+        Arrays.sort(ranges, RANGE_ORDER);
+
+        // Duplicates are dropped by bounds alone, as equals compares them, so a range also written as a single
+        // address is kept once, in its range form
+        int size = 0;
+        for (int i = 0; i < ranges.length; i++) {
+            if (size == 0 || ranges[size - 1].compareTo(ranges[i]) != 0) {
+                ranges[size++] = ranges[i];
+            }
+        }
+
+        this.lowerHi = new long[size];
+        this.lowerLo = new long[size];
+        this.upperHi = new long[size];
+        this.upperLo = new long[size];
+
+        BitSet singles = null;
+        int firstIPv6 = size;
+
+        for (int i = 0; i < size; i++) {
+            final IPRange range = ranges[i];
+            lowerHi[i] = range.getLowerHi();
+            lowerLo[i] = range.getLowerLo();
+            upperHi[i] = range.getUpperHi();
+            upperLo[i] = range.getUpperLo();
+
+            if (range.isIPv6() && firstIPv6 == size) {
+                firstIPv6 = i;
+            }
+
+            if (range.isSingleAddress()) {
+                singles = singles == null ? new BitSet(size) : singles;
+                singles.set(i);
+            }
+        }
+
+        this.ipv6Start = firstIPv6;
+        this.singleAddresses = singles;
+        this.maxUpperHi = new long[size];
+        this.maxUpperLo = new long[size];
+        fillMaxUpper();
+    }
+
+    private IPRangeArray(int ipv6Start, long[] lowerHi, long[] lowerLo, long[] upperHi, long[] upperLo) {
+        this.ipv6Start = ipv6Start;
+        this.lowerHi = lowerHi;
+        this.lowerLo = lowerLo;
+        this.upperHi = upperHi;
+        this.upperLo = upperLo;
+        this.singleAddresses = null;
+        this.maxUpperHi = new long[lowerHi.length];
+        this.maxUpperLo = new long[lowerHi.length];
+        fillMaxUpper();
+    }
+
+    // Takes over bounds that are already in array order: IPv4 ranges first, each version ordered by lower and upper
+    // bound without duplicates, as every value written from an IPRangeArray is
+    public static IPRangeArray fromSortedBounds(
+            int ipv6Start, long[] lowerHi, long[] lowerLo, long[] upperHi, long[] upperLo) {
+        return new IPRangeArray(ipv6Start, lowerHi, lowerLo, upperHi, upperLo);
+    }
+
+    private void fillMaxUpper() {
+        for (int i = 0; i < size(); i++) {
+            final boolean startsRun = i == 0 || i == ipv6Start;
+            if (startsRun
+                    || IPAddressBits.compare(upperHi[i], upperLo[i], maxUpperHi[i - 1], maxUpperLo[i - 1]) > 0) {
+                maxUpperHi[i] = upperHi[i];
+                maxUpperLo[i] = upperLo[i];
+            } else {
+                maxUpperHi[i] = maxUpperHi[i - 1];
+                maxUpperLo[i] = maxUpperLo[i - 1];
+            }
+        }
+    }
+
+    // Merges overlapping, nested and adjacent ranges of the same version into a minimal disjoint set
+    public IPRangeArray normalize() {
+        final List<IPRange> merged = new ArrayList<>(size());
+        int start = 0;
+
+        while (start < size()) {
+            final boolean ipv6 = start >= ipv6Start;
+            final int runEnd = ipv6 ? size() : ipv6Start;
+            long endHi = upperHi[start];
+            long endLo = upperLo[start];
+            int end = start + 1;
+
+            while (end < runEnd && IPAddressBits.adjoins(lowerHi[end], lowerLo[end], endHi, endLo)) {
+                if (IPAddressBits.compare(upperHi[end], upperLo[end], endHi, endLo) > 0) {
+                    endHi = upperHi[end];
+                    endLo = upperLo[end];
+                }
+                end++;
+            }
+
+            final boolean single = end == start + 1 && singleAddresses != null && singleAddresses.get(start);
+            merged.add(new IPRange(ipv6, single, lowerHi[start], lowerLo[start], endHi, endLo));
+            start = end;
+        }
+
+        return merged.size() == size() ? this : fromRanges(merged);
+    }
+
+    public static IPRangeArray fromRanges(Collection<IPRange> ranges) {
+        return new IPRangeArray(ranges.stream().filter(r -> !r.isEmpty()).toArray(IPRange[]::new));
     }
 
     public static IPRangeArray fromArray(List<Object> values) {
@@ -59,63 +188,115 @@ public class IPRangeArray implements Serializable, IPRangeHandler, Comparable<IP
                 .collect(Collectors.toList()));
     }
 
-    public Set<IPAddressRange> getAddressRanges() {
+    // Materialized in the inet.ipaddr low value order the values were historically exposed with
+    public SortedSet<IPAddressRange> getAddressRanges() {
+        final SortedSet<IPAddressRange> addressRanges = new TreeSet<>(ADDRESS_LOW_VALUE_COMPARATOR);
+
+        for (int i = 0; i < size(); i++) {
+            addressRanges.add(getRange(i).getAddressRange());
+        }
+
         return addressRanges;
     }
 
-    public boolean contains(IPAddress address) {
-        for (IPAddressRange range : addressRanges) {
-            if (range.getLower().compareTo(address) > 0) {
-                return false;
-            }
+    public int size() {
+        return lowerHi.length;
+    }
 
-            if (range.contains(address)) {
-                return true;
-            }
+    public IPRange getRange(int index) {
+        return new IPRange(
+                index >= ipv6Start,
+                singleAddresses != null && singleAddresses.get(index),
+                lowerHi[index],
+                lowerLo[index],
+                upperHi[index],
+                upperLo[index]);
+    }
+
+    public boolean contains(IPAddress address) {
+        if (address == null) {
+            return false;
         }
 
-        return false;
+        final boolean ipv6 = address.isIPv6();
+        final long hi = IPAddressBits.hi(address);
+        final long lo = IPAddressBits.lo(address);
+        final int from = ipv6 ? ipv6Start : 0;
+        final int index = lastLowerAtMost(from, ipv6 ? size() : ipv6Start, hi, lo);
+
+        return index >= from && IPAddressBits.compare(hi, lo, maxUpperHi[index], maxUpperLo[index]) <= 0;
     }
 
-    @Override
     public boolean contains(final SortedSet<IPAddress> addresses) {
-        final Iterator<IPAddress> addressIterator = addresses.iterator();
-        final Iterator<IPAddressRange> rangeIterator = addressRanges.iterator();
+        return CollectionUtils.isNotEmpty(addresses) && contains(SortedIPAddresses.of(addresses));
+    }
 
-        if (!addressIterator.hasNext() || !rangeIterator.hasNext()) {
-            return false; // One set is empty, might wanna return true if addresses are empty?
-        }
+    @Override
+    public boolean contains(SortedIPAddresses addresses) {
+        return containsAny(addresses, false, 0, ipv6Start) || containsAny(addresses, true, ipv6Start, size());
+    }
 
-        IPAddress currentAddress = addressIterator.next();
-        IPAddressRange currentRange = rangeIterator.next();
+    private boolean containsAny(SortedIPAddresses addresses, boolean ipv6, int from, int to) {
+        final int count = addresses.size(ipv6);
 
-        while (currentAddress != null && currentRange != null) {
-            int compareToLower = currentAddress.compareTo(currentRange.getLower());
-            if (compareToLower < 0) {
-                if (addressIterator.hasNext()) {
-                    currentAddress = addressIterator.next();
-                } else {
-                    currentAddress = null;
+        if (count == 0 || from == to) {
+            return false;
+        }
+
+        // Few ranges, probe the sorted addresses once per range
+        if (to - from <= count) {
+            for (int i = from; i < to; i++) {
+                if (addresses.anyWithin(ipv6, lowerHi[i], lowerLo[i], upperHi[i], upperLo[i])) {
+                    return true;
                 }
-                continue;
             }
+            return false;
+        }
 
-            int compareToUpper = currentAddress.compareTo(currentRange.getUpper());
-            if (compareToUpper > 0) {
-                if (rangeIterator.hasNext()) {
-                    currentRange = rangeIterator.next();
-                } else {
-                    currentRange = null;
-                }
+        // Few addresses, gallop through the ranges as the addresses only move forward
+        int base = from;
+        for (int i = 0; i < count; i++) {
+            final long hi = addresses.hi(ipv6, i);
+            final long lo = addresses.lo(ipv6, i);
+
+            if (IPAddressBits.compare(hi, lo, lowerHi[base], lowerLo[base]) < 0) {
                 continue;
             }
 
-            return true;
+            int bound = 1;
+            while (base + bound < to
+                    && IPAddressBits.compare(lowerHi[base + bound], lowerLo[base + bound], hi, lo) <= 0) {
+                bound <<= 1;
+            }
+
+            base = lastLowerAtMost(base + (bound >> 1), Math.min(base + bound, to), hi, lo);
+
+            if (IPAddressBits.compare(hi, lo, maxUpperHi[base], maxUpperLo[base]) <= 0) {
+                return true;
+            }
         }
 
         return false;
     }
 
+    // Last index in [from, to) whose lower bound is at most the address, from - 1 when there is none
+    private int lastLowerAtMost(int from, int to, long hi, long lo) {
+        int low = from;
+        int high = to;
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (IPAddressBits.compare(lowerHi[mid], lowerLo[mid], hi, lo) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low - 1;
+    }
+
+    // Like IPRange, how single addresses are rendered is ignored so equality agrees with compareTo
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -127,41 +308,53 @@ public class IPRangeArray implements Serializable, IPRangeHandler, Comparable<IP
         }
 
         final IPRangeArray that = (IPRangeArray) obj;
-        return Objects.equals(addressRanges, that.addressRanges);
+        return ipv6Start == that.ipv6Start
+                && Arrays.equals(lowerHi, that.lowerHi)
+                && Arrays.equals(lowerLo, that.lowerLo)
+                && Arrays.equals(upperHi, that.upperHi)
+                && Arrays.equals(upperLo, that.upperLo);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(addressRanges);
+        int result = Integer.hashCode(ipv6Start);
+        result = 31 * result + Arrays.hashCode(lowerHi);
+        result = 31 * result + Arrays.hashCode(lowerLo);
+        result = 31 * result + Arrays.hashCode(upperHi);
+        return 31 * result + Arrays.hashCode(upperLo);
     }
 
     @Override
     public String toString() {
-        return IPRangeUtil.toString(addressRanges);
+        return IPRangeUtil.toString(getAddressRanges());
     }
 
     @Override
     public int compareTo(IPRangeArray other) {
-        Iterator<IPAddressRange> iter = addressRanges.iterator();
-        Iterator<IPAddressRange> otherIter = other.addressRanges.iterator();
+        final int common = Math.min(size(), other.size());
 
-        while (iter.hasNext() && otherIter.hasNext()) {
-            int cmp = ADDRESS_LOW_VALUE_COMPARATOR.compare(iter.next(), otherIter.next());
+        for (int i = 0; i < common; i++) {
+            final boolean ipv6 = i >= ipv6Start;
+
+            if (ipv6 != i >= other.ipv6Start) {
+                return Boolean.compare(ipv6, i >= other.ipv6Start);
+            }
+
+            int cmp = IPAddressBits.compare(lowerHi[i], lowerLo[i], other.lowerHi[i], other.lowerLo[i]);
+            cmp = cmp != 0 ? cmp : IPAddressBits.compare(upperHi[i], upperLo[i], other.upperHi[i], other.upperLo[i]);
 
             if (cmp != 0) {
                 return cmp;
             }
         }
 
-        if (iter.hasNext()) return 1;
-        if (otherIter.hasNext()) return -1;
-        return 0;
+        return Integer.compare(size(), other.size());
     }
 
     @Override
-    public byte[] toBytes() {
+    public byte[] toBytes(boolean compact) {
         try {
-            return SerializationUtil.serialize(this);
+            return SerializationUtil.serialize(this, compact);
         } catch (IOException e) {
             throw new IAE("Unable to convert to bytes", e);
         }
@@ -186,16 +379,21 @@ public class IPRangeArray implements Serializable, IPRangeHandler, Comparable<IP
         }
     }
 
-    public boolean isEmpty() {
-        return addressRanges == null || addressRanges.isEmpty();
+    @Override
+    public void forEachRange(IPRangeConsumer consumer) {
+        for (int i = 0; i < size(); i++) {
+            consumer.accept(i >= ipv6Start, lowerHi[i], lowerLo[i], upperHi[i], upperLo[i]);
+        }
     }
 
     @Override
-    public int getLengthOfEncodedKeyComponent() {
-        if (isEmpty()) {
-            return 0;
-        }
+    public boolean isEmpty() {
+        return size() == 0;
+    }
 
-        return addressRanges.stream().mapToInt(IPRangeUtil::getSize).sum();
+    @Override
+    public int getLengthOfEncodedKeyComponent(boolean compact) {
+        return ipv6Start * SerializationUtil.maxRangeSize(false, compact)
+                + (size() - ipv6Start) * SerializationUtil.maxRangeSize(true, compact);
     }
 }
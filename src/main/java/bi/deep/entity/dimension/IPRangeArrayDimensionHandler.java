@@ -33,9 +33,15 @@ import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
 public class IPRangeArrayDimensionHandler implements DimensionHandler<IPRangeArray, IPRangeArray, IPRangeArray> {
 
     private final String dimensionName;
+    private final IPColumnOptions options;
 
     public IPRangeArrayDimensionHandler(String dimensionName) {
+        this(dimensionName, IPColumnOptions.DEFAULT);
+    }
+
+    public IPRangeArrayDimensionHandler(String dimensionName, IPColumnOptions options) {
         this.dimensionName = dimensionName;
+        this.options = options;
     }
 
     @Override
@@ -45,12 +51,12 @@ public class IPRangeArrayDimensionHandler implements DimensionHandler<IPRangeArr
 
     @Override
     public DimensionSchema getDimensionSchema(ColumnCapabilities capabilities) {
-        return new IPRangeArrayDimensionSchema(getDimensionName());
+        return new IPRangeArrayDimensionSchema(getDimensionName(), options);
     }
 
     @Override
     public DimensionIndexer<IPRangeArray, IPRangeArray, IPRangeArray> makeIndexer() {
-        return new IPRangeArrayDimensionIndexer();
+        return new IPRangeArrayDimensionIndexer(options);
     }
 
     @Override
@@ -62,12 +68,14 @@ public class IPRangeArrayDimensionHandler implements DimensionHandler<IPRangeArr
             ProgressIndicator progress,
             File segmentBaseDir,
             Closer closer) {
-        return new IPRangeArrayDimensionMergerV9(outputName, segmentWriteOutMedium);
+        return new IPRangeArrayDimensionMergerV9(outputName, segmentWriteOutMedium, options);
     }
 
     @Override
     public int getLengthOfEncodedKeyComponent(IPRangeArray dimVals) {
-        return dimVals == null ? 0 : dimVals.getLengthOfEncodedKeyComponent();
+        return dimVals == null
+                ? 0
+                : dimVals.getLengthOfEncodedKeyComponent(options.has(IPColumnOptions.COMPACT_ENCODING));
     }
 
     @Override
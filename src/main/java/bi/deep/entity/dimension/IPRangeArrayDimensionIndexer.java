@@ -29,16 +29,27 @@ import org.apache.druid.segment.EncodedKeyComponent;
 import org.apache.druid.segment.ObjectColumnSelector;
 import org.apache.druid.segment.column.ColumnCapabilities;
 import org.apache.druid.segment.column.ColumnCapabilitiesImpl;
+import org.apache.druid.segment.column.ColumnFormat;
 import org.apache.druid.segment.data.CloseableIndexed;
 import org.apache.druid.segment.incremental.IncrementalIndex;
 import org.apache.druid.segment.incremental.IncrementalIndexRowHolder;
 
 public class IPRangeArrayDimensionIndexer implements DimensionIndexer<IPRangeArray, IPRangeArray, IPRangeArray> {
+    private final IPColumnOptions options;
+    private final boolean normalizeRanges;
+
+    public IPRangeArrayDimensionIndexer(IPColumnOptions options) {
+        this.options = options;
+        this.normalizeRanges = options.has(IPColumnOptions.NORMALIZE_RANGES);
+    }
+
     @Override
     public EncodedKeyComponent<IPRangeArray> processRowValsToUnsortedEncodedKeyComponent(
             @Nullable Object dimValues, boolean reportParseExceptions) {
         IPRangeArray range = IPRangeArray.from(dimValues);
-        return new EncodedKeyComponent<>(range, range.getLengthOfEncodedKeyComponent());
+        range = normalizeRanges ? range.normalize() : range;
+        final boolean compact = options.has(IPColumnOptions.COMPACT_ENCODING);
+        return new EncodedKeyComponent<>(range, range.getLengthOfEncodedKeyComponent(compact));
     }
 
     @Override
@@ -101,6 +112,11 @@ public class IPRangeArrayDimensionIndexer implements DimensionIndexer<IPRangeArr
         return new ColumnCapabilitiesImpl().setType(IPRangeDimensionModule.ARRAY_TYPE);
     }
 
+    @Override
+    public ColumnFormat getFormat() {
+        return new IPRangeColumnFormat(IPRangeDimensionModule.ARRAY_TYPE, options);
+    }
+
     @Override
     public int compareUnsortedEncodedKeyComponents(@Nullable IPRangeArray lhs, @Nullable IPRangeArray rhs) {
         return IPRangeArray.COMPARATOR.compare(lhs, rhs);
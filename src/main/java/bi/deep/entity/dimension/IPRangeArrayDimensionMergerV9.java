@@ -15,9 +15,16 @@
  */
 package bi.deep.entity.dimension;
 
+import bi.deep.entity.index.IPColumnSerializer;
+import bi.deep.entity.index.IPColumnSummaryWriter;
+import bi.deep.entity.index.IPDictionarySerializer;
+import bi.deep.entity.index.IPIndexWriter;
+import bi.deep.entity.index.IPRangePrefixIndexWriter;
+import bi.deep.entity.index.IPZoneMapWriter;
 import bi.deep.guice.IPRangeDimensionModule;
 import java.io.IOException;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.druid.segment.ColumnValueSelector;
@@ -26,16 +33,42 @@ import org.apache.druid.segment.GenericColumnSerializer;
 import org.apache.druid.segment.IndexableAdapter;
 import org.apache.druid.segment.column.ColumnDescriptor;
 import org.apache.druid.segment.column.ValueType;
+import org.apache.druid.segment.data.ObjectStrategy;
 import org.apache.druid.segment.serde.ComplexColumnPartSerde;
-import org.apache.druid.segment.serde.ComplexColumnSerializer;
 import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
 
 public class IPRangeArrayDimensionMergerV9 implements DimensionMergerV9 {
     private final GenericColumnSerializer serializer;
+    private final IPColumnOptions options;
 
-    public IPRangeArrayDimensionMergerV9(String dimensionName, SegmentWriteOutMedium segmentWriteOutMedium) {
-        serializer = ComplexColumnSerializer.create(
-                segmentWriteOutMedium, dimensionName, IPRangeArrayObjectStrategy.INSTANCE);
+    public IPRangeArrayDimensionMergerV9(
+            String dimensionName, SegmentWriteOutMedium segmentWriteOutMedium, IPColumnOptions options) {
+        this.options = options;
+        final List<IPIndexWriter> indexWriters = new ArrayList<>();
+
+        if (options.has(IPColumnOptions.PREFIX_INDEX)) {
+            indexWriters.add(new IPRangePrefixIndexWriter());
+        }
+        if (options.has(IPColumnOptions.ZONE_MAP)) {
+            indexWriters.add(new IPZoneMapWriter());
+        }
+        if (options.has(IPColumnOptions.SUMMARY)) {
+            indexWriters.add(new IPColumnSummaryWriter());
+        }
+
+        // Dictionary columns above the cardinality limit are written in the plain layout as well
+        final ObjectStrategy<IPRangeArray> strategy = options.has(IPColumnOptions.COMPACT_ENCODING)
+                ? IPRangeArrayObjectStrategy.COMPACT
+                : IPRangeArrayObjectStrategy.INSTANCE;
+
+        if (options.has(IPColumnOptions.DICTIONARY_ENCODED)) {
+            serializer = new IPColumnSerializer<>(
+                    segmentWriteOutMedium,
+                    new IPDictionarySerializer<>(segmentWriteOutMedium, dimensionName, strategy),
+                    indexWriters);
+        } else {
+            serializer = new IPColumnSerializer<>(segmentWriteOutMedium, dimensionName, strategy, indexWriters);
+        }
 
         try {
             serializer.open();
@@ -46,14 +79,20 @@ public class IPRangeArrayDimensionMergerV9 implements DimensionMergerV9 {
 
     @Override
     public ColumnDescriptor makeColumnDescriptor() {
-        return new ColumnDescriptor.Builder()
+        final ColumnDescriptor.Builder builder = new ColumnDescriptor.Builder()
                 .setValueType(ValueType.COMPLEX)
                 .setHasMultipleValues(false)
                 .addSerde(ComplexColumnPartSerde.serializerBuilder()
                         .withTypeName(IPRangeDimensionModule.ARRAY_TYPE_NAME)
                         .withDelegate(serializer)
-                        .build())
-                .build();
+                        .build());
+
+        // Columns with default options stay readable by versions that do not know the options part
+        if (!IPColumnOptions.DEFAULT.equals(options)) {
+            builder.addSerde(new IPRangeColumnPartSerde(IPRangeDimensionModule.ARRAY_TYPE_NAME, options));
+        }
+
+        return builder.build();
     }
 
     @Override
@@ -17,17 +17,90 @@ package bi.deep.entity.dimension;
 
 import bi.deep.guice.IPRangeDimensionModule;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
+import java.util.Objects;
+import javax.annotation.Nullable;
 import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.error.InvalidInput;
+import org.apache.druid.segment.DimensionHandler;
 import org.apache.druid.segment.column.ColumnType;
 
 @JsonTypeName(IPRangeDimensionModule.ARRAY_TYPE_NAME)
 public class IPRangeArrayDimensionSchema extends DimensionSchema {
+    private final IPColumnOptions options;
 
     @JsonCreator
-    public IPRangeArrayDimensionSchema(@JsonProperty("name") String name) {
+    public IPRangeArrayDimensionSchema(
+            @JsonProperty("name") String name,
+            @JsonProperty("prefixIndex") @Nullable Boolean prefixIndex,
+            @JsonProperty("normalizeRanges") @Nullable Boolean normalizeRanges,
+            @JsonProperty("dictionaryEncoded") @Nullable Boolean dictionaryEncoded,
+            @JsonProperty("zoneMap") @Nullable Boolean zoneMap,
+            @JsonProperty("summary") @Nullable Boolean summary,
+            @JsonProperty("compactEncoding") @Nullable Boolean compactEncoding) {
+        this(
+                name,
+                IPColumnOptions.DEFAULT
+                        .with(IPColumnOptions.PREFIX_INDEX, Boolean.TRUE.equals(prefixIndex))
+                        .with(IPColumnOptions.NORMALIZE_RANGES, Boolean.TRUE.equals(normalizeRanges))
+                        .with(IPColumnOptions.DICTIONARY_ENCODED, Boolean.TRUE.equals(dictionaryEncoded))
+                        .with(IPColumnOptions.ZONE_MAP, Boolean.TRUE.equals(zoneMap))
+                        .with(IPColumnOptions.SUMMARY, Boolean.TRUE.equals(summary))
+                        .with(IPColumnOptions.COMPACT_ENCODING, Boolean.TRUE.equals(compactEncoding)));
+    }
+
+    public IPRangeArrayDimensionSchema(String name, IPColumnOptions options) {
         super(name, MultiValueHandling.SORTED_ARRAY, true);
+        this.options = options;
+
+        // The dictionary doubles as the row index
+        if (options.has(IPColumnOptions.DICTIONARY_ENCODED)
+                && (options.has(IPColumnOptions.PREFIX_INDEX) || options.has(IPColumnOptions.ZONE_MAP))) {
+            throw InvalidInput.exception(
+                    "Column [%s] cannot use prefixIndex or zoneMap with dictionaryEncoded", name);
+        }
+    }
+
+    public IPColumnOptions getOptions() {
+        return options;
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isPrefixIndex() {
+        return options.has(IPColumnOptions.PREFIX_INDEX);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isNormalizeRanges() {
+        return options.has(IPColumnOptions.NORMALIZE_RANGES);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isDictionaryEncoded() {
+        return options.has(IPColumnOptions.DICTIONARY_ENCODED);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isZoneMap() {
+        return options.has(IPColumnOptions.ZONE_MAP);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isSummary() {
+        return options.has(IPColumnOptions.SUMMARY);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isCompactEncoding() {
+        return options.has(IPColumnOptions.COMPACT_ENCODING);
     }
 
     @Override
@@ -39,4 +112,26 @@ public class IPRangeArrayDimensionSchema extends DimensionSchema {
     public ColumnType getColumnType() {
         return IPRangeDimensionModule.ARRAY_TYPE;
     }
+
+    @Override
+    public DimensionHandler getDimensionHandler() {
+        return new IPRangeArrayDimensionHandler(getName(), options);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IPRangeArrayDimensionSchema) || !super.equals(o)) {
+            return false;
+        }
+
+        return options.equals(((IPRangeArrayDimensionSchema) o).options);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), options);
+    }
 }
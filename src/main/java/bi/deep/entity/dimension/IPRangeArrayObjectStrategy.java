@@ -15,15 +15,23 @@
  */
 package bi.deep.entity.dimension;
 
+import bi.deep.entity.SerializationUtil;
 import java.nio.ByteBuffer;
 import javax.annotation.Nullable;
 import org.apache.druid.java.util.common.IAE;
 import org.apache.druid.segment.data.ObjectStrategy;
 
 public class IPRangeArrayObjectStrategy implements ObjectStrategy<IPRangeArray> {
-    public static final ObjectStrategy<IPRangeArray> INSTANCE = new IPRangeArrayObjectStrategy();
+    public static final ObjectStrategy<IPRangeArray> INSTANCE = new IPRangeArrayObjectStrategy(false);
+    public static final ObjectStrategy<IPRangeArray> COMPACT = new IPRangeArrayObjectStrategy(true);
     private static final byte[] EMPTY_BYTES = new byte[] {};
 
+    private final boolean compact;
+
+    private IPRangeArrayObjectStrategy(boolean compact) {
+        this.compact = compact;
+    }
+
     @Override
     public int compare(final IPRangeArray s1, final IPRangeArray s2) {
         return IPRangeArray.COMPARATOR.compare(s1, s2);
@@ -35,16 +43,19 @@ public class IPRangeArrayObjectStrategy implements ObjectStrategy<IPRangeArray>
             return IPRangeArray.EMPTY;
         }
 
-        final byte[] data = new byte[numBytes];
-        buffer.get(data);
-
         try {
-            return IPRangeArray.from(data);
+            return SerializationUtil.deserializeToIPRangeArray(buffer, numBytes);
         } catch (Exception e) {
             throw new IAE("Unable to read from byte buffer", e);
         }
     }
 
+    // Values are decoded into primitive fields, nothing refers back to the column buffer
+    @Override
+    public boolean readRetainsBufferReference() {
+        return false;
+    }
+
     @Override
     public Class<IPRangeArray> getClazz() {
         return IPRangeArray.class;
@@ -56,6 +67,6 @@ public class IPRangeArrayObjectStrategy implements ObjectStrategy<IPRangeArray>
             return EMPTY_BYTES;
         }
 
-        return range.toBytes();
+        return range.toBytes(compact);
     }
 }
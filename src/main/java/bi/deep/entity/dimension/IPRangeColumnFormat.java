@@ -0,0 +1,79 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import bi.deep.guice.IPRangeDimensionModule;
+import javax.annotation.Nullable;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.segment.DimensionHandler;
+import org.apache.druid.segment.column.CapabilitiesBasedFormat;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ColumnCapabilitiesImpl;
+import org.apache.druid.segment.column.ColumnFormat;
+import org.apache.druid.segment.column.ColumnType;
+
+// Format of ipRange and ipRangeArray columns, it carries the column options so the handler built for a loaded segment
+// writes the same layout and indexes again
+public class IPRangeColumnFormat implements ColumnFormat {
+    private final ColumnType type;
+    private final IPColumnOptions options;
+
+    public IPRangeColumnFormat(ColumnType type, IPColumnOptions options) {
+        this.type = type;
+        this.options = options;
+    }
+
+    public IPColumnOptions getOptions() {
+        return options;
+    }
+
+    @Override
+    public ColumnType getLogicalType() {
+        return type;
+    }
+
+    @Override
+    public DimensionHandler getColumnHandler(String columnName) {
+        return IPRangeDimensionModule.ARRAY_TYPE.equals(type)
+                ? new IPRangeArrayDimensionHandler(columnName, options)
+                : new IPRangeDimensionHandler(columnName, options);
+    }
+
+    @Override
+    public DimensionSchema getColumnSchema(String columnName) {
+        return getColumnHandler(columnName).getDimensionSchema(toColumnCapabilities());
+    }
+
+    // Segments written with different options keep only the options they share
+    @Override
+    public ColumnFormat merge(@Nullable ColumnFormat otherFormat) {
+        if (otherFormat == null) {
+            return this;
+        }
+
+        if (otherFormat instanceof IPRangeColumnFormat && type.equals(otherFormat.getLogicalType())) {
+            final IPColumnOptions otherOptions = ((IPRangeColumnFormat) otherFormat).options;
+            return new IPRangeColumnFormat(type, IPColumnOptions.of(options.getFlags() & otherOptions.getFlags()));
+        }
+
+        return new CapabilitiesBasedFormat(toColumnCapabilities()).merge(otherFormat);
+    }
+
+    @Override
+    public ColumnCapabilities toColumnCapabilities() {
+        return ColumnCapabilitiesImpl.createDefault().setType(type);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import bi.deep.guice.IPRangeDimensionModule;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import java.nio.channels.WritableByteChannel;
+import org.apache.druid.java.util.common.io.smoosh.FileSmoosher;
+import org.apache.druid.segment.column.ColumnType;
+import org.apache.druid.segment.serde.ColumnPartSerde;
+
+// Follows the complex part of an ipRange or ipRangeArray column and holds no data of its own. It records the column
+// options, so compaction and reindexing of the segment keep the layout and indexes it was written with.
+@JsonTypeName(IPRangeDimensionModule.OPTIONS_TYPE_NAME)
+public class IPRangeColumnPartSerde implements ColumnPartSerde {
+    private static final Serializer NO_DATA = new Serializer() {
+        @Override
+        public long getSerializedSize() {
+            return 0;
+        }
+
+        @Override
+        public void writeTo(WritableByteChannel channel, FileSmoosher smoosher) {}
+    };
+
+    private final String typeName;
+    private final IPColumnOptions options;
+
+    @JsonCreator
+    public IPRangeColumnPartSerde(
+            @JsonProperty("typeName") String typeName, @JsonProperty("options") int options) {
+        this(typeName, IPColumnOptions.of(options));
+    }
+
+    public IPRangeColumnPartSerde(String typeName, IPColumnOptions options) {
+        this.typeName = typeName;
+        this.options = options;
+    }
+
+    @JsonProperty("typeName")
+    public String getTypeName() {
+        return typeName;
+    }
+
+    @JsonProperty("options")
+    public int getOptions() {
+        return options.getFlags();
+    }
+
+    @Override
+    public Serializer getSerializer() {
+        return NO_DATA;
+    }
+
+    @Override
+    public Deserializer getDeserializer() {
+        return (buffer, builder, columnConfig, parent) ->
+                builder.setColumnFormat(new IPRangeColumnFormat(ColumnType.ofComplex(typeName), options));
+    }
+}
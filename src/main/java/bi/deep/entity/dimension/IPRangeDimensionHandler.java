@@ -33,9 +33,15 @@ import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
 public class IPRangeDimensionHandler implements DimensionHandler<IPRange, IPRange, IPRange> {
 
     private final String dimensionName;
+    private final IPColumnOptions options;
 
     public IPRangeDimensionHandler(String dimensionName) {
+        this(dimensionName, IPColumnOptions.DEFAULT);
+    }
+
+    public IPRangeDimensionHandler(String dimensionName, IPColumnOptions options) {
         this.dimensionName = dimensionName;
+        this.options = options;
     }
 
     @Override
@@ -45,12 +51,12 @@ public class IPRangeDimensionHandler implements DimensionHandler<IPRange, IPRang
 
     @Override
     public DimensionSchema getDimensionSchema(ColumnCapabilities capabilities) {
-        return new IPRangeDimensionSchema(getDimensionName());
+        return new IPRangeDimensionSchema(getDimensionName(), options);
     }
 
     @Override
     public DimensionIndexer<IPRange, IPRange, IPRange> makeIndexer() {
-        return new IPRangeDimensionIndexer();
+        return new IPRangeDimensionIndexer(options);
     }
 
     @Override
@@ -62,7 +68,7 @@ public class IPRangeDimensionHandler implements DimensionHandler<IPRange, IPRang
             ProgressIndicator progress,
             File segmentBaseDir,
             Closer closer) {
-        return new IPRangeDimensionMergerV9(outputName, segmentWriteOutMedium);
+        return new IPRangeDimensionMergerV9(outputName, segmentWriteOutMedium, options);
     }
 
     @Override
@@ -71,7 +77,7 @@ public class IPRangeDimensionHandler implements DimensionHandler<IPRange, IPRang
             return 0;
         }
 
-        return dimVals.getLengthOfEncodedKeyComponent();
+        return dimVals.getLengthOfEncodedKeyComponent(options.has(IPColumnOptions.COMPACT_ENCODING));
     }
 
     @Override
@@ -29,16 +29,24 @@ import org.apache.druid.segment.EncodedKeyComponent;
 import org.apache.druid.segment.ObjectColumnSelector;
 import org.apache.druid.segment.column.ColumnCapabilities;
 import org.apache.druid.segment.column.ColumnCapabilitiesImpl;
+import org.apache.druid.segment.column.ColumnFormat;
 import org.apache.druid.segment.data.CloseableIndexed;
 import org.apache.druid.segment.incremental.IncrementalIndex;
 import org.apache.druid.segment.incremental.IncrementalIndexRowHolder;
 
 public class IPRangeDimensionIndexer implements DimensionIndexer<IPRange, IPRange, IPRange> {
+    private final IPColumnOptions options;
+
+    public IPRangeDimensionIndexer(IPColumnOptions options) {
+        this.options = options;
+    }
+
     @Override
     public EncodedKeyComponent<IPRange> processRowValsToUnsortedEncodedKeyComponent(
             @Nullable Object dimValues, boolean reportParseExceptions) {
         IPRange range = IPRange.from(dimValues);
-        return new EncodedKeyComponent<>(range, range.getLengthOfEncodedKeyComponent());
+        final boolean compact = options.has(IPColumnOptions.COMPACT_ENCODING);
+        return new EncodedKeyComponent<>(range, range.getLengthOfEncodedKeyComponent(compact));
     }
 
     @Override
@@ -101,6 +109,11 @@ public class IPRangeDimensionIndexer implements DimensionIndexer<IPRange, IPRang
         return new ColumnCapabilitiesImpl().setType(IPRangeDimensionModule.TYPE);
     }
 
+    @Override
+    public ColumnFormat getFormat() {
+        return new IPRangeColumnFormat(IPRangeDimensionModule.TYPE, options);
+    }
+
     @Override
     public int compareUnsortedEncodedKeyComponents(@Nullable IPRange lhs, @Nullable IPRange rhs) {
         return IPRange.COMPARATOR.compare(lhs, rhs);
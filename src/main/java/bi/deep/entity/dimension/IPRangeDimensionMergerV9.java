@@ -15,9 +15,18 @@
  */
 package bi.deep.entity.dimension;
 
+import bi.deep.entity.index.IPColumnSerializer;
+import bi.deep.entity.index.IPColumnSummaryWriter;
+import bi.deep.entity.index.IPDictionarySerializer;
+import bi.deep.entity.index.IPIndexWriter;
+import bi.deep.entity.index.IPPrefixBloomFilterWriter;
+import bi.deep.entity.index.IPRangeColumnarSerializer;
+import bi.deep.entity.index.IPRangeIntervalIndexWriter;
+import bi.deep.entity.index.IPZoneMapWriter;
 import bi.deep.guice.IPRangeDimensionModule;
 import java.io.IOException;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.druid.segment.ColumnValueSelector;
@@ -26,16 +35,54 @@ import org.apache.druid.segment.GenericColumnSerializer;
 import org.apache.druid.segment.IndexableAdapter;
 import org.apache.druid.segment.column.ColumnDescriptor;
 import org.apache.druid.segment.column.ValueType;
+import org.apache.druid.segment.data.ObjectStrategy;
 import org.apache.druid.segment.serde.ComplexColumnPartSerde;
-import org.apache.druid.segment.serde.ComplexColumnSerializer;
 import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
 
 public class IPRangeDimensionMergerV9 implements DimensionMergerV9 {
     private final GenericColumnSerializer serializer;
+    private final IPColumnOptions options;
 
     public IPRangeDimensionMergerV9(String dimensionName, SegmentWriteOutMedium segmentWriteOutMedium) {
-        serializer =
-                ComplexColumnSerializer.create(segmentWriteOutMedium, dimensionName, IPRangeObjectStrategy.INSTANCE);
+        this(dimensionName, segmentWriteOutMedium, IPColumnOptions.DEFAULT);
+    }
+
+    public IPRangeDimensionMergerV9(
+            String dimensionName, SegmentWriteOutMedium segmentWriteOutMedium, IPColumnOptions options) {
+        this.options = options;
+        final List<IPIndexWriter> indexWriters = new ArrayList<>();
+
+        if (options.has(IPColumnOptions.INTERVAL_INDEX)) {
+            indexWriters.add(new IPRangeIntervalIndexWriter());
+        }
+        if (options.has(IPColumnOptions.ZONE_MAP)) {
+            indexWriters.add(new IPZoneMapWriter());
+        }
+        if (options.has(IPColumnOptions.SUMMARY)) {
+            indexWriters.add(new IPColumnSummaryWriter());
+        }
+        if (options.has(IPColumnOptions.PREFIX_BLOOM_FILTER)) {
+            indexWriters.add(new IPPrefixBloomFilterWriter());
+        }
+
+        // Dictionary columns above the cardinality limit are written in the plain layout as well
+        final ObjectStrategy<IPRange> strategy = options.has(IPColumnOptions.COMPACT_ENCODING)
+                ? IPRangeObjectStrategy.COMPACT
+                : IPRangeObjectStrategy.INSTANCE;
+
+        if (options.has(IPColumnOptions.DICTIONARY_ENCODED)) {
+            serializer = new IPColumnSerializer<>(
+                    segmentWriteOutMedium,
+                    new IPDictionarySerializer<>(segmentWriteOutMedium, dimensionName, strategy),
+                    indexWriters);
+        } else if (options.has(IPColumnOptions.COLUMNAR_BOUNDS)) {
+            serializer = new IPColumnSerializer<>(
+                    segmentWriteOutMedium,
+                    new IPRangeColumnarSerializer(segmentWriteOutMedium, dimensionName),
+                    indexWriters);
+        } else {
+            serializer = new IPColumnSerializer<>(segmentWriteOutMedium, dimensionName, strategy, indexWriters);
+        }
 
         try {
             serializer.open();
@@ -46,14 +93,20 @@ public class IPRangeDimensionMergerV9 implements DimensionMergerV9 {
 
     @Override
     public ColumnDescriptor makeColumnDescriptor() {
-        return new ColumnDescriptor.Builder()
+        final ColumnDescriptor.Builder builder = new ColumnDescriptor.Builder()
                 .setValueType(ValueType.COMPLEX)
                 .setHasMultipleValues(false)
                 .addSerde(ComplexColumnPartSerde.serializerBuilder()
                         .withTypeName(IPRangeDimensionModule.TYPE_NAME)
                         .withDelegate(serializer)
-                        .build())
-                .build();
+                        .build());
+
+        // Columns with default options stay readable by versions that do not know the options part
+        if (!IPColumnOptions.DEFAULT.equals(options)) {
+            builder.addSerde(new IPRangeColumnPartSerde(IPRangeDimensionModule.TYPE_NAME, options));
+        }
+
+        return builder.build();
     }
 
     @Override
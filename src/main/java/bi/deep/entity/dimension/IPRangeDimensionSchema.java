@@ -17,17 +17,102 @@ package bi.deep.entity.dimension;
 
 import bi.deep.guice.IPRangeDimensionModule;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
+import java.util.Objects;
+import javax.annotation.Nullable;
 import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.error.InvalidInput;
+import org.apache.druid.segment.DimensionHandler;
 import org.apache.druid.segment.column.ColumnType;
 
 @JsonTypeName(IPRangeDimensionModule.TYPE_NAME)
 public class IPRangeDimensionSchema extends DimensionSchema {
+    private final IPColumnOptions options;
 
     @JsonCreator
-    public IPRangeDimensionSchema(@JsonProperty("name") String name) {
+    public IPRangeDimensionSchema(
+            @JsonProperty("name") String name,
+            @JsonProperty("columnarBounds") @Nullable Boolean columnarBounds,
+            @JsonProperty("dictionaryEncoded") @Nullable Boolean dictionaryEncoded,
+            @JsonProperty("prefixBloomFilter") @Nullable Boolean prefixBloomFilter,
+            @JsonProperty("intervalIndex") @Nullable Boolean intervalIndex,
+            @JsonProperty("zoneMap") @Nullable Boolean zoneMap,
+            @JsonProperty("summary") @Nullable Boolean summary,
+            @JsonProperty("compactEncoding") @Nullable Boolean compactEncoding) {
+        this(
+                name,
+                IPColumnOptions.DEFAULT
+                        .with(IPColumnOptions.COLUMNAR_BOUNDS, Boolean.TRUE.equals(columnarBounds))
+                        .with(IPColumnOptions.DICTIONARY_ENCODED, Boolean.TRUE.equals(dictionaryEncoded))
+                        .with(IPColumnOptions.PREFIX_BLOOM_FILTER, Boolean.TRUE.equals(prefixBloomFilter))
+                        .with(IPColumnOptions.INTERVAL_INDEX, Boolean.TRUE.equals(intervalIndex))
+                        .with(IPColumnOptions.ZONE_MAP, Boolean.TRUE.equals(zoneMap))
+                        .with(IPColumnOptions.SUMMARY, Boolean.TRUE.equals(summary))
+                        .with(IPColumnOptions.COMPACT_ENCODING, Boolean.TRUE.equals(compactEncoding)));
+    }
+
+    public IPRangeDimensionSchema(String name, IPColumnOptions options) {
         super(name, MultiValueHandling.SORTED_ARRAY, true);
+        this.options = options;
+
+        if (options.has(IPColumnOptions.DICTIONARY_ENCODED)) {
+            if (options.has(IPColumnOptions.COLUMNAR_BOUNDS)) {
+                throw InvalidInput.exception("Column [%s] cannot use both columnarBounds and dictionaryEncoded", name);
+            }
+            // The dictionary doubles as the row index
+            if (options.has(IPColumnOptions.INTERVAL_INDEX) || options.has(IPColumnOptions.ZONE_MAP)) {
+                throw InvalidInput.exception(
+                        "Column [%s] cannot use intervalIndex or zoneMap with dictionaryEncoded", name);
+            }
+        }
+    }
+
+    public IPColumnOptions getOptions() {
+        return options;
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isColumnarBounds() {
+        return options.has(IPColumnOptions.COLUMNAR_BOUNDS);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isDictionaryEncoded() {
+        return options.has(IPColumnOptions.DICTIONARY_ENCODED);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isPrefixBloomFilter() {
+        return options.has(IPColumnOptions.PREFIX_BLOOM_FILTER);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isIntervalIndex() {
+        return options.has(IPColumnOptions.INTERVAL_INDEX);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isZoneMap() {
+        return options.has(IPColumnOptions.ZONE_MAP);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isSummary() {
+        return options.has(IPColumnOptions.SUMMARY);
+    }
+
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isCompactEncoding() {
+        return options.has(IPColumnOptions.COMPACT_ENCODING);
     }
 
     @Override
@@ -39,4 +124,26 @@ public class IPRangeDimensionSchema extends DimensionSchema {
     public ColumnType getColumnType() {
         return IPRangeDimensionModule.TYPE;
     }
+
+    @Override
+    public DimensionHandler getDimensionHandler() {
+        return new IPRangeDimensionHandler(getName(), options);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IPRangeDimensionSchema) || !super.equals(o)) {
+            return false;
+        }
+
+        return options.equals(((IPRangeDimensionSchema) o).options);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), options);
+    }
 }
@@ -15,13 +15,26 @@
  */
 package bi.deep.entity.dimension;
 
-import inet.ipaddr.IPAddress;
-import java.util.SortedSet;
+import bi.deep.util.SortedIPAddresses;
 
 public interface IPRangeHandler {
-    int getLengthOfEncodedKeyComponent();
+    // Size of the value in the legacy or compact layout, used to estimate ingestion memory
+    int getLengthOfEncodedKeyComponent(boolean compact);
 
-    boolean contains(SortedSet<IPAddress> addresses);
+    default int getLengthOfEncodedKeyComponent() {
+        return getLengthOfEncodedKeyComponent(false);
+    }
 
-    byte[] toBytes();
+    boolean isEmpty();
+
+    boolean contains(SortedIPAddresses addresses);
+
+    // The compact layout is only understood by readers that know it, so it has to be asked for
+    byte[] toBytes(boolean compact);
+
+    default byte[] toBytes() {
+        return toBytes(false);
+    }
+
+    void forEachRange(IPRangeConsumer consumer);
 }
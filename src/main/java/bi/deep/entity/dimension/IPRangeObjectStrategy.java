@@ -15,15 +15,23 @@
  */
 package bi.deep.entity.dimension;
 
+import bi.deep.entity.SerializationUtil;
 import java.nio.ByteBuffer;
 import javax.annotation.Nullable;
 import org.apache.druid.java.util.common.IAE;
 import org.apache.druid.segment.data.ObjectStrategy;
 
 public class IPRangeObjectStrategy implements ObjectStrategy<IPRange> {
-    public static final ObjectStrategy<IPRange> INSTANCE = new IPRangeObjectStrategy();
+    public static final ObjectStrategy<IPRange> INSTANCE = new IPRangeObjectStrategy(false);
+    public static final ObjectStrategy<IPRange> COMPACT = new IPRangeObjectStrategy(true);
     private static final byte[] EMPTY_BYTES = new byte[] {};
 
+    private final boolean compact;
+
+    private IPRangeObjectStrategy(boolean compact) {
+        this.compact = compact;
+    }
+
     @Override
     public int compare(final IPRange s1, final IPRange s2) {
         return IPRange.COMPARATOR.compare(s1, s2);
@@ -35,16 +43,19 @@ public class IPRangeObjectStrategy implements ObjectStrategy<IPRange> {
             return IPRange.EMPTY;
         }
 
-        final byte[] data = new byte[numBytes];
-        buffer.get(data);
-
         try {
-            return IPRange.from(data);
+            return SerializationUtil.deserializeToIPRange(buffer, numBytes);
         } catch (Exception e) {
             throw new IAE("Unable to read from byte buffer", e);
         }
     }
 
+    // Values are decoded into primitive fields, nothing refers back to the column buffer
+    @Override
+    public boolean readRetainsBufferReference() {
+        return false;
+    }
+
     @Override
     public Class<IPRange> getClazz() {
         return IPRange.class;
@@ -56,6 +67,6 @@ public class IPRangeObjectStrategy implements ObjectStrategy<IPRange> {
             return EMPTY_BYTES;
         }
 
-        return range.toBytes();
+        return range.toBytes(compact);
     }
 }
@@ -15,13 +15,23 @@
  */
 package bi.deep.entity.dimension;
 
+import bi.deep.entity.index.IPColumnIndexSupplier;
+import bi.deep.entity.index.IPDictionaryColumn;
+import bi.deep.entity.index.IPRangeColumnarColumn;
+import bi.deep.entity.index.IPRowIndex;
 import bi.deep.guice.IPRangeDimensionModule;
+import com.google.common.base.Supplier;
 import it.unimi.dsi.fastutil.Hash;
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import org.apache.druid.segment.column.ColumnBuilder;
 import org.apache.druid.segment.column.ColumnType;
+import org.apache.druid.segment.column.ComplexColumn;
 import org.apache.druid.segment.column.ObjectStrategyComplexTypeStrategy;
 import org.apache.druid.segment.column.TypeStrategy;
+import org.apache.druid.segment.data.GenericIndexed;
 import org.apache.druid.segment.data.ObjectStrategy;
+import org.apache.druid.segment.serde.ComplexColumnPartSupplier;
 import org.apache.druid.segment.serde.ComplexColumnSerializer;
 import org.apache.druid.segment.serde.ComplexMetricExtractor;
 import org.apache.druid.segment.serde.ComplexMetricSerde;
@@ -48,6 +58,34 @@ public class IPRangeSerde extends ComplexMetricSerde {
         return ComplexColumnSerializer.create(segmentWriteOutMedium, column, getObjectStrategy());
     }
 
+    @Override
+    public void deserializeColumn(ByteBuffer buffer, ColumnBuilder builder) {
+        final Supplier<? extends ComplexColumn> values;
+        IPRowIndex valueIndex = null;
+
+        if (IPRangeColumnarColumn.isColumnar(buffer)) {
+            values = IPRangeColumnarColumn.read(buffer, builder.getFileMapper())::duplicate;
+        } else if (IPDictionaryColumn.isDictionary(buffer)) {
+            // Dictionary encoded values are indexed by the dictionary itself
+            final IPDictionaryColumn<IPRange> column =
+                    IPDictionaryColumn.read(buffer, getTypeName(), getObjectStrategy(), builder.getFileMapper());
+            values = column::duplicate;
+            valueIndex = column.getRowIndex();
+        } else {
+            values = new ComplexColumnPartSupplier(
+                    getTypeName(), GenericIndexed.read(buffer, getObjectStrategy(), builder.getFileMapper()));
+        }
+
+        builder.setComplexColumnSupplier(values);
+
+        // Segments written before the index sections were added end right after the values
+        final IPColumnIndexSupplier indexSupplier = IPColumnIndexSupplier.read(buffer, values, valueIndex);
+
+        if (indexSupplier != null) {
+            builder.setIndexSupplier(indexSupplier, false, false);
+        }
+    }
+
     @Override
     public TypeStrategy<IPRange> getTypeStrategy() {
         return new ObjectStrategyComplexTypeStrategy<>(
@@ -0,0 +1,72 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.util.IPRangeUtil;
+import inet.ipaddr.IPAddress;
+import javax.annotation.Nullable;
+import org.apache.druid.query.filter.DruidObjectPredicate;
+import org.apache.druid.query.filter.DruidPredicateMatch;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.index.semantic.LexicographicalRangeIndexes;
+
+// Wraps the string indexes of an ipAddress column. Within a range of the sorted dictionary the strings of the other
+// IP version may still sort in between (e.g. "0100:..." between "009.x" and "011.x"), so those are filtered out.
+public class IPAddressColumnIndexSupplier implements ColumnIndexSupplier, IPAddressRangeIndexes {
+    private static final DruidObjectPredicate<String> IPV4 =
+            value -> DruidPredicateMatch.of(IPRangeUtil.isSortableIPv4(value));
+    private static final DruidObjectPredicate<String> IPV6 =
+            value -> DruidPredicateMatch.of(IPRangeUtil.isSortableIPv6(value));
+
+    private final ColumnIndexSupplier delegate;
+
+    public IPAddressColumnIndexSupplier(ColumnIndexSupplier delegate) {
+        this.delegate = delegate;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T as(Class<T> clazz) {
+        if (clazz.equals(IPAddressRangeIndexes.class)) {
+            return delegate.as(LexicographicalRangeIndexes.class) == null ? null : (T) this;
+        }
+        return delegate.as(clazz);
+    }
+
+    @Nullable
+    @Override
+    public BitmapColumnIndex forRange(
+            boolean ipv6,
+            @Nullable IPAddress lower,
+            boolean lowerStrict,
+            @Nullable IPAddress upper,
+            boolean upperStrict) {
+        final LexicographicalRangeIndexes rangeIndexes = delegate.as(LexicographicalRangeIndexes.class);
+
+        if (rangeIndexes == null) {
+            return null;
+        }
+
+        return rangeIndexes.forRange(
+                lower == null ? null : IPRangeUtil.toSortableString(lower),
+                lowerStrict,
+                upper == null ? null : IPRangeUtil.toSortableString(upper),
+                upperStrict,
+                ipv6 ? IPV6 : IPV4);
+    }
+}
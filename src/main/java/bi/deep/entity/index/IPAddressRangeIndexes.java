@@ -0,0 +1,37 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import inet.ipaddr.IPAddress;
+import javax.annotation.Nullable;
+import org.apache.druid.segment.index.BitmapColumnIndex;
+
+// Served by ipAddress columns only, whose dictionary holds fixed width addresses in numeric order
+public interface IPAddressRangeIndexes {
+    // Rows holding an address of the given version between the bounds, a missing bound leaves that side open
+    @Nullable
+    BitmapColumnIndex forRange(
+            boolean ipv6,
+            @Nullable IPAddress lower,
+            boolean lowerStrict,
+            @Nullable IPAddress upper,
+            boolean upperStrict);
+
+    @Nullable
+    default BitmapColumnIndex forVersion(boolean ipv6) {
+        return forRange(ipv6, null, false, null, false);
+    }
+}
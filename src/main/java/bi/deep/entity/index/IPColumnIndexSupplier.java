@@ -0,0 +1,144 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import com.google.common.base.Supplier;
+import inet.ipaddr.IPAddress;
+import java.nio.ByteBuffer;
+import java.util.SortedSet;
+import javax.annotation.Nullable;
+import org.apache.druid.collections.bitmap.BitmapFactory;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.apache.druid.query.BitmapResultFactory;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.column.ComplexColumn;
+import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.index.SimpleBitmapColumnIndex;
+
+public class IPColumnIndexSupplier implements ColumnIndexSupplier, IPRangeIndexes {
+    public static final int SECTION_HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+    public static final byte INTERVAL_INDEX = 1;
+    public static final byte PREFIX_INDEX = 2;
+    public static final byte ZONE_MAP = 3;
+    public static final byte SUMMARY = 4;
+    public static final byte BLOOM_FILTER = 5;
+
+    @Nullable
+    private final IPRowIndex rowIndex;
+
+    @Nullable
+    private final IPColumnSummary summary;
+
+    @Nullable
+    private final IPPrefixBloomFilter bloomFilter;
+
+    public IPColumnIndexSupplier(IPRowIndex rowIndex) {
+        this(rowIndex, null, null);
+    }
+
+    public IPColumnIndexSupplier(
+            @Nullable IPRowIndex rowIndex,
+            @Nullable IPColumnSummary summary,
+            @Nullable IPPrefixBloomFilter bloomFilter) {
+        this.rowIndex = rowIndex;
+        this.summary = summary;
+        this.bloomFilter = bloomFilter;
+    }
+
+    // Reads the index sections trailing the column values, null when the segment was written without any. The value
+    // index comes from the column layout itself. The zone map only narrows down the rows to match against the column
+    // values, so it is used when no full index exists.
+    @Nullable
+    public static IPColumnIndexSupplier read(
+            ByteBuffer buffer, Supplier<? extends ComplexColumn> column, @Nullable IPRowIndex valueIndex) {
+        IPRowIndex rowIndex = null;
+        IPRowIndex zoneMap = null;
+        IPColumnSummary summary = null;
+        IPPrefixBloomFilter bloomFilter = null;
+
+        while (buffer.remaining() >= SECTION_HEADER_SIZE) {
+            final byte type = buffer.get();
+            final int length = buffer.getInt();
+            final ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            buffer.position(buffer.position() + length);
+
+            if (type == INTERVAL_INDEX) {
+                rowIndex = IPRangeIntervalIndex.read(payload);
+            } else if (type == PREFIX_INDEX) {
+                rowIndex = IPRangePrefixIndex.read(payload);
+            } else if (type == ZONE_MAP) {
+                zoneMap = IPZoneMapIndex.read(payload, column);
+            } else if (type == SUMMARY) {
+                summary = IPColumnSummary.read(payload);
+            } else if (type == BLOOM_FILTER) {
+                bloomFilter = IPPrefixBloomFilter.read(payload);
+            }
+        }
+
+        if (rowIndex == null) {
+            rowIndex = valueIndex != null ? valueIndex : zoneMap;
+        }
+
+        return rowIndex == null && summary == null && bloomFilter == null
+                ? null
+                : new IPColumnIndexSupplier(rowIndex, summary, bloomFilter);
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T as(Class<T> clazz) {
+        if (clazz.equals(IPRangeIndexes.class)) {
+            return (T) this;
+        }
+        if (clazz.equals(IPColumnSummary.class)) {
+            return (T) summary;
+        }
+
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public BitmapColumnIndex forAddresses(SortedSet<IPAddress> addresses, BitmapFactory bitmapFactory) {
+        final boolean mayMatch = (summary == null || summary.mayContain(addresses))
+                && (bloomFilter == null || bloomFilter.mayContain(addresses));
+
+        // Without a row index only segments ruled out up front are answered, the rest falls back to the matcher
+        if (rowIndex == null && mayMatch) {
+            return null;
+        }
+
+        return new SimpleBitmapColumnIndex() {
+            @Override
+            public int estimatedComputeCost() {
+                return mayMatch ? rowIndex.estimatedComputeCost(addresses) : 0;
+            }
+
+            @Override
+            public <T> T computeBitmapResult(BitmapResultFactory<T> bitmapResultFactory, boolean includeUnknown) {
+                final MutableBitmap rows = bitmapFactory.makeEmptyMutableBitmap();
+
+                if (mayMatch) {
+                    rowIndex.search(addresses, rows);
+                }
+
+                return bitmapResultFactory.wrapDimensionValue(bitmapFactory.makeImmutableBitmap(rows));
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.druid.java.util.common.io.smoosh.FileSmoosher;
+import org.apache.druid.segment.ColumnValueSelector;
+import org.apache.druid.segment.GenericColumnSerializer;
+import org.apache.druid.segment.data.ObjectStrategy;
+import org.apache.druid.segment.serde.ComplexColumnSerializer;
+import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+
+// Complex column values followed by [type][length][payload] index sections, readers ignore unknown sections
+public class IPColumnSerializer<T extends IPRangeHandler> implements GenericColumnSerializer<T> {
+    private final SegmentWriteOutMedium segmentWriteOutMedium;
+    private final GenericColumnSerializer<T> delegate;
+    private final List<IPIndexWriter> indexWriters;
+
+    @Nullable
+    private List<WriteOutBytes> sections;
+
+    private int rowCount;
+
+    public IPColumnSerializer(
+            SegmentWriteOutMedium segmentWriteOutMedium,
+            String filenameBase,
+            ObjectStrategy<T> strategy,
+            List<IPIndexWriter> indexWriters) {
+        this(
+                segmentWriteOutMedium,
+                ComplexColumnSerializer.create(segmentWriteOutMedium, filenameBase, strategy),
+                indexWriters);
+    }
+
+    // Values written by the given serializer instead of a complex column blob per row
+    public IPColumnSerializer(
+            SegmentWriteOutMedium segmentWriteOutMedium,
+            GenericColumnSerializer<T> delegate,
+            List<IPIndexWriter> indexWriters) {
+        this.segmentWriteOutMedium = segmentWriteOutMedium;
+        this.delegate = delegate;
+        this.indexWriters = indexWriters;
+    }
+
+    @Override
+    public void open() throws IOException {
+        delegate.open();
+    }
+
+    @Override
+    public void serialize(ColumnValueSelector<? extends T> selector) throws IOException {
+        delegate.serialize(selector);
+
+        final T value = selector.getObject();
+
+        if (value != null) {
+            for (IPIndexWriter indexWriter : indexWriters) {
+                indexWriter.add(rowCount, value);
+            }
+        }
+
+        rowCount++;
+    }
+
+    @Override
+    public long getSerializedSize() throws IOException {
+        long size = delegate.getSerializedSize();
+
+        for (WriteOutBytes section : getSections()) {
+            if (section.size() > 0) {
+                size += IPColumnIndexSupplier.SECTION_HEADER_SIZE + section.size();
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel, FileSmoosher smoosher) throws IOException {
+        delegate.writeTo(channel, smoosher);
+
+        final List<WriteOutBytes> payloads = getSections();
+
+        for (int i = 0; i < payloads.size(); i++) {
+            // Writers that gave up on their index write nothing, the column is then read without it
+            if (payloads.get(i).size() == 0) {
+                continue;
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(IPColumnIndexSupplier.SECTION_HEADER_SIZE);
+            header.put(indexWriters.get(i).getSectionType()).putInt(Math.toIntExact(payloads.get(i).size()));
+            header.flip();
+            channel.write(header);
+            payloads.get(i).writeTo(channel);
+        }
+    }
+
+    private List<WriteOutBytes> getSections() throws IOException {
+        if (sections == null) {
+            sections = new ArrayList<>(indexWriters.size());
+
+            for (IPIndexWriter indexWriter : indexWriters) {
+                final WriteOutBytes out = segmentWriteOutMedium.makeWriteOutBytes();
+                indexWriter.writeTo(out);
+                sections.add(out);
+            }
+        }
+
+        return sections;
+    }
+}
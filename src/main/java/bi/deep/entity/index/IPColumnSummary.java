@@ -0,0 +1,79 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.util.IPAddressBits;
+import inet.ipaddr.IPAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import javax.annotation.Nullable;
+
+// Per IP version the number of rows holding a range of that version and the lowest lower and highest upper bound
+public final class IPColumnSummary {
+    static final int VERSION_SIZE = Integer.BYTES + 4 * Long.BYTES;
+
+    private final ByteBuffer buffer;
+
+    private IPColumnSummary(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static IPColumnSummary read(ByteBuffer buffer) {
+        return new IPColumnSummary(buffer.slice());
+    }
+
+    public int getRowCount(boolean ipv6) {
+        return buffer.getInt(offset(ipv6));
+    }
+
+    @Nullable
+    public IPAddress getMin(boolean ipv6) {
+        final int offset = offset(ipv6) + Integer.BYTES;
+        return getRowCount(ipv6) == 0
+                ? null
+                : IPAddressBits.toAddress(ipv6, buffer.getLong(offset), buffer.getLong(offset + Long.BYTES));
+    }
+
+    @Nullable
+    public IPAddress getMax(boolean ipv6) {
+        final int offset = offset(ipv6) + Integer.BYTES + 2 * Long.BYTES;
+        return getRowCount(ipv6) == 0
+                ? null
+                : IPAddressBits.toAddress(ipv6, buffer.getLong(offset), buffer.getLong(offset + Long.BYTES));
+    }
+
+    // False when no stored range can hold any of the addresses, the whole column can then be skipped
+    public boolean mayContain(Collection<IPAddress> addresses) {
+        for (IPAddress address : addresses) {
+            final boolean ipv6 = !address.isIPv4();
+            final int offset = offset(ipv6) + Integer.BYTES;
+            final long hi = IPAddressBits.hi(address);
+            final long lo = IPAddressBits.lo(address);
+
+            if (getRowCount(ipv6) > 0
+                    && IPAddressBits.compare(hi, lo, buffer.getLong(offset), buffer.getLong(offset + 8)) >= 0
+                    && IPAddressBits.compare(hi, lo, buffer.getLong(offset + 16), buffer.getLong(offset + 24)) <= 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int offset(boolean ipv6) {
+        return ipv6 ? VERSION_SIZE : 0;
+    }
+}
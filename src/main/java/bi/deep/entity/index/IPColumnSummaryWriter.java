@@ -0,0 +1,77 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import bi.deep.util.IPAddressBits;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+
+public class IPColumnSummaryWriter implements IPIndexWriter {
+    private final Bounds v4 = new Bounds();
+    private final Bounds v6 = new Bounds();
+
+    @Override
+    public byte getSectionType() {
+        return IPColumnIndexSupplier.SUMMARY;
+    }
+
+    @Override
+    public void add(int rowNum, IPRangeHandler value) {
+        v4.rowSeen = false;
+        v6.rowSeen = false;
+        value.forEachRange((ipv6, lowerHi, lowerLo, upperHi, upperLo) ->
+                (ipv6 ? v6 : v4).add(lowerHi, lowerLo, upperHi, upperLo));
+    }
+
+    @Override
+    public void writeTo(WriteOutBytes out) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(2 * IPColumnSummary.VERSION_SIZE);
+        v4.put(buffer);
+        v6.put(buffer);
+        buffer.flip();
+        out.write(buffer);
+    }
+
+    private static final class Bounds {
+        private int rowCount;
+        private boolean rowSeen;
+        private long minHi = -1L;
+        private long minLo = -1L;
+        private long maxHi;
+        private long maxLo;
+
+        private void add(long lowerHi, long lowerLo, long upperHi, long upperLo) {
+            if (!rowSeen) {
+                rowSeen = true;
+                rowCount++;
+            }
+            if (IPAddressBits.compare(lowerHi, lowerLo, minHi, minLo) < 0) {
+                minHi = lowerHi;
+                minLo = lowerLo;
+            }
+            if (IPAddressBits.compare(upperHi, upperLo, maxHi, maxLo) > 0) {
+                maxHi = upperHi;
+                maxLo = upperLo;
+            }
+        }
+
+        private void put(ByteBuffer buffer) {
+            buffer.putInt(rowCount).putLong(minHi).putLong(minLo).putLong(maxHi).putLong(maxLo);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import bi.deep.util.SortedIPAddresses;
+import com.google.common.base.Supplier;
+import inet.ipaddr.IPAddress;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import javax.annotation.Nullable;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.apache.druid.java.util.common.io.smoosh.SmooshedFileMapper;
+import org.apache.druid.query.monomorphicprocessing.RuntimeShapeInspector;
+import org.apache.druid.segment.ColumnValueSelector;
+import org.apache.druid.segment.ObjectColumnSelector;
+import org.apache.druid.segment.column.ComplexColumn;
+import org.apache.druid.segment.data.ColumnarInts;
+import org.apache.druid.segment.data.CompressedVSizeColumnarIntsSupplier;
+import org.apache.druid.segment.data.ObjectStrategy;
+import org.apache.druid.segment.data.ReadableOffset;
+import org.apache.druid.segment.vector.ReadableVectorInspector;
+import org.apache.druid.segment.vector.ReadableVectorOffset;
+import org.apache.druid.segment.vector.VectorObjectSelector;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+// Reads the layout written by IPDictionarySerializer, rows with the same id share one decoded value
+public class IPDictionaryColumn<T extends IPRangeHandler> implements ComplexColumn {
+    private final String typeName;
+    private final Class<T> clazz;
+    private final int rowCount;
+    private final List<T> dictionary;
+    private final Supplier<ColumnarInts> idsSupplier;
+    private final ColumnarInts ids;
+    private final ByteBuffer bitmaps;
+
+    private IPDictionaryColumn(
+            String typeName,
+            Class<T> clazz,
+            int rowCount,
+            List<T> dictionary,
+            Supplier<ColumnarInts> idsSupplier,
+            ByteBuffer bitmaps) {
+        this.typeName = typeName;
+        this.clazz = clazz;
+        this.rowCount = rowCount;
+        this.dictionary = dictionary;
+        this.idsSupplier = idsSupplier;
+        this.ids = idsSupplier.get();
+        this.bitmaps = bitmaps;
+    }
+
+    public static boolean isDictionary(ByteBuffer buffer) {
+        return buffer.remaining() > 0 && buffer.get(buffer.position()) == IPDictionarySerializer.LAYOUT;
+    }
+
+    // Leaves the buffer positioned after the column values
+    public static <T extends IPRangeHandler> IPDictionaryColumn<T> read(
+            ByteBuffer buffer, String typeName, ObjectStrategy<T> strategy, @Nullable SmooshedFileMapper fileMapper) {
+        buffer.get();
+        final int rowCount = buffer.getInt();
+        final int cardinality = buffer.getInt();
+        final int valuesStart = buffer.position() + cardinality * Integer.BYTES;
+        final List<T> dictionary = new ArrayList<>(cardinality);
+
+        int start = 0;
+        for (int i = 0; i < cardinality; i++) {
+            final int end = buffer.getInt();
+            final ByteBuffer value = buffer.duplicate();
+            value.position(valuesStart + start);
+            dictionary.add(strategy.fromByteBuffer(value, end - start));
+            start = end;
+        }
+
+        buffer.position(valuesStart + start);
+        final Supplier<ColumnarInts> ids = CompressedVSizeColumnarIntsSupplier.fromByteBuffer(
+                IPRangeColumnarSerializer.readPart(buffer), IPRangeColumnarSerializer.ORDER, fileMapper);
+
+        final ByteBuffer bitmaps = buffer.slice();
+        final int bitmapsEnd = cardinality == 0 ? 0 : bitmaps.getInt((cardinality - 1) * Integer.BYTES);
+        bitmaps.limit(cardinality * Integer.BYTES + bitmapsEnd);
+        buffer.position(buffer.position() + bitmaps.limit());
+
+        return new IPDictionaryColumn<>(
+                typeName, strategy.getClazz(), rowCount, Collections.unmodifiableList(dictionary), ids, bitmaps);
+    }
+
+    // Block caches are not shared, every reader of the column gets its own instance
+    public IPDictionaryColumn<T> duplicate() {
+        return new IPDictionaryColumn<>(typeName, clazz, rowCount, dictionary, idsSupplier, bitmaps);
+    }
+
+    public int getCardinality() {
+        return dictionary.size();
+    }
+
+    public IPRowIndex getRowIndex() {
+        return new DictionaryRowIndex();
+    }
+
+    // Rows holding the id-th value, id 1 being the first dictionary entry
+    private ImmutableRoaringBitmap bitmap(int id) {
+        final int cardinality = dictionary.size();
+        final int start = id == 1 ? 0 : bitmaps.getInt((id - 2) * Integer.BYTES);
+        final ByteBuffer bitmap = bitmaps.duplicate();
+        bitmap.position(cardinality * Integer.BYTES + start);
+        bitmap.limit(cardinality * Integer.BYTES + bitmaps.getInt((id - 1) * Integer.BYTES));
+        return new ImmutableRoaringBitmap(bitmap.slice());
+    }
+
+    @Override
+    public Class<?> getClazz() {
+        return clazz;
+    }
+
+    @Override
+    public String getTypeName() {
+        return typeName;
+    }
+
+    @Nullable
+    @Override
+    public Object getRowValue(int rowNum) {
+        return lookupId(ids.get(rowNum));
+    }
+
+    @Override
+    public int getLength() {
+        return rowCount;
+    }
+
+    @Override
+    public ColumnValueSelector<?> makeColumnValueSelector(ReadableOffset offset) {
+        return new DictionarySelector(offset);
+    }
+
+    @Override
+    public VectorObjectSelector makeVectorObjectSelector(ReadableVectorOffset offset) {
+        return new DictionaryVectorSelector(offset);
+    }
+
+    @Nullable
+    private T lookupId(int id) {
+        return id == 0 ? null : dictionary.get(id - 1);
+    }
+
+    @Override
+    public void close() {
+        try {
+            ids.close();
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    // Every dictionary value is matched once against the addresses, rows then come from the bitmaps of the matches
+    private final class DictionaryRowIndex implements IPRowIndex {
+        @Override
+        public void search(IPAddress address, MutableBitmap rows) {
+            search(SortedIPAddresses.of(Collections.singletonList(address)), rows);
+        }
+
+        @Override
+        public void search(SortedSet<IPAddress> addresses, MutableBitmap rows) {
+            search(SortedIPAddresses.of(addresses), rows);
+        }
+
+        private void search(SortedIPAddresses addresses, MutableBitmap rows) {
+            for (int id = 1; id <= dictionary.size(); id++) {
+                if (dictionary.get(id - 1).contains(addresses)) {
+                    final IntIterator iterator = bitmap(id).getIntIterator();
+                    while (iterator.hasNext()) {
+                        rows.add(iterator.next());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int estimatedComputeCost(SortedSet<IPAddress> addresses) {
+            return dictionary.size();
+        }
+    }
+
+    private final class DictionarySelector extends ObjectColumnSelector<T> implements IPDictionarySelector {
+        private final ReadableOffset offset;
+
+        private DictionarySelector(ReadableOffset offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public int getCardinality() {
+            return dictionary.size();
+        }
+
+        @Override
+        public int getRowId() {
+            return ids.get(offset.getOffset());
+        }
+
+        @Nullable
+        @Override
+        public T lookupId(int id) {
+            return IPDictionaryColumn.this.lookupId(id);
+        }
+
+        @Nullable
+        @Override
+        public T getObject() {
+            return lookupId(getRowId());
+        }
+
+        @Override
+        public Class<? extends T> classOfObject() {
+            return clazz;
+        }
+
+        @Override
+        public void inspectRuntimeShape(RuntimeShapeInspector inspector) {
+            inspector.visit("ids", ids);
+            inspector.visit("offset", offset);
+        }
+    }
+
+    private final class DictionaryVectorSelector implements IPDictionaryVectorSelector {
+        private final ReadableVectorOffset offset;
+        private final int[] rowIds;
+        private final Object[] vector;
+        private int rowIdsId = ReadableVectorInspector.NULL_ID;
+        private int vectorId = ReadableVectorInspector.NULL_ID;
+
+        private DictionaryVectorSelector(ReadableVectorOffset offset) {
+            this.offset = offset;
+            this.rowIds = new int[offset.getMaxVectorSize()];
+            this.vector = new Object[offset.getMaxVectorSize()];
+        }
+
+        @Override
+        public int getCardinality() {
+            return dictionary.size();
+        }
+
+        @Override
+        public int[] getRowIdVector() {
+            if (rowIdsId != offset.getId()) {
+                rowIdsId = offset.getId();
+
+                if (offset.isContiguous()) {
+                    ids.get(rowIds, offset.getStartOffset(), offset.getCurrentVectorSize());
+                } else {
+                    ids.get(rowIds, offset.getOffsets(), offset.getCurrentVectorSize());
+                }
+            }
+
+            return rowIds;
+        }
+
+        @Nullable
+        @Override
+        public T lookupId(int id) {
+            return IPDictionaryColumn.this.lookupId(id);
+        }
+
+        @Override
+        public Object[] getObjectVector() {
+            if (vectorId != offset.getId()) {
+                vectorId = offset.getId();
+                final int[] rowIdVector = getRowIdVector();
+
+                for (int i = 0; i < offset.getCurrentVectorSize(); i++) {
+                    vector[i] = lookupId(rowIdVector[i]);
+                }
+            }
+
+            return vector;
+        }
+
+        @Override
+        public int getMaxVectorSize() {
+            return offset.getMaxVectorSize();
+        }
+
+        @Override
+        public int getCurrentVectorSize() {
+            return offset.getCurrentVectorSize();
+        }
+    }
+}
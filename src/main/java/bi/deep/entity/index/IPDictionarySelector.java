@@ -0,0 +1,30 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import javax.annotation.Nullable;
+
+// Selector over a dictionary encoded column, matchers read the row ids and evaluate every distinct value only once
+public interface IPDictionarySelector {
+    int getCardinality();
+
+    // Id 0 is a null row, id i the i-th dictionary value
+    int getRowId();
+
+    @Nullable
+    IPRangeHandler lookupId(int id);
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.druid.java.util.common.StringUtils;
+import org.apache.druid.java.util.common.io.smoosh.FileSmoosher;
+import org.apache.druid.segment.ColumnValueSelector;
+import org.apache.druid.segment.GenericColumnSerializer;
+import org.apache.druid.segment.data.CompressedVSizeColumnarIntsSerializer;
+import org.apache.druid.segment.data.CompressionStrategy;
+import org.apache.druid.segment.data.GenericIndexedWriter;
+import org.apache.druid.segment.data.ObjectStrategy;
+import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+// [LAYOUT][rowCount][dictionarySize][end offset of each value][sorted distinct values in the compact encoding], then
+// [length] and the dictionary ids of the rows as a Druid compressed int column, then [end offset of each bitmap] and
+// the roaring bitmap of the rows holding each value. Id 0 is a null row, id i the i-th value. Columns with more than
+// maxCardinality distinct values are written in the plain layout instead, so the dictionary never grows unbounded.
+public class IPDictionarySerializer<T extends IPRangeHandler & Comparable<T>> implements GenericColumnSerializer<T> {
+    // GenericIndexed values start with version 1 or 2 and the columnar layout with 0x10
+    public static final byte LAYOUT = 0x11;
+    public static final int MAX_CARDINALITY = 1 << 16;
+    static final int HEADER_SIZE = Byte.BYTES + 2 * Integer.BYTES;
+
+    private final SegmentWriteOutMedium segmentWriteOutMedium;
+    private final String filenameBase;
+    private final ObjectStrategy<T> strategy;
+    private final int maxCardinality;
+    private final Object2IntOpenHashMap<T> insertionIds = new Object2IntOpenHashMap<>();
+    private final List<T> values = new ArrayList<>();
+    private WriteOutBytes rowInsertionIds;
+    private int rowCount;
+
+    @Nullable
+    private GenericIndexedWriter<T> plainValues;
+
+    @Nullable
+    private Dictionary dictionary;
+
+    public IPDictionarySerializer(
+            SegmentWriteOutMedium segmentWriteOutMedium, String filenameBase, ObjectStrategy<T> strategy) {
+        this(segmentWriteOutMedium, filenameBase, strategy, MAX_CARDINALITY);
+    }
+
+    IPDictionarySerializer(
+            SegmentWriteOutMedium segmentWriteOutMedium,
+            String filenameBase,
+            ObjectStrategy<T> strategy,
+            int maxCardinality) {
+        this.segmentWriteOutMedium = segmentWriteOutMedium;
+        this.filenameBase = filenameBase;
+        this.strategy = strategy;
+        this.maxCardinality = maxCardinality;
+    }
+
+    @Override
+    public void open() throws IOException {
+        rowInsertionIds = segmentWriteOutMedium.makeWriteOutBytes();
+    }
+
+    // Ids follow first appearance until all rows are seen, then they are remapped to the sorted dictionary
+    @Override
+    public void serialize(ColumnValueSelector<? extends T> selector) throws IOException {
+        final T value = selector.getObject();
+
+        if (plainValues != null) {
+            plainValues.write(value);
+            return;
+        }
+
+        int id = 0;
+
+        if (value != null && !value.isEmpty()) {
+            id = insertionIds.getInt(value);
+
+            if (id == 0) {
+                if (values.size() == maxCardinality) {
+                    switchToPlainValues();
+                    plainValues.write(value);
+                    return;
+                }
+
+                values.add(value);
+                id = values.size();
+                insertionIds.put(value, id);
+            }
+        }
+
+        rowInsertionIds.writeInt(id);
+        rowCount++;
+    }
+
+    // Rewrites the rows seen so far in the plain layout and drops the dictionary
+    private void switchToPlainValues() throws IOException {
+        plainValues = new GenericIndexedWriter<>(
+                segmentWriteOutMedium, StringUtils.format("%s.complex_column", filenameBase), strategy);
+        plainValues.open();
+
+        try (InputStream stream = rowInsertionIds.asInputStream();
+                DataInputStream in = new DataInputStream(stream)) {
+            for (int row = 0; row < rowCount; row++) {
+                final int id = in.readInt();
+                plainValues.write(id == 0 ? null : values.get(id - 1));
+            }
+        }
+
+        insertionIds.clear();
+        insertionIds.trim();
+        values.clear();
+    }
+
+    @Override
+    public long getSerializedSize() throws IOException {
+        if (plainValues != null) {
+            return plainValues.getSerializedSize();
+        }
+
+        return finish().getSerializedSize();
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel, FileSmoosher smoosher) throws IOException {
+        if (plainValues != null) {
+            plainValues.writeTo(channel, smoosher);
+        } else {
+            finish().writeTo(channel, smoosher);
+        }
+    }
+
+    private Dictionary finish() throws IOException {
+        if (dictionary == null) {
+            dictionary = new Dictionary();
+        }
+
+        return dictionary;
+    }
+
+    private final class Dictionary {
+        private final IntArrayList valueEnds = new IntArrayList();
+        private final WriteOutBytes encodedValues = segmentWriteOutMedium.makeWriteOutBytes();
+        private final CompressedVSizeColumnarIntsSerializer rowIds;
+        private final MutableRoaringBitmap[] bitmaps;
+        private final int bitmapsSize;
+
+        private Dictionary() throws IOException {
+            final List<T> sorted = new ArrayList<>(values);
+            sorted.sort(null);
+
+            final int[] sortedIds = new int[sorted.size() + 1];
+            for (int i = 0; i < sorted.size(); i++) {
+                sortedIds[insertionIds.getInt(sorted.get(i))] = i + 1;
+                encodedValues.write(sorted.get(i).toBytes(true));
+                valueEnds.add(Math.toIntExact(encodedValues.size()));
+            }
+
+            rowIds = CompressedVSizeColumnarIntsSerializer.create(
+                    filenameBase,
+                    segmentWriteOutMedium,
+                    StringUtils.format("%s.ids", filenameBase),
+                    sorted.size(),
+                    CompressionStrategy.LZ4,
+                    segmentWriteOutMedium.getCloser());
+            rowIds.open();
+
+            bitmaps = new MutableRoaringBitmap[sorted.size()];
+            for (int i = 0; i < bitmaps.length; i++) {
+                bitmaps[i] = new MutableRoaringBitmap();
+            }
+
+            try (InputStream stream = rowInsertionIds.asInputStream();
+                    DataInputStream in = new DataInputStream(stream)) {
+                for (int row = 0; row < rowCount; row++) {
+                    final int id = sortedIds[in.readInt()];
+                    rowIds.addValue(id);
+
+                    if (id != 0) {
+                        bitmaps[id - 1].add(row);
+                    }
+                }
+            }
+
+            int size = 0;
+            for (MutableRoaringBitmap bitmap : bitmaps) {
+                bitmap.runOptimize();
+                size += bitmap.serializedSizeInBytes();
+            }
+            bitmapsSize = size;
+        }
+
+        private long getSerializedSize() throws IOException {
+            return HEADER_SIZE
+                    + (long) valueEnds.size() * Integer.BYTES
+                    + encodedValues.size()
+                    + Integer.BYTES
+                    + rowIds.getSerializedSize()
+                    + (long) bitmaps.length * Integer.BYTES
+                    + bitmapsSize;
+        }
+
+        private void writeTo(WritableByteChannel channel, FileSmoosher smoosher) throws IOException {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + valueEnds.size() * Integer.BYTES);
+            header.put(LAYOUT).putInt(rowCount).putInt(valueEnds.size());
+            valueEnds.forEach(header::putInt);
+            header.flip();
+            channel.write(header);
+            encodedValues.writeTo(channel);
+
+            IPRangeColumnarSerializer.writePart(rowIds, channel, smoosher);
+
+            final ByteBuffer bitmapData = ByteBuffer.allocate(bitmaps.length * Integer.BYTES + bitmapsSize);
+            int end = 0;
+            for (MutableRoaringBitmap bitmap : bitmaps) {
+                end += bitmap.serializedSizeInBytes();
+                bitmapData.putInt(end);
+            }
+            for (MutableRoaringBitmap bitmap : bitmaps) {
+                bitmap.serialize(bitmapData);
+            }
+            bitmapData.flip();
+            channel.write(bitmapData);
+        }
+    }
+}
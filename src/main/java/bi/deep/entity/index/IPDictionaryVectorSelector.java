@@ -0,0 +1,31 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import javax.annotation.Nullable;
+import org.apache.druid.segment.vector.VectorObjectSelector;
+
+// Vector selector over a dictionary encoded column, with the row ids of the current vector next to its values
+public interface IPDictionaryVectorSelector extends VectorObjectSelector {
+    int getCardinality();
+
+    // Id 0 is a null row, id i the i-th dictionary value
+    int[] getRowIdVector();
+
+    @Nullable
+    IPRangeHandler lookupId(int id);
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import java.io.IOException;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+
+public interface IPIndexWriter {
+    byte getSectionType();
+
+    void add(int rowNum, IPRangeHandler value);
+
+    void writeTo(WriteOutBytes out) throws IOException;
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.util.IPAddressBits;
+import inet.ipaddr.IPAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+// Bloom filter over the IPv4 /24 and IPv6 /48 prefixes covered by the stored ranges, [hashCount][wordCount][words].
+// No words means the ranges covered too many prefixes to keep, every address may then be contained.
+public final class IPPrefixBloomFilter {
+    static final int IPV4_PREFIX_SHIFT = Integer.SIZE - 24;
+    static final int IPV6_PREFIX_SHIFT = Long.SIZE - 48;
+    static final long IPV6_KEY = 1L << 48;
+
+    private final ByteBuffer buffer;
+    private final int hashCount;
+    private final int wordCount;
+
+    private IPPrefixBloomFilter(ByteBuffer buffer, int hashCount, int wordCount) {
+        this.buffer = buffer;
+        this.hashCount = hashCount;
+        this.wordCount = wordCount;
+    }
+
+    public static IPPrefixBloomFilter read(ByteBuffer buffer) {
+        final int hashCount = buffer.get();
+        final int wordCount = buffer.getInt();
+        return new IPPrefixBloomFilter(buffer.slice(), hashCount, wordCount);
+    }
+
+    public boolean mayContain(Collection<IPAddress> addresses) {
+        if (wordCount == 0) {
+            return true;
+        }
+
+        for (IPAddress address : addresses) {
+            final long key = address.isIPv4()
+                    ? ipv4Key(IPAddressBits.lo(address))
+                    : ipv6Key(IPAddressBits.hi(address));
+
+            if (mayContain(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean mayContain(long key) {
+        final long hash = hash(key);
+        final long mask = (long) wordCount * Long.SIZE - 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = bit(hash, i, mask);
+            if ((buffer.getLong((int) (bit >>> 6) * Long.BYTES) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static long ipv4Key(long lo) {
+        return lo >>> IPV4_PREFIX_SHIFT;
+    }
+
+    static long ipv6Key(long hi) {
+        return IPV6_KEY | (hi >>> IPV6_PREFIX_SHIFT);
+    }
+
+    // Double hashing over the two halves of a 64 bit mix, the bit count is a power of two
+    static long bit(long hash, int i, long mask) {
+        return ((hash & 0xFFFFFFFFL) + i * (hash >>> 32)) & mask;
+    }
+
+    static long hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
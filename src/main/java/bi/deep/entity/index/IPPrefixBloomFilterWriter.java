@@ -0,0 +1,92 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+
+public class IPPrefixBloomFilterWriter implements IPIndexWriter {
+    static final int MAX_PREFIXES = 1 << 22;
+    static final int BITS_PER_PREFIX = 10;
+    static final int HASH_COUNT = 7;
+
+    private final LongOpenHashSet prefixes = new LongOpenHashSet();
+    private boolean saturated;
+
+    @Override
+    public byte getSectionType() {
+        return IPColumnIndexSupplier.BLOOM_FILTER;
+    }
+
+    @Override
+    public void add(int rowNum, IPRangeHandler value) {
+        value.forEachRange((ipv6, lowerHi, lowerLo, upperHi, upperLo) -> {
+            if (ipv6) {
+                add(IPPrefixBloomFilter.ipv6Key(lowerHi), IPPrefixBloomFilter.ipv6Key(upperHi));
+            } else {
+                add(IPPrefixBloomFilter.ipv4Key(lowerLo), IPPrefixBloomFilter.ipv4Key(upperLo));
+            }
+        });
+    }
+
+    private void add(long first, long last) {
+        if (saturated) {
+            return;
+        }
+
+        // Wide ranges would blow up the filter, it is dropped once the prefixes exceed the limit
+        if (last - first >= MAX_PREFIXES - prefixes.size()) {
+            saturated = true;
+            prefixes.clear();
+            prefixes.trim();
+            return;
+        }
+
+        for (long key = first; key <= last; key++) {
+            prefixes.add(key);
+        }
+    }
+
+    @Override
+    public void writeTo(WriteOutBytes out) throws IOException {
+        final int minWords = Math.max(1, (prefixes.size() * BITS_PER_PREFIX + Long.SIZE - 1) / Long.SIZE);
+        final int wordCount = saturated ? 0 : Integer.highestOneBit(2 * minWords - 1);
+        final long[] words = new long[wordCount];
+        final long mask = (long) wordCount * Long.SIZE - 1;
+
+        for (LongIterator it = prefixes.iterator(); it.hasNext(); ) {
+            final long hash = IPPrefixBloomFilter.hash(it.nextLong());
+
+            for (int i = 0; i < HASH_COUNT; i++) {
+                final long bit = IPPrefixBloomFilter.bit(hash, i, mask);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(Byte.BYTES + Integer.BYTES + wordCount * Long.BYTES);
+        buffer.put((byte) HASH_COUNT).putInt(wordCount);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+
+        buffer.flip();
+        out.write(buffer);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static bi.deep.entity.index.IPRangeColumnarSerializer.IPV4_ROW;
+import static bi.deep.entity.index.IPRangeColumnarSerializer.IPV6_ROW;
+import static bi.deep.entity.index.IPRangeColumnarSerializer.ORDER;
+import static bi.deep.entity.index.IPRangeColumnarSerializer.readPart;
+
+import bi.deep.entity.dimension.IPRange;
+import bi.deep.guice.IPRangeDimensionModule;
+import com.google.common.base.Supplier;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.druid.java.util.common.io.Closer;
+import org.apache.druid.java.util.common.io.smoosh.SmooshedFileMapper;
+import org.apache.druid.segment.column.ComplexColumn;
+import org.apache.druid.segment.data.ColumnarInts;
+import org.apache.druid.segment.data.ColumnarLongs;
+import org.apache.druid.segment.data.CompressedColumnarLongsSupplier;
+import org.apache.druid.segment.data.CompressedVSizeColumnarIntsSupplier;
+import org.apache.druid.segment.vector.ReadableVectorInspector;
+import org.apache.druid.segment.vector.ReadableVectorOffset;
+import org.apache.druid.segment.vector.VectorObjectSelector;
+
+// Reads the layout written by IPRangeColumnarSerializer, each instance keeps the last decompressed block of every part
+public class IPRangeColumnarColumn implements ComplexColumn {
+    private static final long IPV4_BOUND_MASK = 0xFFFFFFFFL;
+
+    private final int rowCount;
+    private final Parts parts;
+    private final ColumnarInts kinds;
+    private final ColumnarLongs values;
+    private final ColumnarLongs lowerHi;
+    private final ColumnarLongs lowerLo;
+    private final ColumnarLongs upperHi;
+    private final ColumnarLongs upperLo;
+
+    private IPRangeColumnarColumn(int rowCount, Parts parts) {
+        this.rowCount = rowCount;
+        this.parts = parts;
+        this.kinds = parts.kinds.get();
+        this.values = parts.values.get();
+        this.lowerHi = parts.lowerHi.get();
+        this.lowerLo = parts.lowerLo.get();
+        this.upperHi = parts.upperHi.get();
+        this.upperLo = parts.upperLo.get();
+    }
+
+    public static boolean isColumnar(ByteBuffer buffer) {
+        return buffer.remaining() > 0 && buffer.get(buffer.position()) == IPRangeColumnarSerializer.LAYOUT;
+    }
+
+    // Leaves the buffer positioned after the column values
+    public static IPRangeColumnarColumn read(ByteBuffer buffer, @Nullable SmooshedFileMapper fileMapper) {
+        buffer.get();
+        final int rowCount = buffer.getInt();
+
+        return new IPRangeColumnarColumn(
+                rowCount,
+                new Parts(
+                        CompressedVSizeColumnarIntsSupplier.fromByteBuffer(readPart(buffer), ORDER, fileMapper),
+                        longs(buffer, fileMapper),
+                        longs(buffer, fileMapper),
+                        longs(buffer, fileMapper),
+                        longs(buffer, fileMapper),
+                        longs(buffer, fileMapper)));
+    }
+
+    private static Supplier<ColumnarLongs> longs(ByteBuffer buffer, @Nullable SmooshedFileMapper fileMapper) {
+        return CompressedColumnarLongsSupplier.fromByteBuffer(readPart(buffer), ORDER, fileMapper);
+    }
+
+    // Block caches are not shared, every reader of the column gets its own instance
+    public IPRangeColumnarColumn duplicate() {
+        return new IPRangeColumnarColumn(rowCount, parts);
+    }
+
+    @Override
+    public Class<?> getClazz() {
+        return IPRange.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return IPRangeDimensionModule.TYPE_NAME;
+    }
+
+    @Nullable
+    @Override
+    public Object getRowValue(int rowNum) {
+        final int kind = kinds.get(rowNum);
+
+        if (kind == IPV4_ROW) {
+            return ipv4(values.get(rowNum));
+        } else if (kind == IPV6_ROW) {
+            final int ipv6Row = (int) values.get(rowNum);
+            return new IPRange(
+                    true, lowerHi.get(ipv6Row), lowerLo.get(ipv6Row), upperHi.get(ipv6Row), upperLo.get(ipv6Row));
+        }
+
+        return null;
+    }
+
+    private static IPRange ipv4(long bounds) {
+        return new IPRange(false, 0L, bounds >>> Integer.SIZE, 0L, bounds & IPV4_BOUND_MASK);
+    }
+
+    @Override
+    public int getLength() {
+        return rowCount;
+    }
+
+    @Override
+    public VectorObjectSelector makeVectorObjectSelector(ReadableVectorOffset offset) {
+        return new BlockVectorSelector(offset);
+    }
+
+    @Override
+    public void close() {
+        final Closer closer = Closer.create();
+        closer.registerAll(List.of(kinds, values, lowerHi, lowerLo, upperHi, upperLo));
+
+        try {
+            closer.close();
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    private static final class Parts {
+        private final Supplier<ColumnarInts> kinds;
+        private final Supplier<ColumnarLongs> values;
+        private final Supplier<ColumnarLongs> lowerHi;
+        private final Supplier<ColumnarLongs> lowerLo;
+        private final Supplier<ColumnarLongs> upperHi;
+        private final Supplier<ColumnarLongs> upperLo;
+
+        private Parts(
+                Supplier<ColumnarInts> kinds,
+                Supplier<ColumnarLongs> values,
+                Supplier<ColumnarLongs> lowerHi,
+                Supplier<ColumnarLongs> lowerLo,
+                Supplier<ColumnarLongs> upperHi,
+                Supplier<ColumnarLongs> upperLo) {
+            this.kinds = kinds;
+            this.values = values;
+            this.lowerHi = lowerHi;
+            this.lowerLo = lowerLo;
+            this.upperHi = upperHi;
+            this.upperLo = upperLo;
+        }
+    }
+
+    // Reads the kinds and values of a whole vector with bulk gets, then the bounds of its IPv6 rows in one more pass
+    private final class BlockVectorSelector implements VectorObjectSelector {
+        private final ReadableVectorOffset offset;
+        private final Object[] vector;
+        private final int[] kindVector;
+        private final long[] valueVector;
+        private final int[] ipv6Rows;
+        private final long[] lowerHiVector;
+        private final long[] lowerLoVector;
+        private final long[] upperHiVector;
+        private final long[] upperLoVector;
+        private int id = ReadableVectorInspector.NULL_ID;
+
+        private BlockVectorSelector(ReadableVectorOffset offset) {
+            final int maxVectorSize = offset.getMaxVectorSize();
+            this.offset = offset;
+            this.vector = new Object[maxVectorSize];
+            this.kindVector = new int[maxVectorSize];
+            this.valueVector = new long[maxVectorSize];
+            this.ipv6Rows = new int[maxVectorSize];
+            this.lowerHiVector = new long[maxVectorSize];
+            this.lowerLoVector = new long[maxVectorSize];
+            this.upperHiVector = new long[maxVectorSize];
+            this.upperLoVector = new long[maxVectorSize];
+        }
+
+        @Override
+        public Object[] getObjectVector() {
+            if (id == offset.getId()) {
+                return vector;
+            }
+
+            id = offset.getId();
+            final int size = offset.getCurrentVectorSize();
+
+            if (offset.isContiguous()) {
+                kinds.get(kindVector, offset.getStartOffset(), size);
+                values.get(valueVector, offset.getStartOffset(), size);
+            } else {
+                kinds.get(kindVector, offset.getOffsets(), size);
+                values.get(valueVector, offset.getOffsets(), size);
+            }
+
+            int ipv6Count = 0;
+            for (int i = 0; i < size; i++) {
+                if (kindVector[i] == IPV6_ROW) {
+                    ipv6Rows[ipv6Count++] = (int) valueVector[i];
+                }
+            }
+
+            if (ipv6Count > 0) {
+                lowerHi.get(lowerHiVector, ipv6Rows, ipv6Count);
+                lowerLo.get(lowerLoVector, ipv6Rows, ipv6Count);
+                upperHi.get(upperHiVector, ipv6Rows, ipv6Count);
+                upperLo.get(upperLoVector, ipv6Rows, ipv6Count);
+            }
+
+            for (int i = 0, ipv6 = 0; i < size; i++) {
+                if (kindVector[i] == IPV4_ROW) {
+                    vector[i] = ipv4(valueVector[i]);
+                } else if (kindVector[i] == IPV6_ROW) {
+                    vector[i] = new IPRange(
+                            true, lowerHiVector[ipv6], lowerLoVector[ipv6], upperHiVector[ipv6], upperLoVector[ipv6]);
+                    ipv6++;
+                } else {
+                    vector[i] = null;
+                }
+            }
+
+            return vector;
+        }
+
+        @Override
+        public int getMaxVectorSize() {
+            return offset.getMaxVectorSize();
+        }
+
+        @Override
+        public int getCurrentVectorSize() {
+            return offset.getCurrentVectorSize();
+        }
+    }
+}
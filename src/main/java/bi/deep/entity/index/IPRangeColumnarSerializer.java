@@ -0,0 +1,155 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRange;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import org.apache.druid.java.util.common.StringUtils;
+import org.apache.druid.java.util.common.io.smoosh.FileSmoosher;
+import org.apache.druid.segment.ColumnValueSelector;
+import org.apache.druid.segment.GenericColumnSerializer;
+import org.apache.druid.segment.data.ColumnarLongsSerializer;
+import org.apache.druid.segment.data.CompressedVSizeColumnarIntsSerializer;
+import org.apache.druid.segment.data.CompressionFactory;
+import org.apache.druid.segment.data.CompressionStrategy;
+import org.apache.druid.segment.serde.Serializer;
+import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
+
+// [LAYOUT][rowCount] then [length][part] for the row kinds, the row values and the lowerHi, lowerLo, upperHi and
+// upperLo bounds of IPv6 rows, all Druid compressed int and long columns. The value of an IPv4 row packs both bounds
+// into one long, the value of an IPv6 row is its position in the IPv6 bound parts, so IPv4 rows store no hi halves.
+public class IPRangeColumnarSerializer implements GenericColumnSerializer<IPRange> {
+    // GenericIndexed values start with version 1 or 2, so the first byte tells the layouts apart
+    public static final byte LAYOUT = 0x10;
+    static final int HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int NULL_ROW = 0;
+    static final int IPV4_ROW = 1;
+    static final int IPV6_ROW = 2;
+
+    private final SegmentWriteOutMedium segmentWriteOutMedium;
+    private final String filenameBase;
+    private CompressedVSizeColumnarIntsSerializer kinds;
+    private ColumnarLongsSerializer values;
+    private ColumnarLongsSerializer lowerHi;
+    private ColumnarLongsSerializer lowerLo;
+    private ColumnarLongsSerializer upperHi;
+    private ColumnarLongsSerializer upperLo;
+    private int rowCount;
+    private int ipv6Count;
+
+    public IPRangeColumnarSerializer(SegmentWriteOutMedium segmentWriteOutMedium, String filenameBase) {
+        this.segmentWriteOutMedium = segmentWriteOutMedium;
+        this.filenameBase = filenameBase;
+    }
+
+    @Override
+    public void open() throws IOException {
+        kinds = CompressedVSizeColumnarIntsSerializer.create(
+                filenameBase,
+                segmentWriteOutMedium,
+                StringUtils.format("%s.kinds", filenameBase),
+                IPV6_ROW,
+                CompressionStrategy.LZ4,
+                segmentWriteOutMedium.getCloser());
+        kinds.open();
+        values = openLongs("values");
+        lowerHi = openLongs("lowerHi");
+        lowerLo = openLongs("lowerLo");
+        upperHi = openLongs("upperHi");
+        upperLo = openLongs("upperLo");
+    }
+
+    private ColumnarLongsSerializer openLongs(String part) throws IOException {
+        final ColumnarLongsSerializer serializer = CompressionFactory.getLongSerializer(
+                filenameBase,
+                segmentWriteOutMedium,
+                StringUtils.format("%s.%s", filenameBase, part),
+                ORDER,
+                CompressionFactory.LongEncodingStrategy.LONGS,
+                CompressionStrategy.LZ4,
+                segmentWriteOutMedium.getCloser());
+        serializer.open();
+        return serializer;
+    }
+
+    @Override
+    public void serialize(ColumnValueSelector<? extends IPRange> selector) throws IOException {
+        final IPRange value = selector.getObject();
+
+        if (value == null || value.isEmpty()) {
+            kinds.addValue(NULL_ROW);
+            values.add(0L);
+        } else if (value.isIPv6()) {
+            kinds.addValue(IPV6_ROW);
+            values.add(ipv6Count++);
+            lowerHi.add(value.getLowerHi());
+            lowerLo.add(value.getLowerLo());
+            upperHi.add(value.getUpperHi());
+            upperLo.add(value.getUpperLo());
+        } else {
+            kinds.addValue(IPV4_ROW);
+            values.add(value.getLowerLo() << Integer.SIZE | value.getUpperLo());
+        }
+
+        rowCount++;
+    }
+
+    private Serializer[] parts() {
+        return new Serializer[] {kinds, values, lowerHi, lowerLo, upperHi, upperLo};
+    }
+
+    @Override
+    public long getSerializedSize() throws IOException {
+        long size = HEADER_SIZE;
+        for (Serializer part : parts()) {
+            size += Integer.BYTES + part.getSerializedSize();
+        }
+        return size;
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel, FileSmoosher smoosher) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(LAYOUT).putInt(rowCount);
+        header.flip();
+        channel.write(header);
+
+        for (Serializer part : parts()) {
+            writePart(part, channel, smoosher);
+        }
+    }
+
+    // Druid's column readers do not move the buffer past what they read, so every part is preceded by its length
+    static void writePart(Serializer part, WritableByteChannel channel, FileSmoosher smoosher) throws IOException {
+        final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        length.putInt(Math.toIntExact(part.getSerializedSize()));
+        length.flip();
+        channel.write(length);
+        part.writeTo(channel, smoosher);
+    }
+
+    static ByteBuffer readPart(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        final ByteBuffer part = buffer.slice();
+        part.limit(length);
+        buffer.position(buffer.position() + length);
+        return part;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import inet.ipaddr.IPAddress;
+import java.util.SortedSet;
+import javax.annotation.Nullable;
+import org.apache.druid.collections.bitmap.BitmapFactory;
+import org.apache.druid.segment.index.BitmapColumnIndex;
+
+public interface IPRangeIndexes {
+    // Rows holding at least one range that contains any of the addresses, null when they have to be matched row by row
+    @Nullable
+    BitmapColumnIndex forAddresses(SortedSet<IPAddress> addresses, BitmapFactory bitmapFactory);
+}
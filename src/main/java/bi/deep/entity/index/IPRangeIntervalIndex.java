@@ -0,0 +1,123 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.util.IPAddressBits;
+import inet.ipaddr.IPAddress;
+import java.nio.ByteBuffer;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+
+// Per IP version: entries sorted by lower bound and a max-upper tree over blocks of entries, read in place
+public final class IPRangeIntervalIndex implements IPRowIndex {
+    static final int BLOCK_SIZE = 64;
+    static final int IPV4_WIDTH = Integer.BYTES;
+    static final int IPV6_WIDTH = 2 * Long.BYTES;
+
+    private final Entries v4;
+    private final Entries v6;
+
+    private IPRangeIntervalIndex(Entries v4, Entries v6) {
+        this.v4 = v4;
+        this.v6 = v6;
+    }
+
+    public static IPRangeIntervalIndex read(ByteBuffer buffer) {
+        final Entries v4 = Entries.read(buffer, IPV4_WIDTH);
+        return new IPRangeIntervalIndex(v4, Entries.read(buffer, IPV6_WIDTH));
+    }
+
+    @Override
+    public void search(IPAddress address, MutableBitmap rows) {
+        (address.isIPv4() ? v4 : v6).search(IPAddressBits.hi(address), IPAddressBits.lo(address), rows);
+    }
+
+    private static final class Entries {
+        private final ByteBuffer buffer;
+        private final int width;
+        private final int count;
+        private final int leafCount;
+        private final int uppers;
+        private final int rowIds;
+        private final int tree;
+
+        private Entries(ByteBuffer buffer, int width, int count, int leafCount) {
+            this.buffer = buffer;
+            this.width = width;
+            this.count = count;
+            this.leafCount = leafCount;
+            this.uppers = count * width;
+            this.rowIds = 2 * count * width;
+            this.tree = rowIds + count * Integer.BYTES;
+        }
+
+        private static Entries read(ByteBuffer buffer, int width) {
+            final int count = buffer.getInt();
+            final int leafCount = buffer.getInt();
+            final ByteBuffer data = buffer.slice();
+            buffer.position(buffer.position() + count * (2 * width + Integer.BYTES) + 2 * leafCount * width);
+            return new Entries(data, width, count, leafCount);
+        }
+
+        private void search(long hi, long lo, MutableBitmap rows) {
+            // Only entries starting at or before the address can contain it
+            int low = 0;
+            int high = count;
+
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (compare(0, mid, hi, lo) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            if (low > 0) {
+                visit(1, 0, leafCount - 1, low, hi, lo, rows);
+            }
+        }
+
+        private void visit(int node, int first, int last, int end, long hi, long lo, MutableBitmap rows) {
+            // Skip blocks past the candidates and subtrees whose widest range ends before the address
+            if (first * BLOCK_SIZE >= end || compare(tree, node, hi, lo) < 0) {
+                return;
+            }
+
+            if (first == last) {
+                for (int i = first * BLOCK_SIZE, limit = Math.min(end, i + BLOCK_SIZE); i < limit; i++) {
+                    if (compare(uppers, i, hi, lo) >= 0) {
+                        rows.add(buffer.getInt(rowIds + i * Integer.BYTES));
+                    }
+                }
+                return;
+            }
+
+            final int mid = (first + last) >>> 1;
+            visit(2 * node, first, mid, end, hi, lo, rows);
+            visit(2 * node + 1, mid + 1, last, end, hi, lo, rows);
+        }
+
+        private int compare(int offset, int index, long hi, long lo) {
+            final int position = offset + index * width;
+
+            if (width == IPV4_WIDTH) {
+                return Long.compare(buffer.getInt(position) & 0xFFFFFFFFL, lo);
+            }
+
+            return IPAddressBits.compare(buffer.getLong(position), buffer.getLong(position + Long.BYTES), hi, lo);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static bi.deep.entity.index.IPRangeIntervalIndex.BLOCK_SIZE;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import bi.deep.util.IPAddressBits;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.druid.error.InvalidInput;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+
+public class IPRangeIntervalIndexWriter implements IPIndexWriter {
+    private final Entries v4 = new Entries(IPRangeIntervalIndex.IPV4_WIDTH);
+    private final Entries v6 = new Entries(IPRangeIntervalIndex.IPV6_WIDTH);
+
+    @Override
+    public byte getSectionType() {
+        return IPColumnIndexSupplier.INTERVAL_INDEX;
+    }
+
+    @Override
+    public void add(int rowNum, IPRangeHandler value) {
+        value.forEachRange((ipv6, lowerHi, lowerLo, upperHi, upperLo) ->
+                (ipv6 ? v6 : v4).add(rowNum, lowerHi, lowerLo, upperHi, upperLo));
+    }
+
+    @Override
+    public void writeTo(WriteOutBytes out) throws IOException {
+        final long size = v4.getSerializedSize() + v6.getSerializedSize();
+
+        // Sections are read back as a single buffer
+        if (size > Integer.MAX_VALUE) {
+            throw InvalidInput.exception(
+                    "Interval index of [%,d] ranges needs [%,d] bytes, disable intervalIndex for this column",
+                    v4.rows.size() + v6.rows.size(),
+                    size);
+        }
+
+        final IPSectionWriter section = new IPSectionWriter(out);
+        v4.writeTo(section);
+        v6.writeTo(section);
+        section.flush();
+    }
+
+    private static final class Entries {
+        private final int width;
+        private final LongArrayList lowerHi = new LongArrayList();
+        private final LongArrayList lowerLo = new LongArrayList();
+        private final LongArrayList upperHi = new LongArrayList();
+        private final LongArrayList upperLo = new LongArrayList();
+        private final IntArrayList rows = new IntArrayList();
+
+        private Entries(int width) {
+            this.width = width;
+        }
+
+        private void add(int rowNum, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+            this.lowerHi.add(lowerHi);
+            this.lowerLo.add(lowerLo);
+            this.upperHi.add(upperHi);
+            this.upperLo.add(upperLo);
+            this.rows.add(rowNum);
+        }
+
+        private int getLeafCount() {
+            final int blockCount = (rows.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            return blockCount == 0 ? 0 : Integer.highestOneBit(2 * blockCount - 1);
+        }
+
+        private long getSerializedSize() {
+            return 2L * Integer.BYTES + (long) rows.size() * (2 * width + Integer.BYTES) + 2L * getLeafCount() * width;
+        }
+
+        private void writeTo(IPSectionWriter section) throws IOException {
+            final int count = rows.size();
+            final int leafCount = getLeafCount();
+            final int[] order = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+
+            IntArrays.quickSort(order, (a, b) -> IPAddressBits.compare(
+                    lowerHi.getLong(a), lowerLo.getLong(a), lowerHi.getLong(b), lowerLo.getLong(b)));
+
+            // Leaves hold the highest upper bound of their block, inner nodes the highest of their children
+            final long[] treeHi = new long[2 * leafCount];
+            final long[] treeLo = new long[2 * leafCount];
+
+            for (int i = 0; i < count; i++) {
+                final int node = leafCount + i / BLOCK_SIZE;
+                final long hi = upperHi.getLong(order[i]);
+                final long lo = upperLo.getLong(order[i]);
+
+                if (IPAddressBits.compare(hi, lo, treeHi[node], treeLo[node]) > 0) {
+                    treeHi[node] = hi;
+                    treeLo[node] = lo;
+                }
+            }
+
+            for (int node = leafCount - 1; node > 0; node--) {
+                final int left = 2 * node;
+                final boolean leftIsMax =
+                        IPAddressBits.compare(treeHi[left], treeLo[left], treeHi[left + 1], treeLo[left + 1]) >= 0;
+                final int max = leftIsMax ? left : left + 1;
+                treeHi[node] = treeHi[max];
+                treeLo[node] = treeLo[max];
+            }
+
+            section.reserve(2 * Integer.BYTES).putInt(count).putInt(leafCount);
+
+            for (int index : order) {
+                put(section, lowerHi.getLong(index), lowerLo.getLong(index));
+            }
+            for (int index : order) {
+                put(section, upperHi.getLong(index), upperLo.getLong(index));
+            }
+            for (int index : order) {
+                section.reserve(Integer.BYTES).putInt(rows.getInt(index));
+            }
+            for (int node = 0; node < 2 * leafCount; node++) {
+                put(section, treeHi[node], treeLo[node]);
+            }
+        }
+
+        private void put(IPSectionWriter section, long hi, long lo) throws IOException {
+            final ByteBuffer chunk = section.reserve(width);
+
+            if (width == IPRangeIntervalIndex.IPV4_WIDTH) {
+                chunk.putInt((int) lo);
+            } else {
+                chunk.putLong(hi).putLong(lo);
+            }
+        }
+    }
+}
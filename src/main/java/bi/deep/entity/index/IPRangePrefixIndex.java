@@ -0,0 +1,141 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.util.IPAddressBits;
+import inet.ipaddr.IPAddress;
+import java.nio.ByteBuffer;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+// Per IP version: row bitmaps keyed by prefix block, sorted by prefix length and network, read in place
+public final class IPRangePrefixIndex implements IPRowIndex {
+    private final Blocks v4;
+    private final Blocks v6;
+
+    private IPRangePrefixIndex(Blocks v4, Blocks v6) {
+        this.v4 = v4;
+        this.v6 = v6;
+    }
+
+    public static IPRangePrefixIndex read(ByteBuffer buffer) {
+        final Blocks v4 = Blocks.read(buffer, IPAddressBits.IPV4_BITS);
+        return new IPRangePrefixIndex(v4, Blocks.read(buffer, IPAddressBits.IPV6_BITS));
+    }
+
+    @Override
+    public void search(IPAddress address, MutableBitmap rows) {
+        (address.isIPv4() ? v4 : v6).search(IPAddressBits.hi(address), IPAddressBits.lo(address), rows);
+    }
+
+    private static final class Blocks {
+        private final ByteBuffer buffer;
+        private final int bits;
+        private final int width;
+        private final byte[] prefixLengths;
+        private final int[] starts;
+        private final int count;
+        private final int offsets;
+        private final int bitmaps;
+
+        private Blocks(ByteBuffer buffer, int bits, byte[] prefixLengths, int[] starts, int count) {
+            this.buffer = buffer;
+            this.bits = bits;
+            this.width = IPRangePrefixIndexWriter.width(bits);
+            this.prefixLengths = prefixLengths;
+            this.starts = starts;
+            this.count = count;
+            this.offsets = count * width;
+            this.bitmaps = offsets + (count + 1) * Integer.BYTES;
+        }
+
+        private static Blocks read(ByteBuffer buffer, int bits) {
+            final int lengthCount = buffer.getInt();
+            final byte[] prefixLengths = new byte[lengthCount];
+            final int[] starts = new int[lengthCount + 1];
+
+            for (int i = 0; i < lengthCount; i++) {
+                prefixLengths[i] = buffer.get();
+                starts[i] = buffer.getInt();
+            }
+
+            final int count = buffer.getInt();
+            starts[lengthCount] = count;
+
+            final ByteBuffer data = buffer.slice();
+            final Blocks blocks = new Blocks(data, bits, prefixLengths, starts, count);
+            buffer.position(buffer.position() + blocks.bitmaps + data.getInt(blocks.offsets + count * Integer.BYTES));
+            return blocks;
+        }
+
+        private void search(long hi, long lo, MutableBitmap rows) {
+            // Every stored block containing the address is one of its ancestor networks
+            for (int i = 0; i < prefixLengths.length; i++) {
+                final int prefixLength = prefixLengths[i] & 0xFF;
+                final int index = find(
+                        starts[i],
+                        starts[i + 1],
+                        IPAddressBits.maskHi(bits, hi, prefixLength),
+                        IPAddressBits.maskLo(bits, lo, prefixLength));
+
+                if (index >= 0) {
+                    final IntIterator iterator = bitmap(index).getIntIterator();
+                    while (iterator.hasNext()) {
+                        rows.add(iterator.next());
+                    }
+                }
+            }
+        }
+
+        private int find(int from, int to, long hi, long lo) {
+            int low = from;
+            int high = to - 1;
+
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = compare(mid, hi, lo);
+
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+
+            return -1;
+        }
+
+        private int compare(int index, long hi, long lo) {
+            final int position = index * width;
+
+            if (bits == IPAddressBits.IPV4_BITS) {
+                return Long.compare(buffer.getInt(position) & 0xFFFFFFFFL, lo);
+            }
+
+            return IPAddressBits.compare(buffer.getLong(position), buffer.getLong(position + Long.BYTES), hi, lo);
+        }
+
+        private ImmutableRoaringBitmap bitmap(int index) {
+            final ByteBuffer bitmap = buffer.duplicate();
+            bitmap.position(bitmaps + buffer.getInt(offsets + index * Integer.BYTES));
+            bitmap.limit(bitmaps + buffer.getInt(offsets + (index + 1) * Integer.BYTES));
+            return new ImmutableRoaringBitmap(bitmap.slice());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import bi.deep.util.IPAddressBits;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.druid.error.InvalidInput;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+public class IPRangePrefixIndexWriter implements IPIndexWriter {
+    static final int MAX_BLOCKS = 1 << 20;
+
+    private final int maxBlocks;
+    private final Map<Block, MutableRoaringBitmap> v4 = new HashMap<>();
+    private final Map<Block, MutableRoaringBitmap> v6 = new HashMap<>();
+    private boolean saturated;
+
+    public IPRangePrefixIndexWriter() {
+        this(MAX_BLOCKS);
+    }
+
+    IPRangePrefixIndexWriter(int maxBlocks) {
+        this.maxBlocks = maxBlocks;
+    }
+
+    static int width(int bits) {
+        return bits == IPAddressBits.IPV4_BITS ? Integer.BYTES : 2 * Long.BYTES;
+    }
+
+    @Override
+    public byte getSectionType() {
+        return IPColumnIndexSupplier.PREFIX_INDEX;
+    }
+
+    @Override
+    public void add(int rowNum, IPRangeHandler value) {
+        if (saturated) {
+            return;
+        }
+
+        value.forEachRange((ipv6, lowerHi, lowerLo, upperHi, upperLo) -> {
+            final Map<Block, MutableRoaringBitmap> blocks = ipv6 ? v6 : v4;
+            final int bits = ipv6 ? IPAddressBits.IPV6_BITS : IPAddressBits.IPV4_BITS;
+
+            IPAddressBits.forEachPrefixBlock(bits, lowerHi, lowerLo, upperHi, upperLo, (hi, lo, prefixLength) -> blocks
+                    .computeIfAbsent(new Block(prefixLength, hi, lo), block -> new MutableRoaringBitmap())
+                    .add(rowNum));
+        });
+
+        // Too many distinct blocks would hold the heap, the index is dropped and filters read the column instead
+        if (v4.size() + v6.size() > maxBlocks) {
+            saturated = true;
+            v4.clear();
+            v6.clear();
+        }
+    }
+
+    // A saturated index writes nothing, and the column serializer leaves out empty sections
+    @Override
+    public void writeTo(WriteOutBytes out) throws IOException {
+        if (saturated) {
+            return;
+        }
+
+        final List<Block> v4Keys = sortedKeys(v4);
+        final List<Block> v6Keys = sortedKeys(v6);
+        final long size = Math.addExact(
+                getSerializedSize(v4, v4Keys, IPAddressBits.IPV4_BITS),
+                getSerializedSize(v6, v6Keys, IPAddressBits.IPV6_BITS));
+
+        // Sections are read back as a single buffer
+        if (size > Integer.MAX_VALUE) {
+            throw InvalidInput.exception(
+                    "Prefix index of [%,d] blocks needs [%,d] bytes, disable prefixIndex for this column",
+                    v4Keys.size() + v6Keys.size(),
+                    size);
+        }
+
+        final IPSectionWriter section = new IPSectionWriter(out);
+        writeTo(section, v4, v4Keys, IPAddressBits.IPV4_BITS);
+        writeTo(section, v6, v6Keys, IPAddressBits.IPV6_BITS);
+        section.flush();
+    }
+
+    private static List<Block> sortedKeys(Map<Block, MutableRoaringBitmap> blocks) {
+        final List<Block> keys = new ArrayList<>(blocks.keySet());
+        Collections.sort(keys);
+        return keys;
+    }
+
+    // [prefix length count][prefix length, first block]...[block count][blocks][bitmap end offsets][bitmaps]
+    private static long getSerializedSize(Map<Block, MutableRoaringBitmap> blocks, List<Block> keys, int bits) {
+        long size = Math.addExact(2L * Integer.BYTES, Math.multiplyExact((long) keys.size(), width(bits)));
+        size = Math.addExact(size, Math.multiplyExact(keys.size() + 1L, Integer.BYTES));
+
+        for (int i = 0; i < keys.size(); i++) {
+            if (i == 0 || keys.get(i).prefixLength != keys.get(i - 1).prefixLength) {
+                size = Math.addExact(size, Byte.BYTES + Integer.BYTES);
+            }
+
+            final MutableRoaringBitmap bitmap = blocks.get(keys.get(i));
+            bitmap.runOptimize();
+            size = Math.addExact(size, bitmap.serializedSizeInBytes());
+        }
+
+        return size;
+    }
+
+    private static void writeTo(
+            IPSectionWriter section, Map<Block, MutableRoaringBitmap> blocks, List<Block> keys, int bits)
+            throws IOException {
+        final IntArrayList prefixLengths = new IntArrayList();
+        final IntArrayList starts = new IntArrayList();
+
+        for (int i = 0; i < keys.size(); i++) {
+            if (i == 0 || keys.get(i).prefixLength != keys.get(i - 1).prefixLength) {
+                prefixLengths.add(keys.get(i).prefixLength);
+                starts.add(i);
+            }
+        }
+
+        section.reserve(Integer.BYTES).putInt(prefixLengths.size());
+        for (int i = 0; i < prefixLengths.size(); i++) {
+            section.reserve(Byte.BYTES + Integer.BYTES).put((byte) prefixLengths.getInt(i)).putInt(starts.getInt(i));
+        }
+
+        final int width = width(bits);
+        section.reserve(Integer.BYTES).putInt(keys.size());
+        for (Block key : keys) {
+            final ByteBuffer chunk = section.reserve(width);
+            if (width == Integer.BYTES) {
+                chunk.putInt((int) key.lo);
+            } else {
+                chunk.putLong(key.hi).putLong(key.lo);
+            }
+        }
+
+        // The whole section fits in an int, so do the offsets
+        int offset = 0;
+        section.reserve(Integer.BYTES).putInt(offset);
+        for (Block key : keys) {
+            offset += blocks.get(key).serializedSizeInBytes();
+            section.reserve(Integer.BYTES).putInt(offset);
+        }
+
+        for (Block key : keys) {
+            section.write(blocks.get(key));
+        }
+    }
+
+    private static final class Block implements Comparable<Block> {
+        private final int prefixLength;
+        private final long hi;
+        private final long lo;
+
+        private Block(int prefixLength, long hi, long lo) {
+            this.prefixLength = prefixLength;
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        @Override
+        public int compareTo(Block other) {
+            final int cmp = Integer.compare(prefixLength, other.prefixLength);
+            return cmp != 0 ? cmp : IPAddressBits.compare(hi, lo, other.hi, other.lo);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Block)) {
+                return false;
+            }
+
+            final Block that = (Block) o;
+            return prefixLength == that.prefixLength && hi == that.hi && lo == that.lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(prefixLength, hi, lo);
+        }
+    }
+}
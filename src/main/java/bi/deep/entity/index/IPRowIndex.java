@@ -0,0 +1,37 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import inet.ipaddr.IPAddress;
+import java.util.SortedSet;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+
+public interface IPRowIndex {
+    // Adds the rows holding a range that contains the address
+    void search(IPAddress address, MutableBitmap rows);
+
+    // Adds the rows holding a range that contains any of the addresses
+    default void search(SortedSet<IPAddress> addresses, MutableBitmap rows) {
+        for (IPAddress address : addresses) {
+            search(address, rows);
+        }
+    }
+
+    // Reported to the planner, which picks between this index and matching every row
+    default int estimatedComputeCost(SortedSet<IPAddress> addresses) {
+        return addresses.size();
+    }
+}
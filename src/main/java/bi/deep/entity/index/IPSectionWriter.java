@@ -0,0 +1,59 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+// Streams an index section to its output through a fixed size heap buffer
+final class IPSectionWriter {
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final WriteOutBytes out;
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+    IPSectionWriter(WriteOutBytes out) {
+        this.out = out;
+    }
+
+    // The returned buffer has room for the given number of bytes
+    ByteBuffer reserve(int bytes) throws IOException {
+        if (chunk.remaining() < bytes) {
+            flush();
+        }
+        return chunk;
+    }
+
+    void write(MutableRoaringBitmap bitmap) throws IOException {
+        final int size = bitmap.serializedSizeInBytes();
+
+        if (size <= CHUNK_SIZE) {
+            bitmap.serialize(reserve(size));
+        } else {
+            flush();
+            bitmap.serialize(new DataOutputStream(out));
+        }
+    }
+
+    void flush() throws IOException {
+        chunk.flip();
+        out.write(chunk);
+        chunk.clear();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import bi.deep.util.IPAddressBits;
+import bi.deep.util.SortedIPAddresses;
+import com.google.common.base.Supplier;
+import inet.ipaddr.IPAddress;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.nio.ByteBuffer;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.apache.druid.segment.column.ComplexColumn;
+
+// Lowest lower and highest upper bound of each IP version per zone of rows. Only the rows of zones whose span holds
+// a queried address are read from the column and matched, all other zones are skipped without decoding a value.
+public final class IPZoneMapIndex implements IPRowIndex {
+    static final int ZONE_ROWS = 1024;
+    static final int ZONE_SIZE = Byte.BYTES + 2 * Integer.BYTES + 4 * Long.BYTES;
+    static final byte HAS_IPV4 = 1;
+    static final byte HAS_IPV6 = 2;
+
+    private final ByteBuffer buffer;
+    private final int zoneRows;
+    private final int zoneCount;
+    private final Supplier<? extends ComplexColumn> column;
+
+    private IPZoneMapIndex(ByteBuffer buffer, int zoneRows, int zoneCount, Supplier<? extends ComplexColumn> column) {
+        this.buffer = buffer;
+        this.zoneRows = zoneRows;
+        this.zoneCount = zoneCount;
+        this.column = column;
+    }
+
+    public static IPZoneMapIndex read(ByteBuffer buffer, Supplier<? extends ComplexColumn> column) {
+        final int zoneRows = buffer.getInt();
+        final int zoneCount = buffer.getInt();
+        return new IPZoneMapIndex(buffer.slice(), zoneRows, zoneCount, column);
+    }
+
+    @Override
+    public void search(IPAddress address, MutableBitmap rows) {
+        final SortedSet<IPAddress> addresses = new TreeSet<>();
+        addresses.add(address);
+        search(addresses, rows);
+    }
+
+    @Override
+    public void search(SortedSet<IPAddress> addresses, MutableBitmap rows) {
+        final IntList zones = candidateZones(addresses);
+        if (zones.isEmpty()) {
+            return;
+        }
+
+        final SortedIPAddresses sortedAddresses = SortedIPAddresses.of(addresses);
+
+        try (ComplexColumn values = column.get()) {
+            for (int i = 0; i < zones.size(); i++) {
+                final int zone = zones.getInt(i);
+                final int end = Math.min((zone + 1) * zoneRows, values.getLength());
+
+                for (int row = zone * zoneRows; row < end; row++) {
+                    final Object value = values.getRowValue(row);
+
+                    if (value != null && ((IPRangeHandler) value).contains(sortedAddresses)) {
+                        rows.add(row);
+                    }
+                }
+            }
+        }
+    }
+
+    // Every row of a candidate zone is decoded and matched, so the cost is the number of those rows
+    @Override
+    public int estimatedComputeCost(SortedSet<IPAddress> addresses) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) candidateZones(addresses).size() * zoneRows);
+    }
+
+    private IntList candidateZones(SortedSet<IPAddress> addresses) {
+        final IPAddress[] queried = addresses.toArray(new IPAddress[0]);
+        final long[] his = new long[queried.length];
+        final long[] los = new long[queried.length];
+
+        for (int i = 0; i < queried.length; i++) {
+            his[i] = IPAddressBits.hi(queried[i]);
+            los[i] = IPAddressBits.lo(queried[i]);
+        }
+
+        final IntList zones = new IntArrayList();
+        for (int zone = 0; zone < zoneCount; zone++) {
+            if (mayContain(zone, queried, his, los)) {
+                zones.add(zone);
+            }
+        }
+
+        return zones;
+    }
+
+    private boolean mayContain(int zone, IPAddress[] addresses, long[] his, long[] los) {
+        final int offset = zone * ZONE_SIZE;
+        final byte versions = buffer.get(offset);
+
+        for (int i = 0; i < addresses.length; i++) {
+            final boolean contained = addresses[i].isIPv4()
+                    ? (versions & HAS_IPV4) != 0 && inIPv4Span(offset, los[i])
+                    : (versions & HAS_IPV6) != 0 && inIPv6Span(offset, his[i], los[i]);
+
+            if (contained) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // [versions][v4 lower][v4 upper][v6 lower hi][v6 lower lo][v6 upper hi][v6 upper lo]
+    private boolean inIPv4Span(int offset, long lo) {
+        final long lower = Integer.toUnsignedLong(buffer.getInt(offset + 1));
+        final long upper = Integer.toUnsignedLong(buffer.getInt(offset + 5));
+        return lo >= lower && lo <= upper;
+    }
+
+    private boolean inIPv6Span(int offset, long hi, long lo) {
+        return IPAddressBits.compare(hi, lo, buffer.getLong(offset + 9), buffer.getLong(offset + 17)) >= 0
+                && IPAddressBits.compare(hi, lo, buffer.getLong(offset + 25), buffer.getLong(offset + 33)) <= 0;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static bi.deep.entity.index.IPZoneMapIndex.HAS_IPV4;
+import static bi.deep.entity.index.IPZoneMapIndex.HAS_IPV6;
+import static bi.deep.entity.index.IPZoneMapIndex.ZONE_ROWS;
+import static bi.deep.entity.index.IPZoneMapIndex.ZONE_SIZE;
+
+import bi.deep.entity.dimension.IPRangeHandler;
+import bi.deep.util.IPAddressBits;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+
+public class IPZoneMapWriter implements IPIndexWriter {
+    private final ByteArrayList versions = new ByteArrayList();
+    private final LongArrayList v4Lower = new LongArrayList();
+    private final LongArrayList v4Upper = new LongArrayList();
+    private final LongArrayList v6LowerHi = new LongArrayList();
+    private final LongArrayList v6LowerLo = new LongArrayList();
+    private final LongArrayList v6UpperHi = new LongArrayList();
+    private final LongArrayList v6UpperLo = new LongArrayList();
+
+    @Override
+    public byte getSectionType() {
+        return IPColumnIndexSupplier.ZONE_MAP;
+    }
+
+    @Override
+    public void add(int rowNum, IPRangeHandler value) {
+        final int zone = rowNum / ZONE_ROWS;
+
+        // Zones without any range keep an inverted span that no address falls into
+        while (versions.size() <= zone) {
+            versions.add((byte) 0);
+            v4Lower.add(-1L);
+            v4Upper.add(0L);
+            v6LowerHi.add(-1L);
+            v6LowerLo.add(-1L);
+            v6UpperHi.add(0L);
+            v6UpperLo.add(0L);
+        }
+
+        value.forEachRange((ipv6, lowerHi, lowerLo, upperHi, upperLo) -> {
+            if (ipv6) {
+                versions.set(zone, (byte) (versions.getByte(zone) | HAS_IPV6));
+
+                if (IPAddressBits.compare(lowerHi, lowerLo, v6LowerHi.getLong(zone), v6LowerLo.getLong(zone)) < 0) {
+                    v6LowerHi.set(zone, lowerHi);
+                    v6LowerLo.set(zone, lowerLo);
+                }
+                if (IPAddressBits.compare(upperHi, upperLo, v6UpperHi.getLong(zone), v6UpperLo.getLong(zone)) > 0) {
+                    v6UpperHi.set(zone, upperHi);
+                    v6UpperLo.set(zone, upperLo);
+                }
+            } else {
+                versions.set(zone, (byte) (versions.getByte(zone) | HAS_IPV4));
+
+                if (Long.compareUnsigned(lowerLo, v4Lower.getLong(zone)) < 0) {
+                    v4Lower.set(zone, lowerLo);
+                }
+                if (Long.compareUnsigned(upperLo, v4Upper.getLong(zone)) > 0) {
+                    v4Upper.set(zone, upperLo);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void writeTo(WriteOutBytes out) throws IOException {
+        final int zoneCount = versions.size();
+        final ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + zoneCount * ZONE_SIZE);
+        buffer.putInt(ZONE_ROWS).putInt(zoneCount);
+
+        for (int zone = 0; zone < zoneCount; zone++) {
+            buffer.put(versions.getByte(zone))
+                    .putInt((int) v4Lower.getLong(zone))
+                    .putInt((int) v4Upper.getLong(zone))
+                    .putLong(v6LowerHi.getLong(zone))
+                    .putLong(v6LowerLo.getLong(zone))
+                    .putLong(v6UpperHi.getLong(zone))
+                    .putLong(v6UpperLo.getLong(zone));
+        }
+
+        buffer.flip();
+        out.write(buffer);
+    }
+}
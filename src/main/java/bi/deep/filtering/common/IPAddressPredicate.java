@@ -15,6 +15,8 @@
  */
 package bi.deep.filtering.common;
 
+import bi.deep.util.IPAddressBits;
+import bi.deep.util.IPAddressParser;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
 import java.util.Optional;
@@ -26,23 +28,65 @@ import org.apache.druid.query.filter.DruidPredicateMatch;
 public class IPAddressPredicate implements DruidObjectPredicate<String> {
     private final Predicate<IPAddress> predicate;
 
+    @Nullable
+    private final AddressBitsPredicate bitsPredicate;
+
+    // Holds the last parsed address, so every matcher gets its own copy of the predicate
+    private final IPAddressParser parser = new IPAddressParser();
+
     public IPAddressPredicate(Predicate<IPAddress> predicate) {
+        this(predicate, null);
+    }
+
+    public IPAddressPredicate(Predicate<IPAddress> predicate, @Nullable AddressBitsPredicate bitsPredicate) {
         this.predicate = predicate;
+        this.bitsPredicate = bitsPredicate;
     }
 
     public static IPAddressPredicate of(Predicate<IPAddress> predicate) {
         return new IPAddressPredicate(predicate);
     }
 
+    public static IPAddressPredicate of(Predicate<IPAddress> predicate, AddressBitsPredicate bitsPredicate) {
+        return new IPAddressPredicate(predicate, bitsPredicate);
+    }
+
+    public IPAddressPredicate copy() {
+        return new IPAddressPredicate(predicate, bitsPredicate);
+    }
+
     @Override
     public DruidPredicateMatch apply(@Nullable String value) {
-        return mapToIPAddress(value)
-                .map(predicate::test)
-                .map(DruidPredicateMatch::of)
-                .orElse(DruidPredicateMatch.UNKNOWN);
+        // inet.ipaddr would read a null or empty string as the loopback address
+        if (value == null || value.isEmpty()) {
+            return DruidPredicateMatch.UNKNOWN;
+        }
+
+        switch (parser.parse(value)) {
+            case NOT_ADDRESS:
+                return DruidPredicateMatch.UNKNOWN;
+            case ADDRESS:
+                if (bitsPredicate != null) {
+                    return DruidPredicateMatch.of(
+                            bitsPredicate.test(parser.isIPv6(), parser.getHi(), parser.getLo()));
+                }
+                return DruidPredicateMatch.of(
+                        predicate.test(IPAddressBits.toAddress(parser.isIPv6(), parser.getHi(), parser.getLo())));
+            default:
+                return mapToIPAddress(value)
+                        .map(predicate::test)
+                        .map(DruidPredicateMatch::of)
+                        .orElse(DruidPredicateMatch.UNKNOWN);
+        }
     }
 
     private Optional<IPAddress> mapToIPAddress(@Nullable String value) {
         return Optional.ofNullable(new IPAddressString(value).getAddress());
     }
+
+    // Same check as the address predicate, on an address given as unsigned hi/lo halves (IPv4 only uses lo)
+    @FunctionalInterface
+    public interface AddressBitsPredicate {
+        boolean test(boolean ipv6, long hi, long lo);
+    }
 }
@@ -30,7 +30,7 @@ public class IPAddressPredicateFactory implements DruidPredicateFactory {
 
     @Override
     public DruidObjectPredicate<String> makeStringPredicate() {
-        return predicate;
+        return predicate.copy();
     }
 
     @Override
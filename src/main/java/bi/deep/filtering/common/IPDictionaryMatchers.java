@@ -0,0 +1,100 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.common;
+
+import bi.deep.entity.index.IPDictionarySelector;
+import bi.deep.entity.index.IPDictionaryVectorSelector;
+import java.util.function.IntFunction;
+import org.apache.druid.query.filter.DruidObjectPredicate;
+import org.apache.druid.query.filter.DruidPredicateMatch;
+import org.apache.druid.query.filter.ValueMatcher;
+import org.apache.druid.query.filter.vector.BaseVectorValueMatcher;
+import org.apache.druid.query.filter.vector.ReadableVectorMatch;
+import org.apache.druid.query.filter.vector.VectorMatch;
+import org.apache.druid.query.filter.vector.VectorValueMatcher;
+import org.apache.druid.query.monomorphicprocessing.RuntimeShapeInspector;
+
+// Matchers over dictionary encoded columns, the predicate runs once per dictionary id instead of once per row
+public final class IPDictionaryMatchers {
+    private IPDictionaryMatchers() {}
+
+    public static ValueMatcher makeMatcher(IPDictionarySelector selector, DruidObjectPredicate<Object> predicate) {
+        final IdMatches matches = new IdMatches(selector.getCardinality(), selector::lookupId, predicate);
+
+        return new ValueMatcher() {
+            @Override
+            public boolean matches(boolean includeUnknown) {
+                return matches.get(selector.getRowId()).matches(includeUnknown);
+            }
+
+            @Override
+            public void inspectRuntimeShape(RuntimeShapeInspector inspector) {
+                inspector.visit("selector", selector);
+                inspector.visit("predicate", predicate);
+            }
+        };
+    }
+
+    public static VectorValueMatcher makeVectorMatcher(
+            IPDictionaryVectorSelector selector, DruidObjectPredicate<Object> predicate) {
+        final IdMatches matches = new IdMatches(selector.getCardinality(), selector::lookupId, predicate);
+
+        return new BaseVectorValueMatcher(selector) {
+            private final VectorMatch match = VectorMatch.wrap(new int[selector.getMaxVectorSize()]);
+
+            @Override
+            public ReadableVectorMatch match(ReadableVectorMatch mask, boolean includeUnknown) {
+                final int[] rowIds = selector.getRowIdVector();
+                final int[] selection = match.getSelection();
+                int numRows = 0;
+
+                for (int i = 0; i < mask.getSelectionSize(); i++) {
+                    final int rowNum = mask.getSelection()[i];
+                    if (matches.get(rowIds[rowNum]).matches(includeUnknown)) {
+                        selection[numRows++] = rowNum;
+                    }
+                }
+
+                match.setSelectionSize(numRows);
+                return match;
+            }
+        };
+    }
+
+    // Results are filled in as ids are first seen, so ids no row of the segment reaches are never evaluated
+    private static final class IdMatches {
+        private final DruidPredicateMatch[] matches;
+        private final IntFunction<Object> lookup;
+        private final DruidObjectPredicate<Object> predicate;
+
+        private IdMatches(int cardinality, IntFunction<Object> lookup, DruidObjectPredicate<Object> predicate) {
+            this.matches = new DruidPredicateMatch[cardinality + 1];
+            this.lookup = lookup;
+            this.predicate = predicate;
+        }
+
+        private DruidPredicateMatch get(int id) {
+            DruidPredicateMatch match = matches[id];
+
+            if (match == null) {
+                match = predicate.apply(lookup.apply(id));
+                matches[id] = match;
+            }
+
+            return match;
+        }
+    }
+}
@@ -15,14 +15,12 @@
  */
 package bi.deep.filtering.common;
 
-import static inet.ipaddr.Address.ADDRESS_LOW_VALUE_COMPARATOR;
-
 import bi.deep.entity.dimension.IPRange;
 import bi.deep.entity.dimension.IPRangeArray;
+import bi.deep.util.IPAddressBits;
+import bi.deep.util.SortedIPAddresses;
 import inet.ipaddr.IPAddress;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import javax.annotation.Nullable;
 import org.apache.druid.error.DruidException;
 import org.apache.druid.query.filter.DruidDoublePredicate;
@@ -35,16 +33,20 @@ import org.apache.druid.segment.column.TypeSignature;
 import org.apache.druid.segment.column.ValueType;
 
 public class MatchPredicateFactory implements DruidPredicateFactory {
-    private final SortedSet<IPAddress> ips = new TreeSet<>(ADDRESS_LOW_VALUE_COMPARATOR);
+    private final SortedIPAddresses sortedIps;
 
     public MatchPredicateFactory(List<IPAddress> ips) {
-        this.ips.addAll(ips);
+        this.sortedIps = SortedIPAddresses.of(ips);
     }
 
+    // Null rows of complex columns and the addresses emitted by ip-native-filtered virtual columns arrive as strings
     @Override
     public DruidObjectPredicate<String> makeStringPredicate() {
-        throw DruidException.defensive(
-                "ip_native_match supports only ipRange or ipRangeArray types, but received a String type");
+        final IPAddressPredicate predicate = IPAddressPredicate.of(
+                address -> sortedIps.contains(address.isIPv6(), IPAddressBits.hi(address), IPAddressBits.lo(address)),
+                sortedIps::contains);
+
+        return value -> value == null ? DruidPredicateMatch.FALSE : predicate.apply(value);
     }
 
     @Override
@@ -79,11 +81,11 @@ public class MatchPredicateFactory implements DruidPredicateFactory {
             }
             if (object instanceof IPRange) {
                 IPRange ipRange = (IPRange) object;
-                return DruidPredicateMatch.of(ipRange.contains(ips));
+                return DruidPredicateMatch.of(ipRange.contains(sortedIps));
             }
             if (object instanceof IPRangeArray) {
                 IPRangeArray ipRange = (IPRangeArray) object;
-                return DruidPredicateMatch.of(ipRange.contains(ips));
+                return DruidPredicateMatch.of(ipRange.contains(sortedIps));
             }
 
             throw DruidException.defensive(
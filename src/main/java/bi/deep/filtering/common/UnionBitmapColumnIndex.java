@@ -0,0 +1,50 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.druid.query.BitmapResultFactory;
+import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.index.SimpleBitmapColumnIndex;
+
+public class UnionBitmapColumnIndex extends SimpleBitmapColumnIndex {
+    private final List<BitmapColumnIndex> indexes;
+
+    public UnionBitmapColumnIndex(List<BitmapColumnIndex> indexes) {
+        this.indexes = indexes;
+    }
+
+    @Override
+    public int estimatedComputeCost() {
+        int cost = 0;
+        for (BitmapColumnIndex index : indexes) {
+            cost += index.estimatedComputeCost();
+        }
+        return cost;
+    }
+
+    @Override
+    public <T> T computeBitmapResult(BitmapResultFactory<T> bitmapResultFactory, boolean includeUnknown) {
+        final List<T> results = new ArrayList<>(indexes.size());
+
+        for (BitmapColumnIndex index : indexes) {
+            results.add(index.computeBitmapResult(bitmapResultFactory, includeUnknown));
+        }
+
+        return bitmapResultFactory.union(results);
+    }
+}
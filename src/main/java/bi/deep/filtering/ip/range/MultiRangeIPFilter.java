@@ -16,6 +16,7 @@
 package bi.deep.filtering.ip.range;
 
 import bi.deep.filtering.ip.range.impl.MultiRangeIPFilterImpl;
+import bi.deep.filtering.ip.range.lookup.IPRangeEngine;
 import bi.deep.range.IPRange;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -41,12 +42,18 @@ public class MultiRangeIPFilter extends AbstractOptimizableDimFilter implements
     private final String dimension;
     private final Set<String> ranges;
     private final boolean ignoreVersionMismatch;
+    private final IPRangeEngine engine;
+
+    public MultiRangeIPFilter(String dimension, Set<String> ranges, @Nullable Boolean ignoreVersionMismatch) {
+        this(dimension, ranges, ignoreVersionMismatch, null);
+    }
 
     @JsonCreator
     public MultiRangeIPFilter(
             @JsonProperty("dimension") String dimension,
             @JsonProperty("ranges") Set<String> ranges,
-            @JsonProperty("ignoreVersionMismatch") @Nullable Boolean ignoreVersionMismatch) {
+            @JsonProperty("ignoreVersionMismatch") @Nullable Boolean ignoreVersionMismatch,
+            @JsonProperty("engine") @Nullable IPRangeEngine engine) {
         this.dimension = Preconditions.checkNotNull(dimension, "dimension");
         this.ranges = Preconditions.checkNotNull(ranges, "ranges");
 
@@ -55,6 +62,7 @@ public class MultiRangeIPFilter extends AbstractOptimizableDimFilter implements
         }
 
         this.ignoreVersionMismatch = ignoreVersionMismatch != null && ignoreVersionMismatch;
+        this.engine = engine == null ? IPRangeEngine.AUTO : engine;
     }
 
     @JsonProperty("dimension")
@@ -72,10 +80,15 @@ public class MultiRangeIPFilter extends AbstractOptimizableDimFilter implements
         return ignoreVersionMismatch;
     }
 
+    @JsonProperty("engine")
+    public IPRangeEngine getEngine() {
+        return engine;
+    }
+
     @Override
     public Filter toFilter() {
         final Set<IPRange> collect = ranges.stream().map(IPRange::new).collect(Collectors.toSet());
-        return new MultiRangeIPFilterImpl(dimension, collect, ignoreVersionMismatch);
+        return new MultiRangeIPFilterImpl(dimension, collect, ignoreVersionMismatch, engine);
     }
 
     @Nullable
@@ -15,28 +15,45 @@
  */
 package bi.deep.filtering.ip.range.impl;
 
+import bi.deep.entity.index.IPAddressRangeIndexes;
 import bi.deep.filtering.common.IPAddressPredicate;
 import bi.deep.filtering.common.IPAddressPredicateFactory;
+import bi.deep.filtering.common.UnionBitmapColumnIndex;
+import bi.deep.util.SortedIPAddresses;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import inet.ipaddr.IPAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.druid.error.InvalidInput;
 import org.apache.druid.query.dimension.DefaultDimensionSpec;
 import org.apache.druid.query.filter.ColumnIndexSelector;
+import org.apache.druid.query.filter.DruidPredicateFactory;
 import org.apache.druid.query.filter.Filter;
 import org.apache.druid.query.filter.ValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcherColumnProcessorFactory;
+import org.apache.druid.segment.ColumnInspector;
+import org.apache.druid.segment.ColumnProcessors;
 import org.apache.druid.segment.ColumnSelectorFactory;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.column.ValueType;
+import org.apache.druid.segment.filter.Filters;
 import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.vector.VectorColumnSelectorFactory;
 
 public class FixedSetIPFilterImpl implements Filter {
     private final String column;
     private final SortedSet<IPAddress> addressSet;
+    private final DruidPredicateFactory predicateFactory;
 
     public FixedSetIPFilterImpl(String column, SortedSet<IPAddress> addressSet) {
         if (column == null) {
@@ -49,18 +66,66 @@ public class FixedSetIPFilterImpl implements Filter {
 
         this.column = column;
         this.addressSet = addressSet;
+        // Multi-valued entries never equal a parsed address, only single addresses take the primitive path
+        final SortedIPAddresses singleAddresses = SortedIPAddresses.of(
+                addressSet.stream().filter(address -> !address.isMultiple()).collect(Collectors.toList()));
+        this.predicateFactory =
+                new IPAddressPredicateFactory(IPAddressPredicate.of(this::contains, singleAddresses::contains));
     }
 
     @Nullable
     @Override
     public BitmapColumnIndex getBitmapColumnIndex(ColumnIndexSelector columnIndexSelector) {
-        return null;
+        final ColumnCapabilities capabilities = columnIndexSelector.getColumnCapabilities(column);
+
+        if (capabilities != null && !capabilities.is(ValueType.STRING)) {
+            return null;
+        }
+
+        final ColumnIndexSupplier indexSupplier = columnIndexSelector.getIndexSupplier(column);
+        final IPAddressRangeIndexes addressIndexes =
+                indexSupplier == null ? null : indexSupplier.as(IPAddressRangeIndexes.class);
+        final BitmapColumnIndex addressIndex = addressIndexes == null ? null : makeAddressIndex(addressIndexes);
+
+        if (addressIndex != null) {
+            return addressIndex;
+        }
+
+        return Filters.makePredicateIndex(column, columnIndexSelector, predicateFactory);
+    }
+
+    // On ipAddress columns every single address is a lookup of one dictionary id
+    @Nullable
+    private BitmapColumnIndex makeAddressIndex(IPAddressRangeIndexes addressIndexes) {
+        final List<BitmapColumnIndex> indexes = new ArrayList<>(addressSet.size());
+
+        for (IPAddress address : addressSet) {
+            if (!address.isMultiple()) {
+                indexes.add(addressIndexes.forRange(address.isIPv6(), address, false, address, false));
+            }
+        }
+
+        return indexes.contains(null) ? null : new UnionBitmapColumnIndex(indexes);
     }
 
     @Override
     public ValueMatcher makeMatcher(ColumnSelectorFactory factory) {
         return factory.makeDimensionSelector(new DefaultDimensionSpec(column, column))
-                .makeValueMatcher(new IPAddressPredicateFactory(IPAddressPredicate.of(this::contains)));
+                .makeValueMatcher(predicateFactory);
+    }
+
+    @Override
+    public boolean canVectorizeMatcher(ColumnInspector inspector) {
+        final ColumnCapabilities capabilities = inspector.getColumnCapabilities(column);
+        return capabilities == null || capabilities.is(ValueType.STRING);
+    }
+
+    // String vector matchers evaluate the predicate once per dictionary id and reuse it for the whole segment
+    @Override
+    public VectorValueMatcher makeVectorMatcher(VectorColumnSelectorFactory factory) {
+        return ColumnProcessors.makeVectorProcessor(
+                        column, VectorValueMatcherColumnProcessorFactory.instance(), factory)
+                .makeMatcher(predicateFactory);
     }
 
     @VisibleForTesting
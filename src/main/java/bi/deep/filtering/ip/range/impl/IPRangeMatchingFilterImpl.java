@@ -15,40 +15,92 @@
  */
 package bi.deep.filtering.ip.range.impl;
 
+import static inet.ipaddr.Address.ADDRESS_LOW_VALUE_COMPARATOR;
+
+import bi.deep.entity.index.IPDictionarySelector;
+import bi.deep.entity.index.IPDictionaryVectorSelector;
+import bi.deep.entity.index.IPRangeIndexes;
+import bi.deep.filtering.common.IPDictionaryMatchers;
 import bi.deep.filtering.common.MatchPredicateFactory;
 import com.google.common.collect.ImmutableSet;
 import inet.ipaddr.IPAddress;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import javax.annotation.Nullable;
 import org.apache.druid.query.filter.ColumnIndexSelector;
+import org.apache.druid.query.filter.DruidPredicateFactory;
 import org.apache.druid.query.filter.Filter;
 import org.apache.druid.query.filter.ValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcherColumnProcessorFactory;
+import org.apache.druid.segment.ColumnInspector;
+import org.apache.druid.segment.ColumnProcessors;
 import org.apache.druid.segment.ColumnSelectorFactory;
+import org.apache.druid.segment.ColumnValueSelector;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.column.ValueType;
 import org.apache.druid.segment.filter.Filters;
 import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.vector.VectorColumnSelectorFactory;
+import org.apache.druid.segment.vector.VectorObjectSelector;
 
 public class IPRangeMatchingFilterImpl implements Filter {
     private final String column;
-    private final List<IPAddress> ips;
+    private final SortedSet<IPAddress> sortedIps = new TreeSet<>(ADDRESS_LOW_VALUE_COMPARATOR);
+    private final DruidPredicateFactory predicateFactory;
 
     public IPRangeMatchingFilterImpl(String column, List<IPAddress> ips) {
         if (column == null) {
             throw new IllegalArgumentException("Column cannot be null");
         }
         this.column = column;
-        this.ips = ips;
+        this.sortedIps.addAll(ips);
+        this.predicateFactory = new MatchPredicateFactory(ips);
     }
 
     @Nullable
     @Override
     public BitmapColumnIndex getBitmapColumnIndex(ColumnIndexSelector selector) {
-        return null;
+        final ColumnIndexSupplier indexSupplier = selector.getIndexSupplier(column);
+        final IPRangeIndexes indexes = indexSupplier == null ? null : indexSupplier.as(IPRangeIndexes.class);
+
+        // Segments without an index (older or realtime ones) fall back to the matcher
+        return indexes == null ? null : indexes.forAddresses(sortedIps, selector.getBitmapFactory());
     }
 
+    // Dictionary encoded columns are matched once per dictionary id rather than once per row
     @Override
     public ValueMatcher makeMatcher(ColumnSelectorFactory factory) {
-        return Filters.makeValueMatcher(factory, column, new MatchPredicateFactory(ips));
+        final ColumnValueSelector<?> selector = factory.makeColumnValueSelector(column);
+        if (selector instanceof IPDictionarySelector) {
+            return IPDictionaryMatchers.makeMatcher(
+                    (IPDictionarySelector) selector, predicateFactory.makeObjectPredicate());
+        }
+
+        return Filters.makeValueMatcher(factory, column, predicateFactory);
+    }
+
+    @Override
+    public boolean canVectorizeMatcher(ColumnInspector inspector) {
+        final ColumnCapabilities capabilities = inspector.getColumnCapabilities(column);
+        return capabilities != null && capabilities.is(ValueType.COMPLEX);
+    }
+
+    // Complex columns get an object vector matcher testing the ranges of a whole batch of rows per call
+    @Override
+    public VectorValueMatcher makeVectorMatcher(VectorColumnSelectorFactory factory) {
+        final VectorObjectSelector selector = factory.makeObjectSelector(column);
+        if (selector instanceof IPDictionaryVectorSelector) {
+            return IPDictionaryMatchers.makeVectorMatcher(
+                    (IPDictionaryVectorSelector) selector, predicateFactory.makeObjectPredicate());
+        }
+
+        return ColumnProcessors.makeVectorProcessor(
+                        column, VectorValueMatcherColumnProcessorFactory.instance(), factory)
+                .makeMatcher(predicateFactory);
     }
 
     @Override
@@ -15,16 +15,18 @@
  */
 package bi.deep.filtering.ip.range.impl;
 
+import bi.deep.entity.index.IPAddressRangeIndexes;
 import bi.deep.filtering.common.IPAddressPredicate;
 import bi.deep.filtering.common.IPAddressPredicateFactory;
+import bi.deep.filtering.common.UnionBitmapColumnIndex;
+import bi.deep.filtering.ip.range.lookup.IPRangeEngine;
+import bi.deep.filtering.ip.range.lookup.IPRangeLookup;
 import bi.deep.range.IPRange;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import inet.ipaddr.IPAddress;
-import inet.ipaddr.ipv4.IPv4Address;
-import inet.ipaddr.ipv4.IPv4AddressTrie;
-import inet.ipaddr.ipv6.IPv6Address;
-import inet.ipaddr.ipv6.IPv6AddressTrie;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -33,19 +35,34 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.druid.error.InvalidInput;
 import org.apache.druid.query.dimension.DefaultDimensionSpec;
 import org.apache.druid.query.filter.ColumnIndexSelector;
+import org.apache.druid.query.filter.DruidPredicateFactory;
 import org.apache.druid.query.filter.Filter;
 import org.apache.druid.query.filter.ValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcherColumnProcessorFactory;
+import org.apache.druid.segment.ColumnInspector;
+import org.apache.druid.segment.ColumnProcessors;
 import org.apache.druid.segment.ColumnSelectorFactory;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.column.ValueType;
+import org.apache.druid.segment.filter.Filters;
 import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.vector.VectorColumnSelectorFactory;
 
 public class MultiRangeIPFilterImpl implements Filter {
     private final String column;
-
-    private final IPv4AddressTrie v4Trie = new IPv4AddressTrie();
-    private final IPv6AddressTrie v6Trie = new IPv6AddressTrie();
+    private final Set<IPRange> ranges;
+    private final IPRangeLookup lookup;
     private final boolean ignoreVersionMismatch;
+    private final DruidPredicateFactory predicateFactory;
 
     public MultiRangeIPFilterImpl(String column, Set<IPRange> ranges, boolean ignoreVersionMismatch) {
+        this(column, ranges, ignoreVersionMismatch, IPRangeEngine.AUTO);
+    }
+
+    public MultiRangeIPFilterImpl(
+            String column, Set<IPRange> ranges, boolean ignoreVersionMismatch, @Nullable IPRangeEngine engine) {
 
         if (column == null) {
             throw InvalidInput.exception("Column cannot be null");
@@ -56,42 +73,83 @@ public class MultiRangeIPFilterImpl implements Filter {
         }
 
         this.column = column;
-        ranges.forEach(this::collectRange);
+        this.ranges = ranges;
+        this.lookup = (engine == null ? IPRangeEngine.AUTO : engine).build(ranges);
         this.ignoreVersionMismatch = ignoreVersionMismatch;
+        this.predicateFactory =
+                new IPAddressPredicateFactory(IPAddressPredicate.of(this::contains, this::contains));
     }
 
     @Nullable
     @Override
     public BitmapColumnIndex getBitmapColumnIndex(ColumnIndexSelector columnIndexSelector) {
-        return null;
+        final ColumnCapabilities capabilities = columnIndexSelector.getColumnCapabilities(column);
+
+        // Only string dictionaries can be scanned value by value, anything else falls back to the matcher
+        if (capabilities != null && !capabilities.is(ValueType.STRING)) {
+            return null;
+        }
+
+        final ColumnIndexSupplier indexSupplier = columnIndexSelector.getIndexSupplier(column);
+        final IPAddressRangeIndexes addressIndexes =
+                indexSupplier == null ? null : indexSupplier.as(IPAddressRangeIndexes.class);
+        final BitmapColumnIndex addressIndex = addressIndexes == null ? null : makeAddressIndex(addressIndexes);
+
+        if (addressIndex != null) {
+            return addressIndex;
+        }
+
+        return Filters.makePredicateIndex(column, columnIndexSelector, predicateFactory);
+    }
+
+    // Columns of the ipAddress type have a numerically ordered dictionary, so each range is a contiguous id range
+    @Nullable
+    private BitmapColumnIndex makeAddressIndex(IPAddressRangeIndexes addressIndexes) {
+        final List<BitmapColumnIndex> indexes = new ArrayList<>(ranges.size() + 1);
+
+        for (IPRange range : ranges) {
+            indexes.add(addressIndexes.forRange(range.isIPv6(), range.getLower(), false, range.getUpper(), false));
+        }
+
+        // Addresses of a version without any queried range match as a whole
+        if (ignoreVersionMismatch && (lookup.isEmpty(false) || lookup.isEmpty(true))) {
+            indexes.add(addressIndexes.forVersion(!lookup.isEmpty(false)));
+        }
+
+        return indexes.contains(null) ? null : new UnionBitmapColumnIndex(indexes);
     }
 
     @Override
     public ValueMatcher makeMatcher(ColumnSelectorFactory factory) {
         return factory.makeDimensionSelector(new DefaultDimensionSpec(column, column))
-                .makeValueMatcher(new IPAddressPredicateFactory(IPAddressPredicate.of(this::contains)));
+                .makeValueMatcher(predicateFactory);
+    }
+
+    @Override
+    public boolean canVectorizeMatcher(ColumnInspector inspector) {
+        final ColumnCapabilities capabilities = inspector.getColumnCapabilities(column);
+        return capabilities == null || capabilities.is(ValueType.STRING);
+    }
+
+    // String vector matchers evaluate the predicate once per dictionary id and reuse it for the whole segment
+    @Override
+    public VectorValueMatcher makeVectorMatcher(VectorColumnSelectorFactory factory) {
+        return ColumnProcessors.makeVectorProcessor(
+                        column, VectorValueMatcherColumnProcessorFactory.instance(), factory)
+                .makeMatcher(predicateFactory);
     }
 
     @VisibleForTesting
     public boolean contains(@NotNull final IPAddress ipAddress) {
         // Check if we have same version ranges defined
-        if (ipAddress.isIPv4()) {
-            return v4Trie.isEmpty() ? ignoreVersionMismatch : v4Trie.elementContains((IPv4Address) ipAddress);
-        } else if (ipAddress.isIPv6()) {
-            return v6Trie.isEmpty() ? ignoreVersionMismatch : v6Trie.elementContains((IPv6Address) ipAddress);
-        } else {
+        if (!ipAddress.isIPv4() && !ipAddress.isIPv6()) {
             return ignoreVersionMismatch;
         }
+        return lookup.isEmpty(ipAddress.isIPv6()) ? ignoreVersionMismatch : lookup.contains(ipAddress);
     }
 
-    private void collectRange(IPRange range) {
-        for (IPAddress block : range.getAddressRange().spanWithPrefixBlocks()) {
-            if (block.isIPv4()) {
-                v4Trie.add((IPv4Address) block);
-            } else {
-                v6Trie.add((IPv6Address) block);
-            }
-        }
+    private boolean contains(boolean ipv6, long hi, long lo) {
+        return lookup.isEmpty(ipv6) ? ignoreVersionMismatch : lookup.contains(ipv6, hi, lo);
     }
 
     @Override
@@ -112,12 +170,11 @@ public class MultiRangeIPFilterImpl implements Filter {
 
         return ignoreVersionMismatch == that.ignoreVersionMismatch
                 && Objects.equals(column, that.column)
-                && Objects.equals(v4Trie, that.v4Trie)
-                && Objects.equals(v6Trie, that.v6Trie);
+                && Objects.equals(lookup, that.lookup);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(column, v4Trie, v6Trie, ignoreVersionMismatch);
+        return Objects.hash(column, lookup, ignoreVersionMismatch);
     }
 }
@@ -26,9 +26,12 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 import org.apache.druid.query.filter.ColumnIndexSelector;
+import org.apache.druid.query.filter.DruidPredicateFactory;
 import org.apache.druid.query.filter.Filter;
 import org.apache.druid.query.filter.ValueMatcher;
 import org.apache.druid.segment.ColumnSelectorFactory;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ValueType;
 import org.apache.druid.segment.filter.Filters;
 import org.apache.druid.segment.index.BitmapColumnIndex;
 
@@ -36,6 +39,7 @@ public class RangeMatchingIPFilterImpl implements Filter {
     private final String column;
     private final List<IPAddress> ips;
     private final boolean ignoreVersionMismatch;
+    private final DruidPredicateFactory predicateFactory;
 
     public RangeMatchingIPFilterImpl(String column, List<IPAddress> ips, boolean ignoreVersionMismatch) {
         if (column == null) {
@@ -44,20 +48,25 @@ public class RangeMatchingIPFilterImpl implements Filter {
         this.column = column;
         this.ips = ips;
         this.ignoreVersionMismatch = ignoreVersionMismatch;
+        this.predicateFactory = new IPAddressRangeListPredicateFactory(IPAddressRangeListPredicate.of(this::anyMatch));
     }
 
     @Nullable
     @Override
     public BitmapColumnIndex getBitmapColumnIndex(ColumnIndexSelector selector) {
-        return null;
+        final ColumnCapabilities capabilities = selector.getColumnCapabilities(column);
+
+        // Each distinct range list is parsed once per segment, the matching value bitmaps are unioned
+        if (capabilities != null && !capabilities.is(ValueType.STRING)) {
+            return null;
+        }
+
+        return Filters.makePredicateIndex(column, selector, predicateFactory);
     }
 
     @Override
     public ValueMatcher makeMatcher(ColumnSelectorFactory factory) {
-        return Filters.makeValueMatcher(
-                factory,
-                column,
-                new IPAddressRangeListPredicateFactory(IPAddressRangeListPredicate.of(this::anyMatch)));
+        return Filters.makeValueMatcher(factory, column, predicateFactory);
     }
 
     @VisibleForTesting
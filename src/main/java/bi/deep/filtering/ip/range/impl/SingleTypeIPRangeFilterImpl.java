@@ -15,12 +15,15 @@
  */
 package bi.deep.filtering.ip.range.impl;
 
+import bi.deep.entity.index.IPAddressRangeIndexes;
 import bi.deep.filtering.common.IPAddressPredicate;
 import bi.deep.filtering.common.IPAddressPredicateFactory;
+import bi.deep.filtering.common.UnionBitmapColumnIndex;
 import bi.deep.range.IPBoundedRange;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import inet.ipaddr.IPAddress;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -28,15 +31,26 @@ import javax.validation.constraints.NotNull;
 import org.apache.druid.error.InvalidInput;
 import org.apache.druid.query.dimension.DefaultDimensionSpec;
 import org.apache.druid.query.filter.ColumnIndexSelector;
+import org.apache.druid.query.filter.DruidPredicateFactory;
 import org.apache.druid.query.filter.Filter;
 import org.apache.druid.query.filter.ValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcherColumnProcessorFactory;
+import org.apache.druid.segment.ColumnInspector;
+import org.apache.druid.segment.ColumnProcessors;
 import org.apache.druid.segment.ColumnSelectorFactory;
+import org.apache.druid.segment.column.ColumnCapabilities;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.column.ValueType;
+import org.apache.druid.segment.filter.Filters;
 import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.vector.VectorColumnSelectorFactory;
 
 public class SingleTypeIPRangeFilterImpl implements Filter {
     private final String column;
     private final IPBoundedRange boundedRange;
     private final boolean ignoreVersionMismatch;
+    private final DruidPredicateFactory predicateFactory;
 
     public SingleTypeIPRangeFilterImpl(String column, IPBoundedRange range, boolean ignoreVersionMismatch) {
         if (column == null) {
@@ -46,18 +60,68 @@ public class SingleTypeIPRangeFilterImpl implements Filter {
         this.column = column;
         this.ignoreVersionMismatch = ignoreVersionMismatch;
         this.boundedRange = range;
+        this.predicateFactory = new IPAddressPredicateFactory(IPAddressPredicate.of(
+                this::contains, (ipv6, hi, lo) -> range.contains(ipv6, hi, lo, ignoreVersionMismatch)));
     }
 
     @Nullable
     @Override
     public BitmapColumnIndex getBitmapColumnIndex(ColumnIndexSelector columnIndexSelector) {
-        return null;
+        final ColumnCapabilities capabilities = columnIndexSelector.getColumnCapabilities(column);
+
+        if (capabilities != null && !capabilities.is(ValueType.STRING)) {
+            return null;
+        }
+
+        final ColumnIndexSupplier indexSupplier = columnIndexSelector.getIndexSupplier(column);
+        final IPAddressRangeIndexes addressIndexes =
+                indexSupplier == null ? null : indexSupplier.as(IPAddressRangeIndexes.class);
+        final BitmapColumnIndex addressIndex = addressIndexes == null ? null : makeAddressIndex(addressIndexes);
+
+        if (addressIndex != null) {
+            return addressIndex;
+        }
+
+        return Filters.makePredicateIndex(column, columnIndexSelector, predicateFactory);
+    }
+
+    // On ipAddress columns the range is one contiguous run of dictionary ids
+    @Nullable
+    private BitmapColumnIndex makeAddressIndex(IPAddressRangeIndexes addressIndexes) {
+        final boolean ipv6 = boundedRange.isIPv6();
+        final BitmapColumnIndex rangeIndex = addressIndexes.forRange(
+                ipv6,
+                boundedRange.getLowerIPAddress(),
+                boundedRange.isLowerOpen(),
+                boundedRange.getUpperIPAddress(),
+                boundedRange.isUpperOpen());
+
+        if (!ignoreVersionMismatch || rangeIndex == null) {
+            return rangeIndex;
+        }
+
+        final BitmapColumnIndex otherVersion = addressIndexes.forVersion(!ipv6);
+        return otherVersion == null ? null : new UnionBitmapColumnIndex(Arrays.asList(rangeIndex, otherVersion));
     }
 
     @Override
     public ValueMatcher makeMatcher(ColumnSelectorFactory factory) {
         return factory.makeDimensionSelector(new DefaultDimensionSpec(column, column))
-                .makeValueMatcher(new IPAddressPredicateFactory(IPAddressPredicate.of(this::contains)));
+                .makeValueMatcher(predicateFactory);
+    }
+
+    @Override
+    public boolean canVectorizeMatcher(ColumnInspector inspector) {
+        final ColumnCapabilities capabilities = inspector.getColumnCapabilities(column);
+        return capabilities == null || capabilities.is(ValueType.STRING);
+    }
+
+    // String vector matchers evaluate the predicate once per dictionary id and reuse it for the whole segment
+    @Override
+    public VectorValueMatcher makeVectorMatcher(VectorColumnSelectorFactory factory) {
+        return ColumnProcessors.makeVectorProcessor(
+                        column, VectorValueMatcherColumnProcessorFactory.instance(), factory)
+                .makeMatcher(predicateFactory);
     }
 
     @VisibleForTesting
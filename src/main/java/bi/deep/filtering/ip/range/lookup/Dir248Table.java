@@ -0,0 +1,118 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range.lookup;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// DIR-24-8 style IPv4 table, one entry per /24 that is either a miss, a full match or a 256 bit block of the last octet
+final class Dir248Table implements IntervalSet {
+    private static final int MISS = 0;
+    private static final int FULL = -1;
+    private static final int BLOCK_LONGS = 4;
+
+    private final MergedIntervals intervals;
+    private final int[] slots = new int[1 << 24];
+    private long[] blocks = new long[BLOCK_LONGS * 16];
+    private int blockCount = 0;
+
+    Dir248Table(MergedIntervals intervals) {
+        this.intervals = intervals;
+
+        for (int i = 0; i < intervals.size(); i++) {
+            add(intervals.lowerLo(i), intervals.upperLo(i));
+        }
+
+        blocks = Arrays.copyOf(blocks, blockCount * BLOCK_LONGS);
+    }
+
+    private void add(long lower, long upper) {
+        final int first = (int) (lower >>> 8);
+        final int last = (int) (upper >>> 8);
+
+        if (first == last) {
+            setBits(first, (int) lower & 0xFF, (int) upper & 0xFF);
+            return;
+        }
+
+        final int fullFrom = (lower & 0xFF) == 0 ? first : first + 1;
+        final int fullTo = (upper & 0xFF) == 0xFF ? last : last - 1;
+
+        if (fullFrom != first) {
+            setBits(first, (int) lower & 0xFF, 0xFF);
+        }
+        if (fullFrom <= fullTo) {
+            Arrays.fill(slots, fullFrom, fullTo + 1, FULL);
+        }
+        if (fullTo != last) {
+            setBits(last, 0, (int) upper & 0xFF);
+        }
+    }
+
+    // Merged intervals are disjoint and never adjacent, so a partially covered slot never becomes full
+    private void setBits(int slot, int from, int to) {
+        if (from == 0 && to == 0xFF) {
+            slots[slot] = FULL;
+            return;
+        }
+
+        if (slots[slot] == MISS) {
+            if ((blockCount + 1) * BLOCK_LONGS > blocks.length) {
+                blocks = Arrays.copyOf(blocks, blocks.length * 2);
+            }
+            slots[slot] = ++blockCount;
+        }
+
+        final int base = (slots[slot] - 1) * BLOCK_LONGS;
+        for (int bit = from; bit <= to; bit++) {
+            blocks[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    @Override
+    public boolean contains(long hi, long lo) {
+        final int slot = slots[(int) (lo >>> 8)];
+
+        if (slot == MISS || slot == FULL) {
+            return slot == FULL;
+        }
+
+        final int bit = (int) lo & 0xFF;
+        return (blocks[(slot - 1) * BLOCK_LONGS + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Dir248Table)) {
+            return false;
+        }
+
+        return Objects.equals(intervals, ((Dir248Table) o).intervals);
+    }
+
+    @Override
+    public int hashCode() {
+        return intervals.hashCode();
+    }
+}
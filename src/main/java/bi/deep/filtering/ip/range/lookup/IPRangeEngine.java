@@ -0,0 +1,74 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range.lookup;
+
+import bi.deep.range.IPRange;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.Collection;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import org.apache.druid.error.InvalidInput;
+
+public enum IPRangeEngine {
+    AUTO,
+    TRIE,
+    INTERVAL,
+    DIR_24_8,
+    MULTIBIT_TRIE;
+
+    // The DIR-24-8 table costs 64 MiB regardless of its content, so auto only picks it for large IPv4 sets
+    static final int DIR_24_8_MIN_INTERVALS = 100_000;
+    static final int MULTIBIT_TRIE_MIN_INTERVALS = 10_000;
+
+    @JsonCreator
+    public static IPRangeEngine fromString(@Nullable String name) {
+        if (name == null) {
+            return AUTO;
+        }
+
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw InvalidInput.exception(
+                    "Unknown engine '%s', expected one of auto, trie, interval, dir_24_8 or multibit_trie", name);
+        }
+    }
+
+    public IPRangeLookup build(Collection<IPRange> ranges) {
+        switch (this) {
+            case TRIE:
+                return new TrieIPRangeLookup(ranges);
+            case INTERVAL:
+                return new IntervalIPRangeLookup(ranges);
+            default:
+                final MergedIntervals ipv4 = MergedIntervals.of(ranges, false);
+                final MergedIntervals ipv6 = MergedIntervals.of(ranges, true);
+                final boolean table = this == DIR_24_8 || (this == AUTO && ipv4.size() >= DIR_24_8_MIN_INTERVALS);
+                final boolean multibit =
+                        this == MULTIBIT_TRIE || (this == AUTO && ipv6.size() >= MULTIBIT_TRIE_MIN_INTERVALS);
+
+                return new IntervalIPRangeLookup(
+                        table ? new Dir248Table(ipv4) : ipv4, multibit ? new MultibitTrie(ipv6) : ipv6);
+        }
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range.lookup;
+
+import inet.ipaddr.IPAddress;
+
+// Membership structure for the ranges of an ip_multi_range filter
+public interface IPRangeLookup {
+    boolean isEmpty(boolean ipv6);
+
+    boolean contains(IPAddress address);
+
+    // Address given as unsigned hi/lo halves, IPv4 addresses only use lo
+    boolean contains(boolean ipv6, long hi, long lo);
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range.lookup;
+
+import bi.deep.range.IPRange;
+import bi.deep.util.IPAddressBits;
+import inet.ipaddr.IPAddress;
+import java.util.Collection;
+import java.util.Objects;
+
+// Lookup over the merged, disjoint intervals of each version, by default searched with a binary search
+public class IntervalIPRangeLookup implements IPRangeLookup {
+    private final IntervalSet ipv4;
+    private final IntervalSet ipv6;
+
+    public IntervalIPRangeLookup(Collection<IPRange> ranges) {
+        this(MergedIntervals.of(ranges, false), MergedIntervals.of(ranges, true));
+    }
+
+    IntervalIPRangeLookup(IntervalSet ipv4, IntervalSet ipv6) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+    }
+
+    @Override
+    public boolean isEmpty(boolean ipv6) {
+        return ipv6 ? this.ipv6.isEmpty() : ipv4.isEmpty();
+    }
+
+    @Override
+    public boolean contains(IPAddress address) {
+        return contains(address.isIPv6(), IPAddressBits.hi(address), IPAddressBits.lo(address));
+    }
+
+    @Override
+    public boolean contains(boolean ipv6, long hi, long lo) {
+        return ipv6 ? this.ipv6.contains(hi, lo) : ipv4.contains(hi, lo);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntervalIPRangeLookup)) {
+            return false;
+        }
+
+        final IntervalIPRangeLookup that = (IntervalIPRangeLookup) o;
+        return Objects.equals(ipv4, that.ipv4) && Objects.equals(ipv6, that.ipv6);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ipv4, ipv6);
+    }
+}
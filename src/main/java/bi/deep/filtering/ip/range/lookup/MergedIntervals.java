@@ -0,0 +1,177 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range.lookup;
+
+import bi.deep.range.IPRange;
+import bi.deep.util.IPAddressBits;
+import inet.ipaddr.IPAddress;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import java.util.Collection;
+
+// Ranges of one IP version merged into sorted, disjoint, non adjacent intervals, IPv4 bounds only use lo
+final class MergedIntervals implements IntervalSet {
+    private final boolean ipv6;
+    private final long[] lowerHi;
+    private final long[] lowerLo;
+    private final long[] upperHi;
+    private final long[] upperLo;
+
+    private MergedIntervals(boolean ipv6, long[] lowerHi, long[] lowerLo, long[] upperHi, long[] upperLo) {
+        this.ipv6 = ipv6;
+        this.lowerHi = lowerHi;
+        this.lowerLo = lowerLo;
+        this.upperHi = upperHi;
+        this.upperLo = upperLo;
+    }
+
+    static MergedIntervals of(Collection<IPRange> ranges, boolean ipv6) {
+        final int count = (int) ranges.stream().filter(r -> r.isIPv6() == ipv6).count();
+        final long[] lowerHi = new long[count];
+        final long[] lowerLo = new long[count];
+        final long[] upperHi = new long[count];
+        final long[] upperLo = new long[count];
+
+        int n = 0;
+        for (IPRange range : ranges) {
+            if (range.isIPv6() == ipv6) {
+                final IPAddress lower = range.getLower();
+                final IPAddress upper = range.getUpper();
+                lowerHi[n] = IPAddressBits.hi(lower);
+                lowerLo[n] = IPAddressBits.lo(lower);
+                upperHi[n] = IPAddressBits.hi(upper);
+                upperLo[n] = IPAddressBits.lo(upper);
+                n++;
+            }
+        }
+
+        final int[] order = new int[count];
+        Arrays.setAll(order, i -> i);
+        IntArrays.quickSort(order, (a, b) -> IPAddressBits.compare(lowerHi[a], lowerLo[a], lowerHi[b], lowerLo[b]));
+
+        int size = 0;
+        final long[] mergedLowerHi = new long[count];
+        final long[] mergedLowerLo = new long[count];
+        final long[] mergedUpperHi = new long[count];
+        final long[] mergedUpperLo = new long[count];
+
+        for (int index : order) {
+            final int last = size - 1;
+            final boolean merge = size > 0
+                    && IPAddressBits.adjoins(lowerHi[index], lowerLo[index], mergedUpperHi[last], mergedUpperLo[last]);
+
+            if (merge) {
+                if (IPAddressBits.compare(upperHi[index], upperLo[index], mergedUpperHi[last], mergedUpperLo[last])
+                        > 0) {
+                    mergedUpperHi[last] = upperHi[index];
+                    mergedUpperLo[last] = upperLo[index];
+                }
+            } else {
+                mergedLowerHi[size] = lowerHi[index];
+                mergedLowerLo[size] = lowerLo[index];
+                mergedUpperHi[size] = upperHi[index];
+                mergedUpperLo[size] = upperLo[index];
+                size++;
+            }
+        }
+
+        return new MergedIntervals(
+                ipv6,
+                ipv6 ? Arrays.copyOf(mergedLowerHi, size) : null,
+                Arrays.copyOf(mergedLowerLo, size),
+                ipv6 ? Arrays.copyOf(mergedUpperHi, size) : null,
+                Arrays.copyOf(mergedUpperLo, size));
+    }
+
+    int size() {
+        return lowerLo.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return lowerLo.length == 0;
+    }
+
+    long lowerHi(int index) {
+        return ipv6 ? lowerHi[index] : 0L;
+    }
+
+    long lowerLo(int index) {
+        return lowerLo[index];
+    }
+
+    long upperHi(int index) {
+        return ipv6 ? upperHi[index] : 0L;
+    }
+
+    long upperLo(int index) {
+        return upperLo[index];
+    }
+
+    @Override
+    public boolean contains(long hi, long lo) {
+        int low = 0;
+        int high = lowerLo.length;
+
+        if (!ipv6) {
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (lowerLo[mid] <= lo) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low > 0 && lo <= upperLo[low - 1];
+        }
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (IPAddressBits.compare(lowerHi[mid], lowerLo[mid], hi, lo) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low > 0 && IPAddressBits.compare(hi, lo, upperHi[low - 1], upperLo[low - 1]) <= 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MergedIntervals)) {
+            return false;
+        }
+
+        final MergedIntervals that = (MergedIntervals) o;
+        return ipv6 == that.ipv6
+                && Arrays.equals(lowerHi, that.lowerHi)
+                && Arrays.equals(lowerLo, that.lowerLo)
+                && Arrays.equals(upperHi, that.upperHi)
+                && Arrays.equals(upperLo, that.upperLo);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Boolean.hashCode(ipv6);
+        result = 31 * result + Arrays.hashCode(lowerHi);
+        result = 31 * result + Arrays.hashCode(lowerLo);
+        result = 31 * result + Arrays.hashCode(upperHi);
+        return 31 * result + Arrays.hashCode(upperLo);
+    }
+}
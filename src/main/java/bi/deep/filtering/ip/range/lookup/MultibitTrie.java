@@ -0,0 +1,166 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range.lookup;
+
+import bi.deep.util.IPAddressBits;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+// Poptrie style IPv6 trie consuming 6 bits per level, each node is two 64 bit maps of fully covered slots and of slots
+// with a child, children are stored contiguously and found by counting the child bits below the slot
+final class MultibitTrie implements IntervalSet {
+    private static final int STRIDE = 6;
+
+    private final MergedIntervals intervals;
+    private final long[] fullBits;
+    private final long[] childBits;
+    private final int[] childBase;
+
+    MultibitTrie(MergedIntervals intervals) {
+        this.intervals = intervals;
+
+        final LongArrayList prefixHi = new LongArrayList();
+        final LongArrayList prefixLo = new LongArrayList();
+        final IntArrayList prefixLength = new IntArrayList();
+
+        // Prefix blocks of sorted disjoint intervals are sorted and disjoint as well
+        for (int i = 0; i < intervals.size(); i++) {
+            IPAddressBits.forEachPrefixBlock(
+                    IPAddressBits.IPV6_BITS,
+                    intervals.lowerHi(i),
+                    intervals.lowerLo(i),
+                    intervals.upperHi(i),
+                    intervals.upperLo(i),
+                    (hi, lo, length) -> {
+                        prefixHi.add(hi);
+                        prefixLo.add(lo);
+                        prefixLength.add(length);
+                    });
+        }
+
+        final LongArrayList full = new LongArrayList();
+        final LongArrayList children = new LongArrayList();
+        final IntArrayList base = new IntArrayList();
+        final IntArrayList nodeFrom = IntArrayList.of(0);
+        final IntArrayList nodeTo = IntArrayList.of(prefixLength.size());
+        final IntArrayList nodeLevel = IntArrayList.of(0);
+
+        // Nodes are processed in creation order, which keeps the children of every node next to each other
+        for (int node = 0; node < nodeLevel.size(); node++) {
+            final int level = nodeLevel.getInt(node);
+            final int to = nodeTo.getInt(node);
+            long nodeFull = 0L;
+            long nodeChildren = 0L;
+            base.add(nodeLevel.size());
+
+            int i = nodeFrom.getInt(node);
+            while (i < to) {
+                final int chunk = chunk(prefixHi.getLong(i), prefixLo.getLong(i), level * STRIDE);
+
+                if (levelOf(prefixLength.getInt(i)) == level) {
+                    nodeFull |= slots(chunk, STRIDE * (level + 1) - prefixLength.getInt(i));
+                    i++;
+                    continue;
+                }
+
+                int j = i + 1;
+                while (j < to
+                        && levelOf(prefixLength.getInt(j)) > level
+                        && chunk(prefixHi.getLong(j), prefixLo.getLong(j), level * STRIDE) == chunk) {
+                    j++;
+                }
+
+                nodeChildren |= 1L << chunk;
+                nodeFrom.add(i);
+                nodeTo.add(j);
+                nodeLevel.add(level + 1);
+                i = j;
+            }
+
+            full.add(nodeFull);
+            children.add(nodeChildren);
+        }
+
+        this.fullBits = full.toLongArray();
+        this.childBits = children.toLongArray();
+        this.childBase = base.toIntArray();
+    }
+
+    // Level of the node holding a prefix, shorter prefixes are expanded over several slots of that node
+    private static int levelOf(int prefixLength) {
+        return prefixLength == 0 ? 0 : (prefixLength - 1) / STRIDE;
+    }
+
+    private static long slots(int chunk, int expandedBits) {
+        return expandedBits == STRIDE ? -1L : ((1L << (1 << expandedBits)) - 1) << chunk;
+    }
+
+    // Bits [offset, offset + 6) of the address, the last level is padded with zeros past the 128th bit
+    private static int chunk(long hi, long lo, int offset) {
+        if (offset + STRIDE <= Long.SIZE) {
+            return (int) (hi >>> (Long.SIZE - STRIDE - offset)) & 0x3F;
+        }
+        if (offset >= Long.SIZE) {
+            final int shift = Long.SIZE - STRIDE - (offset - Long.SIZE);
+            return (int) (shift >= 0 ? lo >>> shift : lo << -shift) & 0x3F;
+        }
+
+        final int hiBits = Long.SIZE - offset;
+        return (int) ((hi << (STRIDE - hiBits)) | (lo >>> (Long.SIZE - STRIDE + hiBits))) & 0x3F;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    @Override
+    public boolean contains(long hi, long lo) {
+        int node = 0;
+
+        for (int offset = 0; offset < IPAddressBits.IPV6_BITS; offset += STRIDE) {
+            final long bit = 1L << chunk(hi, lo, offset);
+
+            if ((fullBits[node] & bit) != 0) {
+                return true;
+            }
+            if ((childBits[node] & bit) == 0) {
+                return false;
+            }
+
+            node = childBase[node] + Long.bitCount(childBits[node] & (bit - 1));
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MultibitTrie)) {
+            return false;
+        }
+
+        return intervals.equals(((MultibitTrie) o).intervals);
+    }
+
+    @Override
+    public int hashCode() {
+        return intervals.hashCode();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range.lookup;
+
+import bi.deep.range.IPRange;
+import bi.deep.util.IPAddressBits;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.ipv4.IPv4Address;
+import inet.ipaddr.ipv4.IPv4AddressTrie;
+import inet.ipaddr.ipv6.IPv6Address;
+import inet.ipaddr.ipv6.IPv6AddressTrie;
+import java.util.Collection;
+import java.util.Objects;
+
+// Binary tries of the prefix blocks spanning each range
+public class TrieIPRangeLookup implements IPRangeLookup {
+    private final IPv4AddressTrie v4Trie = new IPv4AddressTrie();
+    private final IPv6AddressTrie v6Trie = new IPv6AddressTrie();
+
+    public TrieIPRangeLookup(Collection<IPRange> ranges) {
+        ranges.forEach(this::collectRange);
+    }
+
+    private void collectRange(IPRange range) {
+        for (IPAddress block : range.getAddressRange().spanWithPrefixBlocks()) {
+            if (block.isIPv4()) {
+                v4Trie.add((IPv4Address) block);
+            } else {
+                v6Trie.add((IPv6Address) block);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty(boolean ipv6) {
+        return ipv6 ? v6Trie.isEmpty() : v4Trie.isEmpty();
+    }
+
+    @Override
+    public boolean contains(IPAddress address) {
+        if (address.isIPv4()) {
+            return v4Trie.elementContains((IPv4Address) address);
+        }
+        return address.isIPv6() && v6Trie.elementContains((IPv6Address) address);
+    }
+
+    @Override
+    public boolean contains(boolean ipv6, long hi, long lo) {
+        return contains(IPAddressBits.toAddress(ipv6, hi, lo));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TrieIPRangeLookup)) {
+            return false;
+        }
+
+        final TrieIPRangeLookup that = (TrieIPRangeLookup) o;
+        return Objects.equals(v4Trie, that.v4Trie) && Objects.equals(v6Trie, that.v6Trie);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(v4Trie, v6Trie);
+    }
+}
@@ -15,9 +15,12 @@
  */
 package bi.deep.guice;
 
+import bi.deep.entity.dimension.IPAddressColumnPartSerde;
+import bi.deep.entity.dimension.IPAddressDimensionSchema;
 import bi.deep.entity.dimension.IPRangeArrayDimensionHandler;
 import bi.deep.entity.dimension.IPRangeArrayDimensionSchema;
 import bi.deep.entity.dimension.IPRangeArraySerde;
+import bi.deep.entity.dimension.IPRangeColumnPartSerde;
 import bi.deep.entity.dimension.IPRangeDimensionHandler;
 import bi.deep.entity.dimension.IPRangeDimensionSchema;
 import bi.deep.entity.dimension.IPRangeSerde;
@@ -41,6 +44,8 @@ import org.apache.druid.segment.serde.ComplexMetrics;
 public class IPRangeDimensionModule implements DruidModule {
     public static final String TYPE_NAME = "ipRange";
     public static final String ARRAY_TYPE_NAME = "ipRangeArray";
+    public static final String ADDRESS_TYPE_NAME = "ipAddress";
+    public static final String OPTIONS_TYPE_NAME = "ipRangeOptions";
     public static final ColumnType TYPE = ColumnType.ofComplex(TYPE_NAME);
     public static final ColumnType ARRAY_TYPE = ColumnType.ofComplex(ARRAY_TYPE_NAME);
 
@@ -57,6 +62,9 @@ public class IPRangeDimensionModule implements DruidModule {
         return Collections.singletonList(new SimpleModule(getClass().getSimpleName())
                 .registerSubtypes(IPRangeDimensionSchema.class)
                 .registerSubtypes(IPRangeArrayDimensionSchema.class)
+                .registerSubtypes(IPAddressDimensionSchema.class)
+                .registerSubtypes(IPAddressColumnPartSerde.class)
+                .registerSubtypes(IPRangeColumnPartSerde.class)
                 .registerSubtypes(IPNativeRangeMatchingFilter.class)
                 .registerSubtypes(IPNativeRangeArrayFilteredDimensionSpec.class)
                 .registerSubtypes(IPNativeRangeArrayFilteredVirtualColumn.class));
@@ -15,18 +15,26 @@
  */
 package bi.deep.matching;
 
+import static inet.ipaddr.Address.ADDRESS_LOW_VALUE_COMPARATOR;
+
+import bi.deep.entity.index.IPRangeIndexes;
 import bi.deep.guice.IPRangeDimensionModule;
 import bi.deep.util.IPRangeUtil;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.google.common.base.Preconditions;
+import inet.ipaddr.IPAddress;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
 import org.apache.druid.query.cache.CacheKeyBuilder;
 import org.apache.druid.query.dimension.DefaultDimensionSpec;
 import org.apache.druid.query.dimension.DimensionSpec;
+import org.apache.druid.query.filter.ColumnIndexSelector;
 import org.apache.druid.segment.ColumnInspector;
 import org.apache.druid.segment.ColumnSelectorFactory;
 import org.apache.druid.segment.ColumnValueSelector;
@@ -34,6 +42,7 @@ import org.apache.druid.segment.DimensionSelector;
 import org.apache.druid.segment.VirtualColumn;
 import org.apache.druid.segment.column.ColumnCapabilities;
 import org.apache.druid.segment.column.ColumnCapabilitiesImpl;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
 import org.apache.druid.segment.column.ColumnType;
 
 @JsonTypeName("ip-native-filtered")
@@ -84,6 +93,37 @@ public class IPNativeRangeArrayFilteredVirtualColumn implements VirtualColumn {
         return makeDimensionSelector(DefaultDimensionSpec.of(columnName), factory);
     }
 
+    // The output holds a value only when the delegate row contains it, so the delegate index answers for our values
+    @Nullable
+    @Override
+    public ColumnIndexSupplier getIndexSupplier(String columnName, ColumnIndexSelector columnIndexSelector) {
+        final ColumnIndexSupplier delegateSupplier = columnIndexSelector.getIndexSupplier(delegate.getDimension());
+        final IPRangeIndexes delegateIndexes =
+                delegateSupplier == null ? null : delegateSupplier.as(IPRangeIndexes.class);
+
+        if (delegateIndexes == null) {
+            return null;
+        }
+
+        final SortedSet<IPAddress> values = new TreeSet<>(ADDRESS_LOW_VALUE_COMPARATOR);
+        values.addAll(IPRangeUtil.mapStringsToIps(ips));
+
+        final IPRangeIndexes indexes = (addresses, bitmapFactory) -> {
+            final SortedSet<IPAddress> matching = new TreeSet<>(ADDRESS_LOW_VALUE_COMPARATOR);
+            addresses.stream().filter(values::contains).forEach(matching::add);
+            return delegateIndexes.forAddresses(matching, bitmapFactory);
+        };
+
+        return new ColumnIndexSupplier() {
+            @Nullable
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T as(Class<T> clazz) {
+                return clazz.equals(IPRangeIndexes.class) ? (T) indexes : null;
+            }
+        };
+    }
+
     @Override
     public ColumnCapabilities capabilities(String columnName) {
         return new ColumnCapabilitiesImpl().setType(ColumnType.STRING).setHasMultipleValues(true);
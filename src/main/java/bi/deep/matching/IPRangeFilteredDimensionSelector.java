@@ -15,116 +15,187 @@
  */
 package bi.deep.matching;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
+import bi.deep.entity.IPSetContents;
+import bi.deep.util.IPRangeUtil;
+import inet.ipaddr.IPAddress;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.TreeMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import org.apache.druid.java.util.common.logger.Logger;
-import org.apache.druid.query.filter.DruidObjectPredicate;
 import org.apache.druid.query.filter.DruidPredicateFactory;
 import org.apache.druid.query.filter.ValueMatcher;
 import org.apache.druid.query.monomorphicprocessing.RuntimeShapeInspector;
 import org.apache.druid.segment.AbstractDimensionSelector;
 import org.apache.druid.segment.DimensionSelector;
+import org.apache.druid.segment.DimensionSelectorUtils;
 import org.apache.druid.segment.IdLookup;
+import org.apache.druid.segment.data.ArrayBasedIndexedInts;
 import org.apache.druid.segment.data.IndexedInts;
-import org.apache.druid.segment.data.ZeroIndexedInts;
 
+// Multi-value selector over a fixed dictionary made of the requested IPs, sorted by name
 public class IPRangeFilteredDimensionSelector extends AbstractDimensionSelector {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private static final Logger log = new Logger(IPRangeFilteredDimensionSelector.class);
+    private static final int MAX_ARRAY_CACHE_SIZE = 1 << 20;
+    private static final int[] NO_MATCHES = new int[0];
 
     protected final DimensionSelector baseSelector;
-    private final IPRangeFilteredExtractionFn extractionFn;
+    private final IPAddress[] addresses;
+    private final String[] names;
+    private final Object2IntMap<String> ids = new Object2IntOpenHashMap<>();
+    private final ArrayBasedIndexedInts row = new ArrayBasedIndexedInts();
+    private final boolean[] seen;
+    private final int[] merged;
 
-    public IPRangeFilteredDimensionSelector(DimensionSelector baseSelector, IPRangeFilteredExtractionFn extractionFn) {
+    // Matches per delegate dictionary id, only used when the delegate ids identify values across rows
+    private final boolean cacheById;
+
+    @Nullable
+    private final int[][] cachedMatches;
+
+    private final Int2ObjectMap<int[]> cachedMatchesMap = new Int2ObjectOpenHashMap<>();
+
+    public IPRangeFilteredDimensionSelector(DimensionSelector baseSelector, List<IPAddress> ips) {
         this.baseSelector = baseSelector;
-        this.extractionFn = extractionFn;
+
+        final Map<String, IPAddress> dictionary = new TreeMap<>();
+        ips.forEach(ip -> dictionary.put(ip.toString(), ip));
+
+        this.names = dictionary.keySet().toArray(new String[0]);
+        this.addresses = dictionary.values().toArray(new IPAddress[0]);
+        this.seen = new boolean[names.length];
+        this.merged = new int[names.length];
+        this.ids.defaultReturnValue(-1);
+
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+        }
+
+        this.cacheById = baseSelector.nameLookupPossibleInAdvance();
+
+        final int cardinality = baseSelector.getValueCardinality();
+        this.cachedMatches = cacheById && cardinality != CARDINALITY_UNKNOWN && cardinality <= MAX_ARRAY_CACHE_SIZE
+                ? new int[cardinality][]
+                : null;
     }
 
     @Override
     @Nonnull
     public IndexedInts getRow() {
-        return ZeroIndexedInts.instance();
+        final IndexedInts baseRow = baseSelector.getRow();
+        final int size = baseRow.size();
+
+        if (size == 1) {
+            final int[] matches = getMatches(baseRow.get(0));
+            row.setValues(matches, matches.length);
+            return row;
+        }
+
+        // Multi-value delegate rows hold the union of their values' matches
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            for (int id : getMatches(baseRow.get(i))) {
+                if (!seen[id]) {
+                    seen[id] = true;
+                    merged[count++] = id;
+                }
+            }
+        }
+
+        Arrays.sort(merged, 0, count);
+        for (int i = 0; i < count; i++) {
+            seen[merged[i]] = false;
+        }
+
+        row.setValues(merged, count);
+        return row;
     }
 
-    @Override
-    @Nonnull
-    public ValueMatcher makeValueMatcher(@Nullable String value) {
-        return new ValueMatcher() {
-            @Override
-            public boolean matches(boolean includeUnknown) {
-                String extractionResult = getObject();
+    private int[] getMatches(int baseId) {
+        if (!cacheById) {
+            return computeMatches(baseSelector.lookupName(baseId));
+        }
 
-                if (extractionResult == null) {
-                    return includeUnknown || value == null;
-                }
+        final boolean inArray = cachedMatches != null && baseId < cachedMatches.length;
+        int[] matches = inArray ? cachedMatches[baseId] : cachedMatchesMap.get(baseId);
 
-                if (extractionResult.startsWith("[") && extractionResult.endsWith("]")) {
-                    try {
-                        List<String> array = OBJECT_MAPPER.readValue(extractionResult, new TypeReference<>() {});
-                        return array.stream().anyMatch(x -> (includeUnknown && x == null) || Objects.equals(x, value));
-                    } catch (IOException e) {
-                        log.warn(e, "Failed to parse JSON array, returning false: %s", extractionResult);
-                        return false;
-                    }
-                }
+        if (matches == null) {
+            matches = computeMatches(baseSelector.lookupName(baseId));
 
-                return Objects.equals(extractionResult, value);
+            if (inArray) {
+                cachedMatches[baseId] = matches;
+            } else {
+                cachedMatchesMap.put(baseId, matches);
             }
+        }
 
-            @Override
-            public void inspectRuntimeShape(RuntimeShapeInspector inspector) {
-                inspector.visit("selector", baseSelector);
+        return matches;
+    }
+
+    private int[] computeMatches(@Nullable String value) {
+        if (value == null) {
+            return NO_MATCHES;
+        }
+
+        final IPSetContents contents = IPRangeUtil.extractIPSetContents(value);
+
+        if (contents.isEmpty()) {
+            return NO_MATCHES;
+        }
+
+        int count = 0;
+        final int[] matches = new int[addresses.length];
+
+        for (int i = 0; i < addresses.length; i++) {
+            if (contents.contains(addresses[i], false)) {
+                matches[count++] = i;
             }
-        };
+        }
+
+        return count == 0 ? NO_MATCHES : Arrays.copyOf(matches, count);
     }
 
     @Override
     @Nonnull
-    public ValueMatcher makeValueMatcher(@Nonnull DruidPredicateFactory predicateFactory) {
-        return new ValueMatcher() {
-            @Override
-            public boolean matches(boolean includeUnknown) {
-                final DruidObjectPredicate<String> predicate = predicateFactory.makeStringPredicate();
-                String extractionResult = getObject();
-                if (extractionResult == null) {
-                    return predicate.apply(null).matches(includeUnknown);
-                }
-                if (extractionResult.startsWith("[") && extractionResult.endsWith("]")) {
-                    try {
-                        List<String> elements = OBJECT_MAPPER.readValue(extractionResult, new TypeReference<>() {});
-                        return elements.stream()
-                                .anyMatch(x -> predicate.apply(x).matches(includeUnknown));
-                    } catch (IOException e) {
-                        log.warn(e, "Failed to parse JSON array, returning false: %s", extractionResult);
-                        return false;
-                    }
-                }
-
-                return predicate.apply(extractionResult).matches(includeUnknown);
-            }
+    public ValueMatcher makeValueMatcher(@Nullable String value) {
+        return DimensionSelectorUtils.makeValueMatcherGeneric(this, value);
+    }
 
-            @Override
-            public void inspectRuntimeShape(RuntimeShapeInspector inspector) {
-                inspector.visit("selector", baseSelector);
-                inspector.visit("predicate", predicateFactory);
-            }
-        };
+    @Override
+    @Nonnull
+    public ValueMatcher makeValueMatcher(@Nonnull DruidPredicateFactory predicateFactory) {
+        return DimensionSelectorUtils.makeValueMatcherGeneric(this, predicateFactory);
     }
 
     @Override
     public void inspectRuntimeShape(RuntimeShapeInspector inspector) {
-        baseSelector.inspectRuntimeShape(inspector);
+        inspector.visit("baseSelector", baseSelector);
     }
 
     @Nullable
     @Override
-    public String getObject() {
-        return extractionFn.apply(Objects.toString(baseSelector.getObject(), ""));
+    public Object getObject() {
+        final IndexedInts current = getRow();
+        final int size = current.size();
+
+        if (size == 0) {
+            return null;
+        }
+
+        if (size == 1) {
+            return names[current.get(0)];
+        }
+
+        final List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(names[current.get(i)]);
+        }
+        return values;
     }
 
     @Override
@@ -135,23 +206,23 @@ public class IPRangeFilteredDimensionSelector extends AbstractDimensionSelector
 
     @Override
     public int getValueCardinality() {
-        return CARDINALITY_UNKNOWN;
+        return names.length;
     }
 
     @Nullable
     @Override
     public String lookupName(int id) {
-        return getObject();
+        return names[id];
     }
 
     @Override
     public boolean nameLookupPossibleInAdvance() {
-        return false;
+        return true;
     }
 
     @Nullable
     @Override
     public IdLookup idLookup() {
-        return null;
+        return name -> name == null ? -1 : ids.getInt(name);
     }
 }
@@ -50,8 +50,7 @@ public class IPRangeFilteredDimensionSpec implements DimensionSpec {
     }
 
     public static DimensionSelector makeDimensionSelector(Set<String> values, DimensionSelector valueSelector) {
-        return new IPRangeFilteredDimensionSelector(
-                valueSelector, new IPRangeFilteredExtractionFn(IPRangeUtil.mapStringsToIps(values)));
+        return new IPRangeFilteredDimensionSelector(valueSelector, IPRangeUtil.mapStringsToIps(values));
     }
 
     @JsonProperty("delegate")
@@ -88,7 +88,12 @@ public class IPRangeFilteredVirtualColumn implements VirtualColumn {
 
     @Override
     public ColumnCapabilities capabilities(ColumnInspector inspector, String columnName) {
-        return inspector.getColumnCapabilities(delegate.getDimension());
+        return new ColumnCapabilitiesImpl()
+                .setType(ColumnType.STRING)
+                .setHasMultipleValues(true)
+                .setDictionaryEncoded(true)
+                .setDictionaryValuesSorted(true)
+                .setDictionaryValuesUnique(true);
     }
 
     @Override
@@ -17,6 +17,7 @@ package bi.deep.range;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import bi.deep.util.IPAddressBits;
 import com.google.common.annotations.VisibleForTesting;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressSeqRange;
@@ -27,6 +28,8 @@ import javax.annotation.Nullable;
 import org.apache.druid.java.util.common.IAE;
 
 public class IPBoundedRange {
+    private static final long IPV4_MAX = 0xFFFFFFFFL;
+
     private final boolean lowerOpen;
     private final boolean upperOpen;
 
@@ -34,6 +37,12 @@ public class IPBoundedRange {
     private final IPAddress upperIPAddress;
     private final IPAddress.IPVersion ipVersion;
 
+    // Bounds as unsigned hi/lo halves, a missing bound is the lowest or highest address of the version
+    private final long lowerHi;
+    private final long lowerLo;
+    private final long upperHi;
+    private final long upperLo;
+
     @JsonCreator
     public IPBoundedRange(
             @JsonProperty("lower") @Nullable String lower,
@@ -69,6 +78,12 @@ public class IPBoundedRange {
         this.upperOpen = upperOpen;
         this.ipVersion =
                 this.lowerIPAddress != null ? this.lowerIPAddress.getIPVersion() : this.upperIPAddress.getIPVersion();
+
+        final long maxLo = ipVersion.isIPv4() ? IPV4_MAX : -1L;
+        this.lowerHi = lowerIPAddress == null ? 0L : IPAddressBits.hi(lowerIPAddress);
+        this.lowerLo = lowerIPAddress == null ? 0L : IPAddressBits.lo(lowerIPAddress);
+        this.upperHi = upperIPAddress == null ? (ipVersion.isIPv4() ? 0L : -1L) : IPAddressBits.hi(upperIPAddress);
+        this.upperLo = upperIPAddress == null ? maxLo : IPAddressBits.lo(upperIPAddress);
     }
 
     public IPBoundedRange(IPAddressSeqRange range, boolean lowerOpen, boolean upperOpen) {
@@ -103,6 +118,10 @@ public class IPBoundedRange {
         return upperIPAddress;
     }
 
+    public boolean isIPv6() {
+        return ipVersion.isIPv6();
+    }
+
     private boolean matchUpperBound(IPAddress ipValue) {
         return upperIPAddress == null || upperOpen
                 ? ipValue.compareTo(upperIPAddress) < 0
@@ -122,6 +141,16 @@ public class IPBoundedRange {
                 : matchLowerBound(ipAddress) && matchUpperBound(ipAddress);
     }
 
+    public boolean contains(boolean ipv6, long hi, long lo, boolean ignoreVersionMismatch) {
+        if (ipv6 != ipVersion.isIPv6()) {
+            return ignoreVersionMismatch;
+        }
+
+        final int lowerCmp = IPAddressBits.compare(hi, lo, lowerHi, lowerLo);
+        final int upperCmp = IPAddressBits.compare(hi, lo, upperHi, upperLo);
+        return (lowerOpen ? lowerCmp > 0 : lowerCmp >= 0) && (upperOpen ? upperCmp < 0 : upperCmp <= 0);
+    }
+
     @VisibleForTesting
     public boolean containsAnyIP(List<IPAddress> ipAddress, boolean ignoreVersionMismatch) {
         return ipAddress.stream().anyMatch(address -> contains(address, ignoreVersionMismatch));
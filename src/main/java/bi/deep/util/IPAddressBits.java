@@ -0,0 +1,170 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.util;
+
+import bi.deep.entity.dimension.IPRangeConsumer;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.format.IPAddressRange;
+import inet.ipaddr.ipv4.IPv4Address;
+import inet.ipaddr.ipv6.IPv6Address;
+
+// Addresses as two unsigned 64-bit halves, IPv4 addresses only use the low half
+public final class IPAddressBits {
+    public static final int IPV4_BITS = 32;
+    public static final int IPV6_BITS = 128;
+
+    private IPAddressBits() {
+        throw new AssertionError("No bi.deep.util.IPAddressBits instances for you!");
+    }
+
+    public static long hi(IPAddress address) {
+        return address.isIPv4() ? 0L : toLong(address.getBytes(), 0);
+    }
+
+    public static long lo(IPAddress address) {
+        return address.isIPv4() ? ((IPv4Address) address).longValue() : toLong(address.getBytes(), Long.BYTES);
+    }
+
+    public static IPAddress toAddress(boolean ipv6, long hi, long lo) {
+        if (!ipv6) {
+            return new IPv4Address((int) lo);
+        }
+
+        final byte[] bytes = new byte[IPv6Address.BYTE_COUNT];
+        for (int i = 0; i < Long.BYTES; i++) {
+            bytes[i] = (byte) (hi >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+            bytes[Long.BYTES + i] = (byte) (lo >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+        }
+        return new IPv6Address(bytes);
+    }
+
+    public static int compare(long hiA, long loA, long hiB, long loB) {
+        final int cmp = Long.compareUnsigned(hiA, hiB);
+        return cmp != 0 ? cmp : Long.compareUnsigned(loA, loB);
+    }
+
+    // True when the address is at most one past prev, so ranges ending at prev and starting at it can be merged
+    public static boolean adjoins(long hi, long lo, long prevHi, long prevLo) {
+        if (prevHi == -1L && prevLo == -1L) {
+            return true;
+        }
+
+        final long nextLo = prevLo + 1;
+        final long nextHi = nextLo == 0 ? prevHi + 1 : prevHi;
+        return compare(hi, lo, nextHi, nextLo) <= 0;
+    }
+
+    public static void accept(IPAddressRange range, IPRangeConsumer consumer) {
+        final IPAddress lower = range.getLower();
+        final IPAddress upper = range.getUpper();
+        consumer.accept(lower.isIPv6(), hi(lower), lo(lower), hi(upper), lo(upper));
+    }
+
+    // Network of the address for the given prefix length, bits is 32 for IPv4 and 128 for IPv6
+    public static long maskHi(int bits, long hi, int prefixLength) {
+        return bits == IPV4_BITS ? 0L : hi & ~lowMask(Long.SIZE - prefixLength);
+    }
+
+    public static long maskLo(int bits, long lo, int prefixLength) {
+        return lo & ~lowMask(bits - prefixLength);
+    }
+
+    // Last address of the prefix block starting at the given network
+    public static long blockUpperHi(int bits, long hi, int prefixLength) {
+        return bits == IPV4_BITS ? 0L : hi | lowMask(Long.SIZE - prefixLength);
+    }
+
+    public static long blockUpperLo(int bits, long lo, int prefixLength) {
+        return lo | lowMask(bits - prefixLength);
+    }
+
+    // Prefix length when [lower, upper] is exactly one aligned prefix block, -1 otherwise
+    public static int prefixLength(int bits, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+        final long hostHi = lowerHi ^ upperHi;
+        final long hostLo = lowerLo ^ upperLo;
+        final boolean lowOnes =
+                hostHi == 0 ? (hostLo & (hostLo + 1)) == 0 : hostLo == -1L && (hostHi & (hostHi + 1)) == 0;
+
+        if (!lowOnes || (lowerHi & hostHi) != 0 || (lowerLo & hostLo) != 0) {
+            return -1;
+        }
+
+        return bits - Long.bitCount(hostHi) - Long.bitCount(hostLo);
+    }
+
+    // Splits [lower, upper] into the minimal list of aligned prefix blocks
+    public static void forEachPrefixBlock(
+            int bits, long lowerHi, long lowerLo, long upperHi, long upperLo, PrefixBlockConsumer consumer) {
+        long hi = lowerHi;
+        long lo = lowerLo;
+
+        while (true) {
+            int size = trailingZeros(bits, hi, lo);
+            long endHi = blockEndHi(hi, size);
+            long endLo = blockEndLo(lo, size);
+
+            while (compare(endHi, endLo, upperHi, upperLo) > 0) {
+                size--;
+                endHi = blockEndHi(hi, size);
+                endLo = blockEndLo(lo, size);
+            }
+
+            consumer.accept(hi, lo, bits - size);
+
+            if (endHi == upperHi && endLo == upperLo) {
+                return;
+            }
+
+            lo = endLo + 1;
+            hi = lo == 0 ? endHi + 1 : endHi;
+        }
+    }
+
+    private static int trailingZeros(int bits, long hi, long lo) {
+        if (lo != 0) {
+            return Math.min(bits, Long.numberOfTrailingZeros(lo));
+        }
+        return bits == IPV4_BITS || hi == 0 ? bits : Long.SIZE + Long.numberOfTrailingZeros(hi);
+    }
+
+    private static long blockEndHi(long hi, int size) {
+        return size > Long.SIZE ? hi | lowMask(size - Long.SIZE) : hi;
+    }
+
+    private static long blockEndLo(long lo, int size) {
+        return lo | lowMask(size);
+    }
+
+    private static long lowMask(int size) {
+        if (size <= 0) {
+            return 0L;
+        }
+        return size >= Long.SIZE ? -1L : (1L << size) - 1;
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = (value << 8) | (bytes[i] & 0xFFL);
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    public interface PrefixBlockConsumer {
+        void accept(long networkHi, long networkLo, int prefixLength);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.util;
+
+import javax.annotation.Nullable;
+
+// Parses plain dotted IPv4 and hex IPv6 (with "::" and an embedded IPv4 tail) straight into primitives.
+// Anything else is reported as unsupported and left to inet.ipaddr, except strings holding letters that
+// no IP address form can contain, which are rejected without parsing. Not thread safe, keeps the last result.
+public final class IPAddressParser {
+    public enum Result {
+        ADDRESS,
+        NOT_ADDRESS,
+        UNSUPPORTED
+    }
+
+    private static final int IPV6_GROUPS = 8;
+    private static final int GROUP_BITS = 16;
+    private static final int MAX_IPV4_DIGITS = 3;
+    private static final int MAX_IPV6_DIGITS = 4;
+    // Base 85 IPv6 addresses are the only form that may contain any letter
+    private static final int BASE85_LENGTH = 20;
+
+    private boolean ipv6;
+    private long hi;
+    private long lo;
+
+    public Result parse(@Nullable CharSequence value) {
+        if (value == null || value.length() == 0) {
+            return Result.UNSUPPORTED;
+        }
+
+        final int length = value.length();
+        boolean colon = false;
+        boolean other = false;
+
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if (c == ':') {
+                colon = true;
+            } else if (c == '%') {
+                // Zones may contain any character
+                return Result.UNSUPPORTED;
+            } else if (isForeignLetter(c)) {
+                return length == BASE85_LENGTH ? Result.UNSUPPORTED : Result.NOT_ADDRESS;
+            } else if (c != '.' && hexDigit(c) < 0) {
+                other = true;
+            }
+        }
+
+        if (other) {
+            return Result.UNSUPPORTED;
+        }
+
+        if (!colon) {
+            final long address = parseIPv4(value, 0, length);
+
+            if (address < 0) {
+                return Result.UNSUPPORTED;
+            }
+
+            ipv6 = false;
+            hi = 0L;
+            lo = address;
+            return Result.ADDRESS;
+        }
+
+        return parseIPv6(value, length) ? Result.ADDRESS : Result.UNSUPPORTED;
+    }
+
+    public boolean isIPv6() {
+        return ipv6;
+    }
+
+    public long getHi() {
+        return hi;
+    }
+
+    public long getLo() {
+        return lo;
+    }
+
+    // Dotted decimal with exactly four octets of up to three digits, -1 when malformed
+    private static long parseIPv4(CharSequence value, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int i = start;
+
+        while (true) {
+            int digits = 0;
+            int octet = 0;
+
+            while (i < end && isDigit(value.charAt(i))) {
+                if (++digits > MAX_IPV4_DIGITS) {
+                    return -1;
+                }
+                octet = octet * 10 + (value.charAt(i++) - '0');
+            }
+
+            if (digits == 0 || octet > 255) {
+                return -1;
+            }
+
+            address = (address << Byte.SIZE) | octet;
+            octets++;
+
+            if (i == end) {
+                return octets == Integer.BYTES ? address : -1;
+            }
+
+            if (value.charAt(i) != '.' || octets == Integer.BYTES) {
+                return -1;
+            }
+            i++;
+        }
+    }
+
+    private boolean parseIPv6(CharSequence value, int length) {
+        long headHi = 0;
+        long headLo = 0;
+        long tailHi = 0;
+        long tailLo = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+        int i = 0;
+
+        if (value.charAt(0) == ':') {
+            if (length < 2 || value.charAt(1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i = 2;
+        }
+
+        while (i < length) {
+            final int groupStart = i;
+            int group = 0;
+            int digits = 0;
+
+            while (i < length && digits <= MAX_IPV6_DIGITS && hexDigit(value.charAt(i)) >= 0) {
+                group = (group << 4) | hexDigit(value.charAt(i++));
+                digits++;
+            }
+
+            final boolean embeddedIPv4 = i < length && value.charAt(i) == '.';
+            final int groups = embeddedIPv4 ? 2 : 1;
+
+            if (headGroups + tailGroups + groups > IPV6_GROUPS) {
+                return false;
+            }
+
+            final long bits;
+            if (embeddedIPv4) {
+                bits = parseIPv4(value, groupStart, length);
+                i = length;
+            } else {
+                bits = digits == 0 || digits > MAX_IPV6_DIGITS ? -1 : group;
+            }
+
+            if (bits < 0) {
+                return false;
+            }
+
+            final int shift = GROUP_BITS * groups;
+            if (compressed) {
+                tailHi = (tailHi << shift) | (tailLo >>> (Long.SIZE - shift));
+                tailLo = (tailLo << shift) | bits;
+                tailGroups += groups;
+            } else {
+                headHi = (headHi << shift) | (headLo >>> (Long.SIZE - shift));
+                headLo = (headLo << shift) | bits;
+                headGroups += groups;
+            }
+
+            if (i == length) {
+                break;
+            }
+
+            if (value.charAt(i++) != ':' || i == length) {
+                return false;
+            }
+
+            if (value.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+
+        if (compressed ? headGroups + tailGroups >= IPV6_GROUPS : headGroups != IPV6_GROUPS) {
+            return false;
+        }
+
+        // The head groups sit on top, the compressed zero groups and the tail groups below them
+        final int shift = GROUP_BITS * (IPV6_GROUPS - headGroups);
+        if (shift >= Long.SIZE * 2) {
+            headHi = 0;
+            headLo = 0;
+        } else if (shift >= Long.SIZE) {
+            headHi = headLo << (shift - Long.SIZE);
+            headLo = 0;
+        } else if (shift > 0) {
+            headHi = (headHi << shift) | (headLo >>> (Long.SIZE - shift));
+            headLo = headLo << shift;
+        }
+
+        ipv6 = true;
+        hi = headHi | tailHi;
+        lo = headLo | tailLo;
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    // Letters outside hex digits and the "0x" prefix
+    private static boolean isForeignLetter(char c) {
+        return ((c >= 'g' && c <= 'z') || (c >= 'G' && c <= 'Z')) && c != 'x' && c != 'X';
+    }
+}
@@ -38,6 +38,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.druid.error.InvalidInput;
@@ -50,6 +51,9 @@ public final class IPRangeUtil {
     private static final Pattern CIDR_REGEX = Pattern.compile("^[0-9A-Fa-f:.]+/\\d+$");
     private static final Pattern IP_REGEX = Pattern.compile("^[0-9A-Fa-f:.]+$");
     private static final int PARALLEL_LIMIT = 200;
+    public static final int SORTABLE_IPV4_LENGTH = 15;
+    public static final int SORTABLE_IPV6_LENGTH = 39;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     private IPRangeUtil() {
         throw new AssertionError("No bi.deep.util.IPRangeUtil instances for you!");
@@ -102,6 +106,64 @@ public final class IPRangeUtil {
         return ip;
     }
 
+    // Fixed width form (zero padded octets, full lowercase hextets) whose lexicographical order is the numeric order
+    @Nullable
+    public static String toSortableString(@Nullable Object value) {
+        if (value == null || StringUtils.isBlank(value.toString())) {
+            return null;
+        }
+
+        final IPAddress address = parseIPAddress(value.toString().trim(), "Invalid IP address '%s'.");
+
+        if (address.isMultiple()) {
+            throw InvalidInput.exception("Expected a single IP address but got '%s'.", value);
+        }
+
+        return toSortableString(address);
+    }
+
+    public static String toSortableString(IPAddress address) {
+        final byte[] bytes = address.getBytes();
+
+        if (address.isIPv4()) {
+            final char[] chars = new char[SORTABLE_IPV4_LENGTH];
+            for (int i = 0, pos = 0; i < bytes.length; i++) {
+                final int octet = bytes[i] & 0xFF;
+                if (i > 0) chars[pos++] = '.';
+                chars[pos++] = (char) ('0' + octet / 100);
+                chars[pos++] = (char) ('0' + octet / 10 % 10);
+                chars[pos++] = (char) ('0' + octet % 10);
+            }
+            return new String(chars);
+        }
+
+        final char[] chars = new char[SORTABLE_IPV6_LENGTH];
+        for (int i = 0, pos = 0; i < bytes.length; i++) {
+            if (i > 0 && i % 2 == 0) chars[pos++] = ':';
+            chars[pos++] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[pos++] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    public static boolean isSortableIPv4(@Nullable String value) {
+        if (value == null || value.length() != SORTABLE_IPV4_LENGTH) return false;
+        for (int i = 0; i < SORTABLE_IPV4_LENGTH; i++) {
+            final char c = value.charAt(i);
+            if (i % 4 == 3 ? c != '.' : c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    public static boolean isSortableIPv6(@Nullable String value) {
+        if (value == null || value.length() != SORTABLE_IPV6_LENGTH) return false;
+        for (int i = 0; i < SORTABLE_IPV6_LENGTH; i++) {
+            final char c = value.charAt(i);
+            if (i % 5 == 4 ? c != ':' : (c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+        }
+        return true;
+    }
+
     public static int getSize(IPAddressRange range) {
         if (range == null) return 0;
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.util;
+
+import inet.ipaddr.IPAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+// Query addresses as sorted primitive arrays per version, looked up with a binary search
+public final class SortedIPAddresses {
+    private final long[] ipv4;
+    private final long[] ipv6Hi;
+    private final long[] ipv6Lo;
+
+    private SortedIPAddresses(long[] ipv4, long[] ipv6Hi, long[] ipv6Lo) {
+        this.ipv4 = ipv4;
+        this.ipv6Hi = ipv6Hi;
+        this.ipv6Lo = ipv6Lo;
+    }
+
+    public static SortedIPAddresses of(Collection<IPAddress> addresses) {
+        final long[] ipv4 = addresses.stream()
+                .filter(IPAddress::isIPv4)
+                .mapToLong(IPAddressBits::lo)
+                .sorted()
+                .distinct()
+                .toArray();
+        final IPAddress[] ipv6 = addresses.stream().filter(IPAddress::isIPv6).toArray(IPAddress[]::new);
+        final long[] hi = Arrays.stream(ipv6).mapToLong(IPAddressBits::hi).toArray();
+        final long[] lo = Arrays.stream(ipv6).mapToLong(IPAddressBits::lo).toArray();
+        final int[] order = IntStream.range(0, ipv6.length)
+                .boxed()
+                .sorted((a, b) -> IPAddressBits.compare(hi[a], lo[a], hi[b], lo[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        return new SortedIPAddresses(
+                ipv4,
+                Arrays.stream(order).mapToLong(i -> hi[i]).toArray(),
+                Arrays.stream(order).mapToLong(i -> lo[i]).toArray());
+    }
+
+    public int size(boolean ipv6) {
+        return ipv6 ? ipv6Hi.length : ipv4.length;
+    }
+
+    public long hi(boolean ipv6, int index) {
+        return ipv6 ? ipv6Hi[index] : 0L;
+    }
+
+    public long lo(boolean ipv6, int index) {
+        return ipv6 ? ipv6Lo[index] : ipv4[index];
+    }
+
+    public boolean isEmpty() {
+        return ipv4.length == 0 && ipv6Hi.length == 0;
+    }
+
+    public boolean contains(boolean ipv6, long hi, long lo) {
+        return anyWithin(ipv6, hi, lo, hi, lo);
+    }
+
+    // True when any address of the given version is within [lower, upper]
+    public boolean anyWithin(boolean ipv6, long lowerHi, long lowerLo, long upperHi, long upperLo) {
+        if (!ipv6) {
+            final int index = lowerBound(ipv4, lowerLo);
+            return index < ipv4.length && ipv4[index] <= upperLo;
+        }
+
+        int low = 0;
+        int high = ipv6Hi.length;
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (IPAddressBits.compare(ipv6Hi[mid], ipv6Lo[mid], lowerHi, lowerLo) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low < ipv6Hi.length && IPAddressBits.compare(ipv6Hi[low], ipv6Lo[low], upperHi, upperLo) <= 0;
+    }
+
+    private static int lowerBound(long[] values, long key) {
+        final int index = Arrays.binarySearch(values, key);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -16,6 +16,7 @@
 package bi.deep.benchmarks;
 
 import bi.deep.filtering.ip.range.impl.MultiRangeIPFilterImpl;
+import bi.deep.filtering.ip.range.lookup.IPRangeEngine;
 import bi.deep.range.IPRange;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
@@ -44,13 +45,18 @@ public class BenchMultiRangeIPFilter {
         System.out.println("\n--- Ranges: " + rangeCount + " ---");
 
         Set<IPRange> ranges = genRanges(rangeCount);
+        IPAddress[] rows = genRows(ranges, (int) ROWS);
+
+        for (IPRangeEngine engine : IPRangeEngine.values()) {
+            runEngine(engine, ranges, rows);
+        }
+    }
 
+    private static void runEngine(IPRangeEngine engine, Set<IPRange> ranges, IPAddress[] rows) {
         long t0 = System.nanoTime();
-        MultiRangeIPFilterImpl filter = new MultiRangeIPFilterImpl("col", ranges, false);
+        MultiRangeIPFilterImpl filter = new MultiRangeIPFilterImpl("col", ranges, false, engine);
         long buildNs = System.nanoTime() - t0;
-        System.out.printf(Locale.ROOT, "Build: %.2f ms%n", buildNs / 1_000_000.0);
-
-        IPAddress[] rows = genRows(ranges, (int) ROWS);
+        System.out.printf(Locale.ROOT, "[%s] Build: %.2f ms%n", engine, buildNs / 1_000_000.0);
 
         long wuEnd = System.nanoTime() + WARMUP_MS * 1_000_000L;
         int i = 0;
@@ -70,7 +76,7 @@ public class BenchMultiRangeIPFilter {
 
         double secs = elapsed / 1_000_000_000.0;
         double rowsPerSec = ROWS / secs;
-        System.out.printf(Locale.ROOT, "contains(): %.3f s  (%.2f rows/s)%n", secs, rowsPerSec);
+        System.out.printf(Locale.ROOT, "[%s] contains(): %.3f s  (%.2f rows/s)%n", engine, secs, rowsPerSec);
     }
 
     private static Set<IPRange> genRanges(int n) {
@@ -20,9 +20,13 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import bi.deep.entity.dimension.IPRange;
+import bi.deep.entity.dimension.IPRangeArray;
+import bi.deep.entity.dimension.IPRangeArrayObjectStrategy;
 import bi.deep.entity.dimension.IPRangeObjectStrategy;
 import inet.ipaddr.format.IPAddressRange;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -61,12 +65,102 @@ class IPRangeObjectStrategyTest {
         assertEquals(range.getAddressRange(), deserialized.getAddressRange());
     }
 
+    @Test
+    void testReadsInPlaceFromBuffer() {
+        final IPRange range = IPRange.from("2404:6800:4003:c03::/64");
+        final IPRangeArray array = IPRangeArray.fromArray(
+                Arrays.<Object>asList("10.0.0.0/24", "2001:db8::/64", "10.1.0.0-10.1.0.9"));
+        final byte[] rangeBytes = IPRangeObjectStrategy.INSTANCE.toBytes(range);
+        final byte[] arrayBytes = IPRangeArrayObjectStrategy.INSTANCE.toBytes(array);
+
+        // Values sit between other bytes of a buffer that is not in big endian order
+        final ByteBuffer buffer = ByteBuffer.allocate(3 + rangeBytes.length + arrayBytes.length + 3)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(3);
+        buffer.put(rangeBytes).put(arrayBytes);
+        buffer.position(3);
+
+        assertEquals(range, IPRangeObjectStrategy.INSTANCE.fromByteBuffer(buffer, rangeBytes.length));
+        assertEquals(3 + rangeBytes.length, buffer.position());
+        assertEquals(array, IPRangeArrayObjectStrategy.INSTANCE.fromByteBuffer(buffer, arrayBytes.length));
+        assertEquals(3 + rangeBytes.length + arrayBytes.length, buffer.position());
+    }
+
+    @Test
+    void testCompactEncodingSize() {
+        assertEquals(9, IPRangeObjectStrategy.COMPACT.toBytes(IPRange.from("10.0.0.1-10.0.0.9")).length);
+        assertEquals(6, IPRangeObjectStrategy.COMPACT.toBytes(IPRange.from("10.0.0.0/24")).length);
+        assertEquals(5, IPRangeObjectStrategy.COMPACT.toBytes(IPRange.from("10.0.0.1")).length);
+        assertEquals(33, IPRangeObjectStrategy.COMPACT.toBytes(IPRange.from("2001:db8::1-2001:db8::9")).length);
+        assertEquals(18, IPRangeObjectStrategy.COMPACT.toBytes(IPRange.from("2001:db8::/64")).length);
+        assertEquals(17, IPRangeObjectStrategy.COMPACT.toBytes(IPRange.from("2001:db8::1")).length);
+    }
+
+    // Without the compact flag values keep the layout older versions of the extension read
+    @Test
+    void testWritesLegacyEncodingByDefault() {
+        final IPRange range = IPRange.from("10.0.0.0/24");
+        final byte[] bytes = IPRangeObjectStrategy.INSTANCE.toBytes(range);
+        final ByteBuffer expected = ByteBuffer.allocate(20).putInt(4).putInt(4).putInt(0x0A000000).putInt(4);
+        expected.putInt(0x0A0000FF).flip();
+
+        assertEquals(expected, ByteBuffer.wrap(bytes));
+        assertEquals(44, IPRangeObjectStrategy.INSTANCE.toBytes(IPRange.from("2001:db8::1")).length);
+
+        final IPRangeArray array = IPRangeArray.fromArray(Arrays.<Object>asList("10.0.0.0/24", "2001:db8::/64"));
+        final byte[] arrayBytes = IPRangeArrayObjectStrategy.INSTANCE.toBytes(array);
+        assertEquals(64, arrayBytes.length);
+        assertEquals(array, IPRangeArrayObjectStrategy.INSTANCE.fromByteBuffer(ByteBuffer.wrap(arrayBytes), 64));
+        assertEquals(range, IPRangeObjectStrategy.INSTANCE.fromByteBuffer(ByteBuffer.wrap(bytes), bytes.length));
+    }
+
+    @Test
+    void testReadsLegacyEncoding() {
+        // Address byte count, then the length prefixed lower and upper address bytes
+        final ByteBuffer ipv4 = ByteBuffer.allocate(20).putInt(4).putInt(4).putInt(0x0A000000).putInt(4);
+        ipv4.putInt(0x0A0000FF).flip();
+        final ByteBuffer ipv6 = ByteBuffer.allocate(44).putInt(16).putInt(16).putLong(0x20010DB800000000L);
+        ipv6.putLong(0L).putInt(16).putLong(0x20010DB800000000L).putLong(-1L).flip();
+
+        assertEquals(IPRange.from("10.0.0.0/24"), IPRangeObjectStrategy.INSTANCE.fromByteBuffer(ipv4, 20));
+        assertEquals(IPRange.from("2001:db8::/64"), IPRangeObjectStrategy.INSTANCE.fromByteBuffer(ipv6, 44));
+
+        // Arrays written before the compact layout are sequences of legacy ranges
+        final ByteBuffer array = ByteBuffer.allocate(64).put(ipv4.rewind()).put(ipv6.rewind()).flip();
+        assertEquals(
+                IPRangeArray.fromArray(Arrays.<Object>asList("10.0.0.0/24", "2001:db8::/64")),
+                IPRangeArrayObjectStrategy.INSTANCE.fromByteBuffer(array, 64));
+    }
+
+    // Ranges out of array order or repeated are still sorted and deduplicated when read back
+    @Test
+    void testReadsUnsortedArray() {
+        final ByteBuffer array = ByteBuffer.allocate(3 * 20 + 44)
+                .putInt(16).putInt(16).putLong(0x20010DB800000000L).putLong(0L)
+                .putInt(16).putLong(0x20010DB800000000L).putLong(-1L)
+                .putInt(4).putInt(4).putInt(0x0A000100).putInt(4).putInt(0x0A0001FF)
+                .putInt(4).putInt(4).putInt(0x0A000000).putInt(4).putInt(0x0A0000FF)
+                .putInt(4).putInt(4).putInt(0x0A000000).putInt(4).putInt(0x0A0000FF)
+                .flip();
+        final IPRangeArray expected =
+                IPRangeArray.fromArray(Arrays.<Object>asList("10.0.0.0/24", "10.0.1.0/24", "2001:db8::/64"));
+        final IPRangeArray actual = IPRangeArrayObjectStrategy.INSTANCE.fromByteBuffer(array, array.limit());
+
+        assertEquals(expected, actual);
+        assertEquals(3, actual.size());
+        assertTrue(actual.contains(IPRange.from("10.0.1.7").getLower()));
+    }
+
     static Stream<Arguments> provideTestCases() {
         return Stream.of(
                 Arguments.of("e3e7:682:c209:4cac:629f:6fbf:d82c:7cd"),
                 Arguments.of("48.146.23.142"),
                 Arguments.of("2404:6800:4003:c03::/64"),
                 Arguments.of("10.0.0.0/24"),
+                Arguments.of("0.0.0.0/0"),
+                Arguments.of("::/0"),
+                Arguments.of("2001:db8::/63"),
+                Arguments.of("2001:db8::/65"),
                 Arguments.of("172.16.0.5-172.16.0.20"),
                 Arguments.of("2001:0db8:85a3::8a2e:0370:1000-2001:0db8:85a3::8a2e:0370:9000"));
     }
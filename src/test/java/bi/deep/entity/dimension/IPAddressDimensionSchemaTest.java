@@ -0,0 +1,97 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import bi.deep.entity.index.IPAddressRangeIndexes;
+import bi.deep.guice.IPRangeDimensionModule;
+import bi.deep.segment.TestSegments;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.data.input.impl.StringDimensionSchema;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.QueryableIndexCursorFactory;
+import org.apache.druid.segment.column.ColumnFormat;
+import org.apache.druid.segment.column.ColumnHolder;
+import org.apache.druid.segment.incremental.IncrementalIndex;
+import org.apache.druid.segment.incremental.IncrementalIndexCursorFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IPAddressDimensionSchemaTest {
+    private static final String PADDED_IPV6 = "2001:0db8:0000:0000:0000:0000:0000:0001";
+
+    @Test
+    void testJsonRoundTrip() throws Exception {
+        final DimensionSchema schema = TestSegments.MAPPER.readValue(
+                "{\"type\": \"ipAddress\", \"name\": \"ip\", \"createBitmapIndex\": true}", DimensionSchema.class);
+
+        assertInstanceOf(IPAddressDimensionSchema.class, schema);
+        assertEquals(IPRangeDimensionModule.ADDRESS_TYPE_NAME, schema.getTypeName());
+        assertInstanceOf(IPAddressDimensionHandler.class, schema.getDimensionHandler());
+        assertEquals(
+                schema,
+                TestSegments.MAPPER.readValue(TestSegments.MAPPER.writeValueAsString(schema), DimensionSchema.class));
+    }
+
+    @Test
+    void testNormalizesValuesAtIngestion() throws Exception {
+        final IncrementalIndex realtime = TestSegments.realtime(
+                Collections.singletonList(new IPAddressDimensionSchema("ip", null, true)),
+                Arrays.asList(
+                        TestSegments.row("ip", "10.0.0.1"),
+                        TestSegments.row("ip", "2001:db8::1"),
+                        TestSegments.row("ip", "not-an-ip"),
+                        TestSegments.row("ip", null)));
+
+        assertEquals(
+                Arrays.asList("010.000.000.001", PADDED_IPV6, null, null),
+                TestSegments.read(new IncrementalIndexCursorFactory(realtime), "ip"));
+        assertInstanceOf(IPAddressColumnFormat.class, realtime.getColumnFormat("ip"));
+    }
+
+    @Test
+    void testPersistedColumnKeepsType(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persistAddresses(tempDir);
+        final ColumnHolder holder = index.getColumnHolder("ip");
+        final ColumnFormat format = holder.getColumnFormat();
+
+        assertInstanceOf(IPAddressColumnFormat.class, format);
+        assertInstanceOf(IPAddressDimensionSchema.class, format.getColumnSchema("ip"));
+        assertInstanceOf(IPAddressDimensionHandler.class, index.getDimensionHandlers().get("ip"));
+        assertNotNull(holder.getIndexSupplier().as(IPAddressRangeIndexes.class));
+        assertEquals(
+                "010.000.000.001",
+                TestSegments.read(new QueryableIndexCursorFactory(index), "ip").get(0));
+    }
+
+    // Zero padded values alone do not make a plain string column sorted by address
+    @Test
+    void testPlainStringColumnHasNoAddressIndexes(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new StringDimensionSchema("ip")),
+                Arrays.asList(TestSegments.row("ip", "010.000.000.001"), TestSegments.row("ip", "255.255.255.255")),
+                tempDir);
+
+        assertNull(index.getColumnHolder("ip").getIndexSupplier().as(IPAddressRangeIndexes.class));
+    }
+}
@@ -21,11 +21,15 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import bi.deep.util.SortedIPAddresses;
 import com.google.common.collect.ImmutableList;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
 import inet.ipaddr.format.IPAddressRange;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -171,4 +175,117 @@ class IPRangeArrayTest {
                         + "6f:ad2f:938:5f8f:7f94:ddd0:e1a5:4f]",
                 range.toString());
     }
+
+    @Test
+    void testOverlappingRangesContains() {
+        IPRangeArray rangeArray =
+                IPRangeArray.fromArray(List.of("10.0.0.0/8", "10.1.0.0/16", "10.2.3.0/24", "2001:db8::/32"));
+
+        assertTrue(rangeArray.contains(new IPAddressString("10.200.0.1").getAddress()));
+        assertTrue(rangeArray.contains(new IPAddressString("10.2.3.4").getAddress()));
+        assertTrue(rangeArray.contains(new IPAddressString("2001:db8::1").getAddress()));
+        assertFalse(rangeArray.contains(new IPAddressString("11.0.0.0").getAddress()));
+        assertFalse(rangeArray.contains(new IPAddressString("::ffff").getAddress()));
+    }
+
+    @Test
+    void testContainsMatchesLinearScan() {
+        Random random = new Random(42);
+
+        for (int round = 0; round < 50; round++) {
+            List<Object> ranges = new ArrayList<>();
+            for (int i = 0, n = 1 + random.nextInt(200); i < n; i++) {
+                int start = random.nextInt(1 << 16);
+                ranges.add("10.0." + (start >> 8) + "." + (start & 0xFF) + "-10."
+                        + (1 + random.nextInt(3)) + ".0." + random.nextInt(256));
+            }
+
+            IPRangeArray rangeArray = IPRangeArray.fromArray(ranges);
+            List<IPAddress> addresses = new ArrayList<>();
+            for (int i = 0, n = 1 + random.nextInt(20); i < n; i++) {
+                addresses.add(new IPAddressString("10." + random.nextInt(5) + "." + random.nextInt(256) + "."
+                                + random.nextInt(256))
+                        .getAddress());
+            }
+
+            boolean expected = false;
+            for (IPAddress address : addresses) {
+                boolean contained =
+                        rangeArray.getAddressRanges().stream().anyMatch(range -> range.contains(address));
+                assertEquals(contained, rangeArray.contains(address));
+                expected |= contained;
+            }
+
+            assertEquals(expected, rangeArray.contains(SortedIPAddresses.of(addresses)));
+        }
+    }
+
+    @Test
+    void testNormalize() {
+        IPRangeArray rangeArray = IPRangeArray.fromArray(List.of(
+                "10.0.0.0/24",
+                "10.0.1.0/24",
+                "10.0.0.5",
+                "10.0.3.0/24",
+                "255.255.255.0/24",
+                "2001:db8::/64",
+                "2001:db8::1-2001:db8::ff",
+                "ffff:ffff:ffff:ffff:ffff:ffff:ffff:0-ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+
+        assertEquals(
+                "[10.0.0.0-10.0.1.255,10.0.3.0-10.0.3.255,255.255.255.0-255.255.255.255,"
+                        + "2001:db8::-2001:db8::ffff:ffff:ffff:ffff,"
+                        + "ffff:ffff:ffff:ffff:ffff:ffff:ffff:0-ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff]",
+                rangeArray.normalize().toString());
+    }
+
+    @Test
+    void testNormalizeKeepsDisjointRanges() {
+        IPRangeArray rangeArray = IPRangeArray.fromArray(List.of("10.0.0.0/24", "10.0.2.0/24", "10.0.5.1"));
+        assertEquals(rangeArray, rangeArray.normalize());
+        assertEquals("[10.0.0.0-10.0.0.255,10.0.2.0-10.0.2.255,10.0.5.1]", rangeArray.normalize().toString());
+    }
+
+    // A single address and the one address range holding it only differ in rendering, for ranges and arrays alike
+    @Test
+    void testEqualityIgnoresSingleAddress() {
+        final IPRange single = IPRange.fromString("10.0.0.1");
+        final IPRange range = IPRange.fromString("10.0.0.1-10.0.0.1");
+        final IPRangeArray singles = IPRangeArray.fromArray(List.of("10.0.0.1", "2001:db8::1"));
+        final IPRangeArray ranges = IPRangeArray.fromArray(List.of("10.0.0.1-10.0.0.1", "2001:db8::1-2001:db8::1"));
+
+        assertEquals(single, range);
+        assertEquals(single.hashCode(), range.hashCode());
+        assertEquals(singles, ranges);
+        assertEquals(singles.hashCode(), ranges.hashCode());
+        assertEquals(0, singles.compareTo(ranges));
+        assertEquals(IPRangeArray.fromRanges(List.of(single)), IPRangeArray.fromRanges(List.of(range)));
+        assertEquals("[10.0.0.1,2001:db8::1]", singles.toString());
+    }
+
+    // A range written both as a single address and as a range is kept once, as the persisted array keeps it
+    @Test
+    void testDuplicatesDroppedByBounds() {
+        final IPRangeArray ranges = IPRangeArray.fromArray(
+                List.of("10.0.0.1", "10.0.0.1-10.0.0.1", "2001:db8::1-2001:db8::1", "2001:db8::1"));
+        final byte[] bytes = IPRangeArrayObjectStrategy.INSTANCE.toBytes(ranges);
+        final IPRangeArray persisted =
+                IPRangeArrayObjectStrategy.INSTANCE.fromByteBuffer(ByteBuffer.wrap(bytes), bytes.length);
+
+        assertEquals(2, ranges.size());
+        assertEquals(persisted.size(), ranges.size());
+        assertEquals(persisted, ranges);
+        assertEquals(IPRangeArray.fromArray(List.of("10.0.0.1", "2001:db8::1")), ranges);
+        assertEquals(ranges.getLengthOfEncodedKeyComponent(), persisted.getLengthOfEncodedKeyComponent());
+    }
+
+    @Test
+    void testEncodedKeyLengthMatchesLayout() {
+        final IPRangeArray ranges =
+                IPRangeArray.fromArray(ImmutableList.of("10.0.0.1", "10.0.1.0/24", "2001:db8::/48", "::1-::9"));
+
+        assertEquals(ranges.toBytes(false).length, ranges.getLengthOfEncodedKeyComponent(false));
+        assertTrue(ranges.toBytes(true).length <= ranges.getLengthOfEncodedKeyComponent(true));
+        assertEquals(0, IPRangeArray.EMPTY.getLengthOfEncodedKeyComponent());
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.dimension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.index.IPColumnSummary;
+import bi.deep.entity.index.IPRangeIndexes;
+import bi.deep.guice.IPRangeDimensionModule;
+import bi.deep.segment.TestSegments;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.error.DruidException;
+import org.apache.druid.segment.DimensionHandler;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.column.ColumnFormat;
+import org.apache.druid.segment.column.ColumnIndexSupplier;
+import org.apache.druid.segment.incremental.IncrementalIndex;
+import org.apache.druid.segment.serde.ColumnPartSerde;
+import org.apache.druid.segment.serde.ComplexColumnPartSerde;
+import org.apache.druid.segment.writeout.OnHeapMemorySegmentWriteOutMedium;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IPRangeDimensionSchemaTest {
+    private static final List<Map<String, Object>> ROWS = Arrays.asList(
+            TestSegments.row("ip", "10.0.0.0/24"),
+            TestSegments.row("ip", "192.168.1.1-192.168.1.20"),
+            TestSegments.row("ip", "2001:db8::/64"));
+
+    @Test
+    void testJsonRoundTrip() throws Exception {
+        final DimensionSchema schema = TestSegments.MAPPER.readValue(
+                "{\"type\": \"ipRange\", \"name\": \"ip\", \"intervalIndex\": true, \"summary\": true}",
+                DimensionSchema.class);
+        final IPRangeDimensionSchema ipSchema = (IPRangeDimensionSchema) schema;
+
+        assertTrue(ipSchema.isIntervalIndex());
+        assertTrue(ipSchema.isSummary());
+        assertFalse(ipSchema.isZoneMap());
+        assertEquals(
+                schema,
+                TestSegments.MAPPER.readValue(TestSegments.MAPPER.writeValueAsString(schema), DimensionSchema.class));
+    }
+
+    @Test
+    void testDictionaryCannotUseRowIndexes() {
+        assertThrows(DruidException.class, () -> new IPRangeDimensionSchema("ip", IPColumnOptions.of(
+                IPColumnOptions.DICTIONARY_ENCODED | IPColumnOptions.INTERVAL_INDEX)));
+        assertThrows(DruidException.class, () -> new IPRangeDimensionSchema("ip", IPColumnOptions.of(
+                IPColumnOptions.DICTIONARY_ENCODED | IPColumnOptions.ZONE_MAP)));
+    }
+
+    @Test
+    void testWritesNoIndexesByDefault(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new IPRangeDimensionSchema("ip", IPColumnOptions.DEFAULT)), ROWS, tempDir);
+
+        assertNull(index.getColumnHolder("ip").getIndexSupplier());
+    }
+
+    @Test
+    void testWritesEnabledIndexes(@TempDir File tempDir) throws Exception {
+        final IPColumnOptions options = IPColumnOptions.DEFAULT
+                .with(IPColumnOptions.INTERVAL_INDEX, true)
+                .with(IPColumnOptions.SUMMARY, true);
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new IPRangeDimensionSchema("ip", options)), ROWS, tempDir);
+        final ColumnIndexSupplier indexSupplier = index.getColumnHolder("ip").getIndexSupplier();
+
+        assertNotNull(indexSupplier);
+        assertNotNull(indexSupplier.as(IPRangeIndexes.class));
+        assertNotNull(indexSupplier.as(IPColumnSummary.class));
+    }
+
+    @Test
+    void testPersistedColumnKeepsOptions(@TempDir File tempDir) throws Exception {
+        final IPColumnOptions options = IPColumnOptions.DEFAULT
+                .with(IPColumnOptions.DICTIONARY_ENCODED, true)
+                .with(IPColumnOptions.PREFIX_BLOOM_FILTER, true)
+                .with(IPColumnOptions.COMPACT_ENCODING, true);
+        final IPRangeDimensionSchema schema = new IPRangeDimensionSchema("ip", options);
+        final IncrementalIndex realtime = TestSegments.realtime(Collections.singletonList(schema), ROWS);
+        assertEquals(options, ((IPRangeColumnFormat) realtime.getColumnFormat("ip")).getOptions());
+
+        // The handler of a loaded segment, used by compaction and reindexing, is rebuilt from the recorded options
+        final QueryableIndex index = TestSegments.persist(realtime, tempDir);
+        final ColumnFormat format = index.getColumnHolder("ip").getColumnFormat();
+        final DimensionHandler<?, ?, ?> handler = index.getDimensionHandlers().get("ip");
+
+        assertInstanceOf(IPRangeColumnFormat.class, format);
+        assertEquals(schema, format.getColumnSchema("ip"));
+        assertInstanceOf(IPRangeDimensionHandler.class, handler);
+        assertEquals(schema, handler.getDimensionSchema(format.toColumnCapabilities()));
+    }
+
+    // Segments with default options must stay readable by versions that do not know the options part
+    @Test
+    void testDefaultOptionsAddNoColumnPart(@TempDir File tempDir) throws Exception {
+        final List<ColumnPartSerde> parts =
+                new IPRangeDimensionMergerV9("ip", new OnHeapMemorySegmentWriteOutMedium(), IPColumnOptions.DEFAULT)
+                        .makeColumnDescriptor()
+                        .getParts();
+        assertEquals(1, parts.size());
+        assertInstanceOf(ComplexColumnPartSerde.class, parts.get(0));
+
+        final IPColumnOptions summary = IPColumnOptions.of(IPColumnOptions.SUMMARY);
+        assertInstanceOf(
+                IPRangeColumnPartSerde.class,
+                new IPRangeArrayDimensionMergerV9("ips", new OnHeapMemorySegmentWriteOutMedium(), summary)
+                        .makeColumnDescriptor()
+                        .getParts()
+                        .get(1));
+
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new IPRangeDimensionSchema("ip", IPColumnOptions.DEFAULT)), ROWS, tempDir);
+        assertFalse(index.getColumnHolder("ip").getColumnFormat() instanceof IPRangeColumnFormat);
+        assertInstanceOf(IPRangeDimensionHandler.class, index.getDimensionHandlers().get("ip"));
+    }
+
+    @Test
+    void testMergedFormatsKeepSharedOptions() {
+        final IPRangeColumnFormat dictionary = new IPRangeColumnFormat(
+                IPRangeDimensionModule.TYPE,
+                IPColumnOptions.of(IPColumnOptions.DICTIONARY_ENCODED | IPColumnOptions.SUMMARY));
+        final IPRangeColumnFormat columnar = new IPRangeColumnFormat(
+                IPRangeDimensionModule.TYPE,
+                IPColumnOptions.of(IPColumnOptions.COLUMNAR_BOUNDS | IPColumnOptions.SUMMARY));
+
+        assertEquals(
+                IPColumnOptions.of(IPColumnOptions.SUMMARY),
+                ((IPRangeColumnFormat) dictionary.merge(columnar)).getOptions());
+
+        final IPColumnOptions prefixIndex = IPColumnOptions.of(IPColumnOptions.PREFIX_INDEX);
+        assertEquals(
+                new IPRangeArrayDimensionSchema("ips", prefixIndex),
+                new IPRangeColumnFormat(IPRangeDimensionModule.ARRAY_TYPE, prefixIndex).getColumnSchema("ips"));
+    }
+}
@@ -22,7 +22,10 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import bi.deep.util.IPRangeUtil;
+import bi.deep.util.SortedIPAddresses;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
 import java.util.SortedSet;
@@ -162,4 +165,40 @@ class IPRangeTest {
         IPRange range = IPRange.fromString(input);
         assertEquals(output, range.toString());
     }
+
+    @Test
+    void testContainsSortedAddresses() {
+        SortedIPAddresses addresses = SortedIPAddresses.of(
+                IPRangeUtil.mapStringsToIps(Sets.newHashSet("10.0.0.7", "2001:db8::ff", "192.168.0.1")));
+
+        assertTrue(IPRange.fromString("10.0.0.0/24").contains(addresses));
+        assertTrue(IPRange.fromString("2001:db8::1-2001:db8::1:0").contains(addresses));
+        assertFalse(IPRange.fromString("10.0.1.0/24").contains(addresses));
+        assertFalse(IPRange.fromString("2001:db8::100-2001:db8::1:0").contains(addresses));
+        assertFalse(IPRange.EMPTY.contains(addresses));
+    }
+
+    @Test
+    void testCompareTo() {
+        IPRange v4 = IPRange.fromString("10.0.0.0/24");
+        IPRange v4Wider = IPRange.fromString("10.0.0.0/16");
+        IPRange v6 = IPRange.fromString("::1");
+
+        assertTrue(IPRange.EMPTY.compareTo(v4) < 0);
+        assertTrue(v4.compareTo(v4Wider) < 0);
+        assertTrue(v4Wider.compareTo(v6) < 0);
+        assertEquals(0, v4.compareTo(IPRange.fromString("10.0.0.0-10.0.0.255")));
+        assertEquals(v4, IPRange.fromString("10.0.0.0-10.0.0.255"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"10.0.0.1", "10.0.0.0/24", "10.0.0.3-10.0.0.9", "2001:db8::1", "2001:db8::/48", "::1-::9"})
+    void testEncodedKeyLengthMatchesLayout(String value) {
+        final IPRange range = IPRange.fromString(value);
+
+        assertEquals(range.toBytes(false).length, range.getLengthOfEncodedKeyComponent());
+        assertEquals(range.toBytes(false).length, range.getLengthOfEncodedKeyComponent(false));
+        assertTrue(range.toBytes(true).length <= range.getLengthOfEncodedKeyComponent(true));
+        assertEquals(0, IPRange.EMPTY.getLengthOfEncodedKeyComponent());
+    }
 }
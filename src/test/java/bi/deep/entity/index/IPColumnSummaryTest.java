@@ -0,0 +1,109 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPRangeArray;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.apache.druid.collections.bitmap.RoaringBitmapFactory;
+import org.apache.druid.segment.writeout.OnHeapMemorySegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.junit.jupiter.api.Test;
+
+class IPColumnSummaryTest {
+
+    @Test
+    void testBoundsAndRowCounts() throws IOException {
+        final IPColumnSummary summary = write(List.of(
+                IPRangeArray.fromArray(Arrays.<Object>asList("10.0.0.0/24", "2001:db8::/64")),
+                IPRangeArray.fromArray(Arrays.<Object>asList("10.0.5.0-10.0.9.255", "10.0.1.0/24")),
+                IPRangeArray.fromArray(Arrays.<Object>asList("2001:db8:ff::/48"))));
+
+        assertEquals(2, summary.getRowCount(false));
+        assertEquals(2, summary.getRowCount(true));
+        assertEquals(address("10.0.0.0"), summary.getMin(false));
+        assertEquals(address("10.0.9.255"), summary.getMax(false));
+        assertEquals(address("2001:db8::"), summary.getMin(true));
+        assertEquals(address("2001:db8:ff:ffff:ffff:ffff:ffff:ffff"), summary.getMax(true));
+
+        assertTrue(summary.mayContain(addresses("10.0.3.1")));
+        assertTrue(summary.mayContain(addresses("192.168.0.1", "2001:db8:80::1")));
+        assertFalse(summary.mayContain(addresses("10.0.10.0", "192.168.0.1", "2001:db9::")));
+    }
+
+    @Test
+    void testMissingVersion() throws IOException {
+        final IPColumnSummary summary =
+                write(List.of(IPRangeArray.fromArray(Arrays.<Object>asList("0.0.0.0/0"))));
+
+        assertEquals(0, summary.getRowCount(true));
+        assertNull(summary.getMin(true));
+        assertNull(summary.getMax(true));
+        assertTrue(summary.mayContain(addresses("255.255.255.255")));
+        assertFalse(summary.mayContain(addresses("::")));
+    }
+
+    @Test
+    void testSupplierShortCircuitsWithoutRowIndex() throws IOException {
+        final IPColumnSummary summary = write(List.of(IPRangeArray.fromArray(Arrays.<Object>asList("10.0.0.0/8"))));
+        final IPColumnIndexSupplier supplier = new IPColumnIndexSupplier(null, summary, null);
+        final RoaringBitmapFactory bitmapFactory = new RoaringBitmapFactory();
+
+        assertNotNull(supplier.forAddresses(addresses("192.168.0.1"), bitmapFactory));
+        assertNull(supplier.forAddresses(addresses("10.1.2.3"), bitmapFactory));
+        assertEquals(summary, supplier.as(IPColumnSummary.class));
+    }
+
+    private static IPColumnSummary write(List<IPRangeArray> rows) throws IOException {
+        final IPColumnSummaryWriter writer = new IPColumnSummaryWriter();
+
+        for (int i = 0; i < rows.size(); i++) {
+            writer.add(i, rows.get(i));
+        }
+
+        final WriteOutBytes out = new OnHeapMemorySegmentWriteOutMedium().makeWriteOutBytes();
+        writer.writeTo(out);
+
+        try (InputStream in = out.asInputStream()) {
+            return IPColumnSummary.read(ByteBuffer.wrap(in.readAllBytes()));
+        }
+    }
+
+    private static IPAddress address(String value) {
+        return new IPAddressString(value).getAddress();
+    }
+
+    private static SortedSet<IPAddress> addresses(String... values) {
+        final SortedSet<IPAddress> addresses = new TreeSet<>();
+        for (String value : values) {
+            addresses.add(address(value));
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPRange;
+import bi.deep.entity.dimension.IPRangeArray;
+import bi.deep.entity.dimension.IPRangeArrayObjectStrategy;
+import bi.deep.entity.dimension.IPRangeHandler;
+import bi.deep.entity.dimension.IPRangeObjectStrategy;
+import bi.deep.filtering.common.IPDictionaryMatchers;
+import bi.deep.guice.IPRangeDimensionModule;
+import bi.deep.util.SortedIPAddresses;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.apache.druid.collections.bitmap.RoaringBitmapFactory;
+import org.apache.druid.query.filter.DruidObjectPredicate;
+import org.apache.druid.query.filter.DruidPredicateMatch;
+import org.apache.druid.query.filter.ValueMatcher;
+import org.apache.druid.query.filter.vector.ReadableVectorMatch;
+import org.apache.druid.query.filter.vector.VectorMatch;
+import org.apache.druid.query.filter.vector.VectorValueMatcher;
+import org.apache.druid.segment.ColumnValueSelector;
+import org.apache.druid.segment.SimpleAscendingOffset;
+import org.apache.druid.segment.data.CompressedVSizeColumnarIntsSupplier;
+import org.apache.druid.segment.data.GenericIndexed;
+import org.apache.druid.segment.data.ObjectStrategy;
+import org.apache.druid.segment.vector.NoFilterVectorOffset;
+import org.apache.druid.segment.vector.VectorObjectSelector;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.IntIterator;
+
+class IPDictionaryColumnTest {
+    private static final int DISTINCT_VALUES = 15;
+    private static final int VECTOR_SIZE = 512;
+
+    private final RoaringBitmapFactory bitmapFactory = new RoaringBitmapFactory();
+
+    @Test
+    void testReadsBackRanges() throws IOException {
+        assertReadsBack(rows(IPDictionaryColumnTest::range), IPRangeObjectStrategy.INSTANCE);
+    }
+
+    @Test
+    void testReadsBackSets() throws IOException {
+        assertReadsBack(rows(IPDictionaryColumnTest::set), IPRangeArrayObjectStrategy.INSTANCE);
+    }
+
+    @Test
+    void testRowIndexMatchesContains() throws IOException {
+        assertRowIndexMatchesContains(rows(IPDictionaryColumnTest::range), IPRangeObjectStrategy.INSTANCE);
+        assertRowIndexMatchesContains(rows(IPDictionaryColumnTest::set), IPRangeArrayObjectStrategy.INSTANCE);
+    }
+
+    @Test
+    void testRowIndexCostIsCardinality() throws IOException {
+        final List<IPRange> rows = rows(IPDictionaryColumnTest::range);
+        final IPRowIndex index = read(write(rows, IPRangeObjectStrategy.INSTANCE), IPRangeObjectStrategy.INSTANCE)
+                .getRowIndex();
+
+        assertEquals(DISTINCT_VALUES, index.estimatedComputeCost(addresses()));
+    }
+
+    @Test
+    void testEmptyColumn() throws IOException {
+        final IPDictionaryColumn<IPRange> column =
+                read(write(List.of(), IPRangeObjectStrategy.INSTANCE), IPRangeObjectStrategy.INSTANCE);
+        assertEquals(0, column.getLength());
+        assertEquals(0, column.getCardinality());
+    }
+
+    @Test
+    void testEmptyValueIsNull() throws IOException {
+        assertNull(read(write(List.of(IPRange.EMPTY), IPRangeObjectStrategy.INSTANCE), IPRangeObjectStrategy.INSTANCE)
+                .getRowValue(0));
+        assertNull(read(
+                        write(List.of(IPRangeArray.EMPTY), IPRangeArrayObjectStrategy.INSTANCE),
+                        IPRangeArrayObjectStrategy.INSTANCE)
+                .getRowValue(0));
+    }
+
+    @Test
+    void testFallsBackToPlainLayoutAboveMaxCardinality() throws IOException {
+        final List<IPRange> rows = rows(IPDictionaryColumnTest::range);
+        final ByteBuffer buffer = TestColumns.write(
+                medium -> new IPDictionarySerializer<>(
+                        medium, "test", IPRangeObjectStrategy.INSTANCE, DISTINCT_VALUES - 1),
+                rows);
+        assertFalse(IPDictionaryColumn.isDictionary(buffer));
+
+        final GenericIndexed<IPRange> values = GenericIndexed.read(buffer, IPRangeObjectStrategy.INSTANCE, null);
+        assertEquals(rows.size(), values.size());
+
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), values.get(i), "row " + i);
+        }
+    }
+
+    @Test
+    void testMatchersEvaluateEachIdOnce() throws IOException {
+        final List<IPRangeArray> rows = rows(IPDictionaryColumnTest::set);
+        final IPDictionaryColumn<IPRangeArray> column =
+                read(write(rows, IPRangeArrayObjectStrategy.INSTANCE), IPRangeArrayObjectStrategy.INSTANCE);
+        final SortedIPAddresses addresses = SortedIPAddresses.of(addresses());
+        final Set<Object> evaluated = new HashSet<>();
+        final DruidObjectPredicate<Object> predicate = value -> {
+            assertTrue(evaluated.add(value), "evaluated twice: " + value);
+            return DruidPredicateMatch.of(value != null && ((IPRangeArray) value).contains(addresses));
+        };
+
+        final SimpleAscendingOffset offset = new SimpleAscendingOffset(rows.size());
+        final ColumnValueSelector<?> selector = column.makeColumnValueSelector(offset);
+        final ValueMatcher matcher = IPDictionaryMatchers.makeMatcher((IPDictionarySelector) selector, predicate);
+
+        for (; offset.withinBounds(); offset.increment()) {
+            final IPRangeArray row = rows.get(offset.getOffset());
+            assertEquals(row, selector.getObject());
+            assertEquals(row != null && row.contains(addresses), matcher.matches(false), "row " + offset.getOffset());
+        }
+        assertEquals(DISTINCT_VALUES + 1, evaluated.size());
+    }
+
+    @Test
+    void testVectorMatchersEvaluateEachIdOnce() throws IOException {
+        final List<IPRange> rows = rows(IPDictionaryColumnTest::range);
+        final IPDictionaryColumn<IPRange> column =
+                read(write(rows, IPRangeObjectStrategy.INSTANCE), IPRangeObjectStrategy.INSTANCE);
+        final SortedIPAddresses addresses = SortedIPAddresses.of(addresses());
+        final Set<Object> evaluated = new HashSet<>();
+        final DruidObjectPredicate<Object> predicate = value -> {
+            assertTrue(evaluated.add(value), "evaluated twice: " + value);
+            return DruidPredicateMatch.of(value != null && ((IPRange) value).contains(addresses));
+        };
+
+        final NoFilterVectorOffset offset = new NoFilterVectorOffset(VECTOR_SIZE, 0, rows.size());
+        final VectorObjectSelector selector = column.makeVectorObjectSelector(offset);
+        final VectorValueMatcher matcher =
+                IPDictionaryMatchers.makeVectorMatcher((IPDictionaryVectorSelector) selector, predicate);
+
+        for (; !offset.isDone(); offset.advance()) {
+            final Object[] vector = selector.getObjectVector();
+            final Set<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < offset.getCurrentVectorSize(); i++) {
+                final IPRange row = rows.get(offset.getStartOffset() + i);
+                assertEquals(row, vector[i]);
+                if (row != null && row.contains(addresses)) {
+                    expected.add(i);
+                }
+            }
+
+            final ReadableVectorMatch match =
+                    matcher.match(VectorMatch.allTrue(offset.getCurrentVectorSize()), false);
+            final Set<Integer> result = new TreeSet<>();
+            for (int i = 0; i < match.getSelectionSize(); i++) {
+                result.add(match.getSelection()[i]);
+            }
+            assertEquals(expected, result, "vector at " + offset.getStartOffset());
+        }
+        assertEquals(DISTINCT_VALUES + 1, evaluated.size());
+    }
+
+    private static <T extends IPRangeHandler & Comparable<T>> void assertReadsBack(
+            List<T> rows, ObjectStrategy<T> strategy) throws IOException {
+        final ByteBuffer buffer = write(rows, strategy);
+        assertTrue(IPDictionaryColumn.isDictionary(buffer));
+        assertFalse(IPRangeColumnarColumn.isColumnar(buffer));
+
+        final IPDictionaryColumn<T> column = read(buffer, strategy).duplicate();
+        assertFalse(buffer.hasRemaining());
+        assertEquals(rows.size(), column.getLength());
+        assertEquals(DISTINCT_VALUES, column.getCardinality());
+
+        for (int i = rows.size() - 1; i >= 0; i -= 13) {
+            assertEquals(rows.get(i), column.getRowValue(i), "row " + i);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), column.getRowValue(i), "row " + i);
+        }
+
+        // Rows holding the same value share the decoded instance
+        assertSame(column.getRowValue(1), column.getRowValue(21));
+    }
+
+    private <T extends IPRangeHandler & Comparable<T>> void assertRowIndexMatchesContains(
+            List<T> rows, ObjectStrategy<T> strategy) throws IOException {
+        final IPRowIndex index = read(write(rows, strategy), strategy).getRowIndex();
+        final SortedSet<IPAddress> addresses = addresses();
+        final SortedIPAddresses sortedAddresses = SortedIPAddresses.of(addresses);
+
+        final Set<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) != null && rows.get(i).contains(sortedAddresses)) {
+                expected.add(i);
+            }
+        }
+
+        final MutableBitmap bitmap = bitmapFactory.makeEmptyMutableBitmap();
+        index.search(addresses, bitmap);
+
+        final Set<Integer> result = new TreeSet<>();
+        final IntIterator iterator = bitmapFactory.makeImmutableBitmap(bitmap).iterator();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, result);
+    }
+
+    private static SortedSet<IPAddress> addresses() {
+        final SortedSet<IPAddress> addresses = new TreeSet<>();
+        addresses.add(new IPAddressString("10.0.3.7").getAddress());
+        addresses.add(new IPAddressString("2001:db8:9::1").getAddress());
+        addresses.add(new IPAddressString("10.1.4.9").getAddress());
+        return addresses;
+    }
+
+    // Spans several id blocks while only holding DISTINCT_VALUES distinct values, every seventh row is null
+    private static <T> List<T> rows(IntFunction<T> value) {
+        final List<T> rows = new ArrayList<>();
+
+        for (int i = 0; i < 2 * CompressedVSizeColumnarIntsSupplier.maxIntsInBufferForBytes(Byte.BYTES) + 100; i++) {
+            rows.add(i % 7 == 0 ? null : value.apply(i));
+        }
+
+        return rows;
+    }
+
+    private static IPRange range(int i) {
+        return IPRange.fromString(
+                i % 2 == 0 ? String.format("2001:db8:%x::/48", i % 10) : String.format("10.0.%d.0/24", i % 20));
+    }
+
+    private static IPRangeArray set(int i) {
+        return i % 2 == 0
+                ? IPRangeArray.fromArray(Arrays.<Object>asList(
+                        String.format("2001:db8:%x::/48", i % 10), String.format("10.1.%d.0/24", i % 10)))
+                : IPRangeArray.fromArray(Arrays.<Object>asList(String.format("10.0.%d.0/24", i % 20)));
+    }
+
+    private static <T extends IPRangeHandler & Comparable<T>> ByteBuffer write(
+            List<T> rows, ObjectStrategy<T> strategy) throws IOException {
+        return TestColumns.write(medium -> new IPDictionarySerializer<>(medium, "test", strategy), rows);
+    }
+
+    private static <T extends IPRangeHandler> IPDictionaryColumn<T> read(
+            ByteBuffer buffer, ObjectStrategy<T> strategy) {
+        return IPDictionaryColumn.read(buffer, IPRangeDimensionModule.TYPE_NAME, strategy, null);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPRange;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.druid.segment.writeout.OnHeapMemorySegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.junit.jupiter.api.Test;
+
+class IPPrefixBloomFilterTest {
+
+    @Test
+    void testCoveredPrefixesAreFound() throws IOException {
+        final IPPrefixBloomFilter filter = write(List.of(
+                IPRange.fromString("10.0.0.0/22"),
+                IPRange.fromString("192.168.7.200-192.168.8.3"),
+                IPRange.fromString("2001:db8:4::/47")));
+
+        for (String value : new String[] {
+            "10.0.0.1", "10.0.3.255", "192.168.7.0", "192.168.8.250", "2001:db8:4::", "2001:db8:5:ffff::1"
+        }) {
+            assertTrue(filter.mayContain(List.of(address(value))), value);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mayContain(List.of(address(String.format("172.%d.%d.1", 16 + i / 256, i % 256))))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, "false positives " + falsePositives);
+
+        assertFalse(filter.mayContain(List.of(address("10.0.4.0"), address("2001:db8:6::"))));
+    }
+
+    @Test
+    void testWideRangeKeepsEveryAddress() throws IOException {
+        final IPPrefixBloomFilter filter = write(List.of(IPRange.fromString("0.0.0.0/0")));
+        assertTrue(filter.mayContain(List.of(address("203.0.113.9"))));
+        assertTrue(filter.mayContain(List.of(address("::1"))));
+    }
+
+    @Test
+    void testEmptyColumn() throws IOException {
+        assertFalse(write(List.of()).mayContain(List.of(address("10.0.0.1"))));
+    }
+
+    private static IPPrefixBloomFilter write(List<IPRange> rows) throws IOException {
+        final IPPrefixBloomFilterWriter writer = new IPPrefixBloomFilterWriter();
+
+        for (int i = 0; i < rows.size(); i++) {
+            writer.add(i, rows.get(i));
+        }
+
+        final WriteOutBytes out = new OnHeapMemorySegmentWriteOutMedium().makeWriteOutBytes();
+        writer.writeTo(out);
+
+        try (InputStream in = out.asInputStream()) {
+            return IPPrefixBloomFilter.read(ByteBuffer.wrap(in.readAllBytes()));
+        }
+    }
+
+    private static IPAddress address(String value) {
+        return new IPAddressString(value).getAddress();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPRange;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.druid.segment.data.CompressedVSizeColumnarIntsSupplier;
+import org.apache.druid.segment.vector.NoFilterVectorOffset;
+import org.apache.druid.segment.vector.ReadableVectorOffset;
+import org.apache.druid.segment.vector.VectorObjectSelector;
+import org.junit.jupiter.api.Test;
+
+class IPRangeColumnarColumnTest {
+    private static final int VECTOR_SIZE = 512;
+
+    @Test
+    void testReadsBackEveryRow() throws IOException {
+        final List<IPRange> rows = rows();
+        final ByteBuffer buffer = write(rows);
+        assertTrue(IPRangeColumnarColumn.isColumnar(buffer));
+
+        final IPRangeColumnarColumn column = IPRangeColumnarColumn.read(buffer, null).duplicate();
+        assertFalse(buffer.hasRemaining());
+        assertEquals(rows.size(), column.getLength());
+
+        // Out of order reads move between blocks
+        for (int i = rows.size() - 1; i >= 0; i -= 13) {
+            assertEquals(rows.get(i), column.getRowValue(i), "row " + i);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), column.getRowValue(i), "row " + i);
+        }
+    }
+
+    @Test
+    void testVectorSelectorReadsContiguousRows() throws IOException {
+        final List<IPRange> rows = rows();
+        final IPRangeColumnarColumn column = IPRangeColumnarColumn.read(write(rows), null);
+        final NoFilterVectorOffset offset = new NoFilterVectorOffset(VECTOR_SIZE, 0, rows.size());
+        final VectorObjectSelector selector = column.makeVectorObjectSelector(offset);
+
+        for (; !offset.isDone(); offset.advance()) {
+            final Object[] vector = selector.getObjectVector();
+            for (int i = 0; i < offset.getCurrentVectorSize(); i++) {
+                assertEquals(rows.get(offset.getStartOffset() + i), vector[i], "row " + (offset.getStartOffset() + i));
+            }
+        }
+    }
+
+    @Test
+    void testVectorSelectorReadsSparseRows() throws IOException {
+        final List<IPRange> rows = rows();
+        final IPRangeColumnarColumn column = IPRangeColumnarColumn.read(write(rows), null);
+        final SparseOffset offset = new SparseOffset(rows.size(), 5);
+        final VectorObjectSelector selector = column.makeVectorObjectSelector(offset);
+
+        for (; offset.start < rows.size(); offset.advance()) {
+            final Object[] vector = selector.getObjectVector();
+            assertSame(vector, selector.getObjectVector());
+
+            for (int i = 0; i < offset.getCurrentVectorSize(); i++) {
+                assertEquals(rows.get(offset.offsets[i]), vector[i], "row " + offset.offsets[i]);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyColumn() throws IOException {
+        final IPRangeColumnarColumn column = IPRangeColumnarColumn.read(write(List.of()), null);
+        assertEquals(0, column.getLength());
+    }
+
+    @Test
+    void testEmptyRangeIsNull() throws IOException {
+        assertNull(IPRangeColumnarColumn.read(write(List.of(IPRange.EMPTY)), null).getRowValue(0));
+    }
+
+    // Spans several blocks of every part, the last ones partially filled
+    private static List<IPRange> rows() {
+        final List<IPRange> rows = new ArrayList<>();
+
+        for (int i = 0; i < 2 * CompressedVSizeColumnarIntsSupplier.maxIntsInBufferForBytes(Byte.BYTES) + 100; i++) {
+            if (i % 7 == 0) {
+                rows.add(null);
+            } else if (i % 3 == 0) {
+                rows.add(IPRange.fromString(String.format("2001:db8:%x::/48", i & 0xFFFF)));
+            } else {
+                rows.add(IPRange.fromString(String.format("10.%d.%d.0/24", (i >> 8) & 0xFF, i & 0xFF)));
+            }
+        }
+
+        return rows;
+    }
+
+    private static ByteBuffer write(List<IPRange> rows) throws IOException {
+        return TestColumns.write(medium -> new IPRangeColumnarSerializer(medium, "test"), rows);
+    }
+
+    // Every step-th row, VECTOR_SIZE rows at a time
+    private static final class SparseOffset implements ReadableVectorOffset {
+        private final int rowCount;
+        private final int step;
+        private final int[] offsets = new int[VECTOR_SIZE];
+        private int start;
+        private int size;
+        private int id;
+
+        private SparseOffset(int rowCount, int step) {
+            this.rowCount = rowCount;
+            this.step = step;
+            fill();
+        }
+
+        private void advance() {
+            start += VECTOR_SIZE * step;
+            id++;
+            fill();
+        }
+
+        private void fill() {
+            size = 0;
+            for (int row = start; row < rowCount && size < VECTOR_SIZE; row += step) {
+                offsets[size++] = row;
+            }
+        }
+
+        @Override
+        public boolean isContiguous() {
+            return false;
+        }
+
+        @Override
+        public int getStartOffset() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int[] getOffsets() {
+            return offsets;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public int getMaxVectorSize() {
+            return VECTOR_SIZE;
+        }
+
+        @Override
+        public int getCurrentVectorSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import bi.deep.entity.dimension.IPRange;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.apache.druid.collections.bitmap.RoaringBitmapFactory;
+import org.apache.druid.segment.writeout.OnHeapMemorySegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.IntIterator;
+
+class IPRangeIntervalIndexTest {
+    private final RoaringBitmapFactory bitmapFactory = new RoaringBitmapFactory();
+
+    @Test
+    void testSearchMatchesRangeContains() throws IOException {
+        final Random random = new Random(42);
+        final List<IPRange> rows = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            final int prefix = random.nextInt(4);
+            rows.add(i % 10 == 0
+                    ? IPRange.EMPTY
+                    : IPRange.fromString(String.format(
+                            "10.%d.%d.0/%d", random.nextInt(4), random.nextInt(256), 16 + 8 * prefix / 2)));
+        }
+        rows.add(IPRange.fromString("2001:db8::/32"));
+        rows.add(IPRange.fromString("2001:db8::5-2001:db8::9"));
+
+        final IPRangeIntervalIndex index = write(rows);
+
+        for (String value : new String[] {"10.0.0.1", "10.1.7.200", "10.3.255.255", "11.0.0.0", "2001:db8::6"}) {
+            final IPAddress address = new IPAddressString(value).getAddress();
+            assertEquals(expected(rows, address), search(index, address), value);
+        }
+    }
+
+    @Test
+    void testEmptyIndex() throws IOException {
+        final IPRangeIntervalIndex index = write(List.of(IPRange.EMPTY));
+        assertEquals(Set.of(), search(index, new IPAddressString("10.0.0.1").getAddress()));
+    }
+
+    private static IPRangeIntervalIndex write(List<IPRange> rows) throws IOException {
+        final IPRangeIntervalIndexWriter writer = new IPRangeIntervalIndexWriter();
+
+        for (int i = 0; i < rows.size(); i++) {
+            writer.add(i, rows.get(i));
+        }
+
+        final WriteOutBytes out = new OnHeapMemorySegmentWriteOutMedium().makeWriteOutBytes();
+        writer.writeTo(out);
+
+        try (InputStream in = out.asInputStream()) {
+            return IPRangeIntervalIndex.read(ByteBuffer.wrap(in.readAllBytes()));
+        }
+    }
+
+    private Set<Integer> search(IPRangeIntervalIndex index, IPAddress address) {
+        final MutableBitmap bitmap = bitmapFactory.makeEmptyMutableBitmap();
+        index.search(address, bitmap);
+
+        final Set<Integer> result = new TreeSet<>();
+        final IntIterator iterator = bitmapFactory.makeImmutableBitmap(bitmap).iterator();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    private static Set<Integer> expected(List<IPRange> rows, IPAddress address) {
+        final Set<Integer> result = new TreeSet<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).contains(address)) {
+                result.add(i);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPRangeArray;
+import bi.deep.entity.dimension.IPRangeArrayObjectStrategy;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.apache.druid.collections.bitmap.RoaringBitmapFactory;
+import org.apache.druid.segment.data.GenericIndexed;
+import org.apache.druid.segment.writeout.OnHeapMemorySegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.IntIterator;
+
+class IPRangePrefixIndexTest {
+    private final RoaringBitmapFactory bitmapFactory = new RoaringBitmapFactory();
+
+    @Test
+    void testSearchMatchesRangeArrayContains() throws IOException {
+        final Random random = new Random(7);
+        final List<IPRangeArray> rows = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            final List<Object> ranges = new ArrayList<>();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                final int start = random.nextInt(250);
+                ranges.add(String.format("10.0.%d.%d-10.0.%d.%d", j, start, j, start + random.nextInt(6)));
+            }
+            if (i % 50 == 0) {
+                ranges.add("2001:db8::3-2001:db8::1:0");
+            }
+            rows.add(IPRangeArray.fromArray(ranges));
+        }
+
+        final IPRangePrefixIndex index = write(rows);
+
+        for (String value : new String[] {"10.0.1.3", "10.0.2.100", "10.0.3.252", "10.1.0.0", "2001:db8::ffff"}) {
+            final IPAddress address = new IPAddressString(value).getAddress();
+            assertEquals(expected(rows, address), search(index, address), value);
+        }
+    }
+
+    @Test
+    void testStreamsBitmapsLargerThanAChunk() throws IOException {
+        final IPRangeArray even = IPRangeArray.fromArray(Collections.<Object>singletonList("10.0.0.0/24"));
+        final IPRangeArray odd = IPRangeArray.fromArray(Collections.<Object>singletonList("10.0.1.0/24"));
+        final int rowCount = 10 * (1 << 16);
+        final IPRangePrefixIndexWriter writer = new IPRangePrefixIndexWriter();
+
+        // Every other row makes bitmaps of about 80 KiB that cannot be run length encoded
+        for (int i = 0; i < rowCount; i++) {
+            writer.add(i, i % 2 == 0 ? even : odd);
+        }
+
+        final Set<Integer> rows = search(read(writer), new IPAddressString("10.0.1.7").getAddress());
+        assertEquals(rowCount / 2, rows.size());
+        assertTrue(rows.contains(1) && rows.contains(rowCount - 1) && !rows.contains(rowCount - 2));
+    }
+
+    @Test
+    void testSaturatedIndexIsLeftOut() throws IOException {
+        final List<IPRangeArray> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final String range = String.format("10.0.%d.1-10.0.%d.254", i, i);
+            rows.add(IPRangeArray.fromArray(Collections.<Object>singletonList(range)));
+        }
+
+        final ByteBuffer buffer = TestColumns.write(
+                medium -> new IPColumnSerializer<>(
+                        medium,
+                        "test",
+                        IPRangeArrayObjectStrategy.INSTANCE,
+                        Collections.singletonList(new IPRangePrefixIndexWriter(20))),
+                rows);
+
+        assertEquals(rows.size(), GenericIndexed.read(buffer, IPRangeArrayObjectStrategy.INSTANCE, null).size());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private static IPRangePrefixIndex write(List<IPRangeArray> rows) throws IOException {
+        final IPRangePrefixIndexWriter writer = new IPRangePrefixIndexWriter();
+
+        for (int i = 0; i < rows.size(); i++) {
+            writer.add(i, rows.get(i));
+        }
+
+        return read(writer);
+    }
+
+    private static IPRangePrefixIndex read(IPRangePrefixIndexWriter writer) throws IOException {
+        final WriteOutBytes out = new OnHeapMemorySegmentWriteOutMedium().makeWriteOutBytes();
+        writer.writeTo(out);
+
+        try (InputStream in = out.asInputStream()) {
+            return IPRangePrefixIndex.read(ByteBuffer.wrap(in.readAllBytes()));
+        }
+    }
+
+    private Set<Integer> search(IPRangePrefixIndex index, IPAddress address) {
+        final MutableBitmap bitmap = bitmapFactory.makeEmptyMutableBitmap();
+        index.search(address, bitmap);
+
+        final Set<Integer> result = new TreeSet<>();
+        final IntIterator iterator = bitmapFactory.makeImmutableBitmap(bitmap).iterator();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    private static Set<Integer> expected(List<IPRangeArray> rows, IPAddress address) {
+        final Set<Integer> result = new TreeSet<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).contains(address)) {
+                result.add(i);
+            }
+        }
+
+        return result;
+    }
+}
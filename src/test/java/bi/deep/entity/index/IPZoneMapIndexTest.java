@@ -0,0 +1,189 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPRangeArray;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import org.apache.druid.collections.bitmap.MutableBitmap;
+import org.apache.druid.collections.bitmap.RoaringBitmapFactory;
+import org.apache.druid.segment.column.ComplexColumn;
+import org.apache.druid.segment.writeout.OnHeapMemorySegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.IntIterator;
+
+class IPZoneMapIndexTest {
+    private final RoaringBitmapFactory bitmapFactory = new RoaringBitmapFactory();
+
+    @Test
+    void testSearchMatchesContainsAndSkipsZones() throws IOException {
+        final List<IPRangeArray> rows = new ArrayList<>();
+
+        // Ranges grow with the row number, like time sorted data with address locality
+        for (int i = 0; i < 10 * IPZoneMapIndex.ZONE_ROWS; i++) {
+            if (i % 11 == 0) {
+                rows.add(null);
+            } else if (i % 5 == 0) {
+                rows.add(IPRangeArray.fromArray(Arrays.<Object>asList(String.format("2001:db8:%x::/48", i))));
+            } else {
+                final int a = i >> 8;
+                final int b = i & 0xFF;
+                rows.add(IPRangeArray.fromArray(Arrays.<Object>asList(
+                        String.format("10.%d.%d.0/25", a, b),
+                        String.format("10.%d.%d.200-10.%d.%d.210", a, b, a, b))));
+            }
+        }
+
+        final ListColumn column = new ListColumn(rows);
+        final IPZoneMapIndex index = write(rows, column);
+
+        for (String value : new String[] {"10.3.6.1", "10.5.3.205", "2001:db8:1f4::1", "192.168.0.1", "::1"}) {
+            final SortedSet<IPAddress> addresses = new TreeSet<>();
+            addresses.add(new IPAddressString(value).getAddress());
+
+            column.reads = 0;
+            assertEquals(expected(rows, addresses), search(index, addresses), value);
+            assertTrue(column.reads <= 2 * IPZoneMapIndex.ZONE_ROWS, value);
+
+            // The cost covers every row read from the candidate zones, none of the skipped ones
+            final int cost = index.estimatedComputeCost(addresses);
+            assertTrue(cost >= column.reads && cost <= column.reads + IPZoneMapIndex.ZONE_ROWS, value);
+        }
+
+        final SortedSet<IPAddress> addresses = new TreeSet<>();
+        addresses.add(new IPAddressString("10.1.2.3").getAddress());
+        addresses.add(new IPAddressString("2001:db8:64::").getAddress());
+        assertEquals(expected(rows, addresses), search(index, addresses));
+    }
+
+    @Test
+    void testCostGrowsWithCandidateZones() throws IOException {
+        final List<IPRangeArray> rows = new ArrayList<>();
+
+        // Every zone spans the same addresses, so a match in one zone is a candidate in all of them
+        for (int i = 0; i < 4 * IPZoneMapIndex.ZONE_ROWS; i++) {
+            rows.add(IPRangeArray.fromArray(Arrays.<Object>asList(i % 2 == 0 ? "10.0.0.0/24" : "10.0.9.0/24")));
+        }
+
+        final IPZoneMapIndex index = write(rows, new ListColumn(rows));
+        final SortedSet<IPAddress> inside = new TreeSet<>();
+        inside.add(new IPAddressString("10.0.5.1").getAddress());
+        final SortedSet<IPAddress> outside = new TreeSet<>();
+        outside.add(new IPAddressString("10.1.0.1").getAddress());
+
+        assertEquals(rows.size(), index.estimatedComputeCost(inside));
+        assertEquals(0, index.estimatedComputeCost(outside));
+        assertTrue(search(index, inside).isEmpty());
+    }
+
+    @Test
+    void testNullRowsOnly() throws IOException {
+        final List<IPRangeArray> rows = Arrays.asList(null, null);
+        final SortedSet<IPAddress> addresses = new TreeSet<>();
+        addresses.add(new IPAddressString("10.0.0.1").getAddress());
+
+        assertTrue(search(write(rows, new ListColumn(rows)), addresses).isEmpty());
+    }
+
+    private static IPZoneMapIndex write(List<IPRangeArray> rows, ListColumn column) throws IOException {
+        final IPZoneMapWriter writer = new IPZoneMapWriter();
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) != null) {
+                writer.add(i, rows.get(i));
+            }
+        }
+
+        final WriteOutBytes out = new OnHeapMemorySegmentWriteOutMedium().makeWriteOutBytes();
+        writer.writeTo(out);
+
+        try (InputStream in = out.asInputStream()) {
+            return IPZoneMapIndex.read(ByteBuffer.wrap(in.readAllBytes()), () -> column);
+        }
+    }
+
+    private Set<Integer> search(IPZoneMapIndex index, SortedSet<IPAddress> addresses) {
+        final MutableBitmap bitmap = bitmapFactory.makeEmptyMutableBitmap();
+        index.search(addresses, bitmap);
+
+        final Set<Integer> result = new TreeSet<>();
+        final IntIterator iterator = bitmapFactory.makeImmutableBitmap(bitmap).iterator();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    private static Set<Integer> expected(List<IPRangeArray> rows, SortedSet<IPAddress> addresses) {
+        final Set<Integer> result = new TreeSet<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) != null && rows.get(i).contains(addresses)) {
+                result.add(i);
+            }
+        }
+
+        return result;
+    }
+
+    private static final class ListColumn implements ComplexColumn {
+        private final List<IPRangeArray> rows;
+        private int reads;
+
+        private ListColumn(List<IPRangeArray> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Class<?> getClazz() {
+            return IPRangeArray.class;
+        }
+
+        @Override
+        public String getTypeName() {
+            return "ipRangeArray";
+        }
+
+        @Nullable
+        @Override
+        public Object getRowValue(int rowNum) {
+            reads++;
+            return rows.get(rowNum);
+        }
+
+        @Override
+        public int getLength() {
+            return rows.size();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
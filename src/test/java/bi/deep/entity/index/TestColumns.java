@@ -0,0 +1,76 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.entity.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.druid.query.monomorphicprocessing.RuntimeShapeInspector;
+import org.apache.druid.segment.GenericColumnSerializer;
+import org.apache.druid.segment.ObjectColumnSelector;
+import org.apache.druid.segment.writeout.OnHeapMemorySegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.SegmentWriteOutMedium;
+import org.apache.druid.segment.writeout.WriteOutBytes;
+
+// Writes rows through a column serializer and hands back the bytes a segment would hold
+final class TestColumns {
+    private TestColumns() {}
+
+    static <T> ByteBuffer write(
+            Function<SegmentWriteOutMedium, GenericColumnSerializer<T>> serializerFactory, List<T> rows)
+            throws IOException {
+        final SegmentWriteOutMedium medium = new OnHeapMemorySegmentWriteOutMedium();
+        final GenericColumnSerializer<T> serializer = serializerFactory.apply(medium);
+        final RowSelector<T> selector = new RowSelector<>();
+        serializer.open();
+
+        for (T row : rows) {
+            selector.row = row;
+            serializer.serialize(selector);
+        }
+
+        final WriteOutBytes out = medium.makeWriteOutBytes();
+        final long size = serializer.getSerializedSize();
+        serializer.writeTo(out, null);
+        assertEquals(size, out.size());
+
+        try (InputStream in = out.asInputStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    private static final class RowSelector<T> extends ObjectColumnSelector<T> {
+        private T row;
+
+        @Override
+        public T getObject() {
+            return row;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<? extends T> classOfObject() {
+            return (Class<? extends T>) Object.class;
+        }
+
+        @Override
+        public void inspectRuntimeShape(RuntimeShapeInspector inspector) {}
+    }
+}
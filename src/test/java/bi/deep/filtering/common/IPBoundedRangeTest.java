@@ -15,10 +15,12 @@
  */
 package bi.deep.filtering.common;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import bi.deep.range.IPBoundedRange;
+import bi.deep.util.IPAddressBits;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
 import java.util.stream.LongStream;
@@ -107,4 +109,17 @@ class IPBoundedRangeTest {
                 .allMatch(ip -> boundedRange.contains(ip, false)));
         assertFalse(boundedRange.contains(ipV6Address.increment(count + 1), false));
     }
+
+    @Test
+    void testPrimitiveContainsMatchesAddressContains() {
+        final long count = 10;
+        final IPBoundedRange boundedRange = new IPBoundedRange(
+                ipV6Address.toString(), ipV6Address.increment(count).toString(), true, true);
+
+        LongStream.range(-2, count + 2).mapToObj(ipV6Address::increment).forEach(ip -> assertEquals(
+                boundedRange.contains(ip, false),
+                boundedRange.contains(true, IPAddressBits.hi(ip), IPAddressBits.lo(ip), false)));
+        assertTrue(boundedRange.contains(false, 0L, IPAddressBits.lo(ipV4Address), true));
+        assertFalse(boundedRange.contains(false, 0L, IPAddressBits.lo(ipV4Address), false));
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.fn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.matching.IPRangeFilteredDimensionSelector;
+import bi.deep.util.IPRangeUtil;
+import com.google.common.collect.Sets;
+import java.util.Arrays;
+import org.apache.druid.segment.DimensionSelector;
+import org.apache.druid.segment.data.IndexedInts;
+import org.junit.jupiter.api.Test;
+
+class IPRangeFilteredDimensionSelectorTest {
+    private static final String FIRST_IP = "10.161.12.13";
+    private static final String SECOND_IP = "10.162.59.19";
+
+    private static IPRangeFilteredDimensionSelector makeSelector(String value) {
+        return new IPRangeFilteredDimensionSelector(
+                DimensionSelector.constant(value),
+                IPRangeUtil.mapStringsToIps(Sets.newHashSet(SECOND_IP, FIRST_IP)));
+    }
+
+    @Test
+    void testDictionary() {
+        IPRangeFilteredDimensionSelector selector = makeSelector(null);
+
+        assertTrue(selector.nameLookupPossibleInAdvance());
+        assertEquals(2, selector.getValueCardinality());
+        assertEquals(FIRST_IP, selector.lookupName(0));
+        assertEquals(SECOND_IP, selector.lookupName(1));
+        assertEquals(1, selector.idLookup().lookupId(SECOND_IP));
+        assertEquals(-1, selector.idLookup().lookupId("10.0.0.1"));
+    }
+
+    @Test
+    void testSingleMatch() {
+        IPRangeFilteredDimensionSelector selector = makeSelector("10.161.12.13-10.161.12.15, weird string");
+        IndexedInts row = selector.getRow();
+
+        assertEquals(1, row.size());
+        assertEquals(0, row.get(0));
+        assertEquals(FIRST_IP, selector.getObject());
+    }
+
+    @Test
+    void testMultipleMatches() {
+        IPRangeFilteredDimensionSelector selector = makeSelector("10.161.0.0/16, 10.162.59.0-10.162.59.255");
+
+        assertEquals(2, selector.getRow().size());
+        assertEquals(Arrays.asList(FIRST_IP, SECOND_IP), selector.getObject());
+    }
+
+    @Test
+    void testNoMatch() {
+        assertEquals(0, makeSelector("172.16.0.1").getRow().size());
+        assertNull(makeSelector("172.16.0.1").getObject());
+        assertNull(makeSelector(null).getObject());
+    }
+}
@@ -19,16 +19,24 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import bi.deep.filtering.ip.range.impl.FixedSetIPFilterImpl;
+import bi.deep.segment.TestSegments;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Streams;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
+import java.io.File;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
+import org.apache.druid.data.input.impl.StringDimensionSchema;
 import org.apache.druid.query.filter.Filter;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.filter.NotFilter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class FixedSetIPFilterTest {
     private final IPAddress ipV4Address = new IPAddressString("39.181.2.192").getAddress();
@@ -129,4 +137,26 @@ class FixedSetIPFilterTest {
         assertFalse(LongStream.range(0, count).mapToObj(ipV4Address::increment).allMatch(filterImp::contains));
         assertFalse(filterImp.contains(ipV6Address.increment(count + 1)));
     }
+
+    // Prefix blocks in the set never equal a single address, on both paths
+    @Test
+    void testAddressColumnIndexMatchesMatcher(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persistAddresses(tempDir);
+        final Filter filter = new FixedSetIPFilter("ip", ImmutableSet.of("10.0.0.1", "2001:db8::ffff", "10.0.0.0/24"))
+                .toFilter();
+
+        TestSegments.assertIndexMatchesMatcher(index, filter, 0, 4, 7);
+    }
+
+    // Plain string column holding null and unparsable rows
+    @Test
+    void testVectorizedMatchesRows(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new StringDimensionSchema("ip")), TestSegments.ADDRESS_ROWS, tempDir);
+        final Filter filter = new FixedSetIPFilter("ip", ImmutableSet.of("10.0.0.1", "2001:db8::ffff", "10.0.0.0/24"))
+                .toFilter();
+
+        TestSegments.assertVectorizedMatchesRows(index, filter);
+        TestSegments.assertVectorizedMatchesRows(index, new NotFilter(filter));
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.ip.range;
+
+import static bi.deep.segment.TestSegments.row;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPColumnOptions;
+import bi.deep.entity.dimension.IPRangeArrayDimensionSchema;
+import bi.deep.entity.dimension.IPRangeDimensionSchema;
+import bi.deep.segment.TestSegments;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.query.filter.Filter;
+import org.apache.druid.query.filter.InDimFilter;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.QueryableIndexCursorFactory;
+import org.apache.druid.segment.filter.AndFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IPNativeRangeMatchingFilterTest {
+    private static final int ROW_COUNT = 40;
+
+    @Test
+    void testVectorizedMatchesRowsOnRanges(@TempDir File tempDir) throws Exception {
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            final String range = i % 3 == 0 ? "2001:db8:" + i % 4 + "::/48" : "10.0." + i % 5 + ".0/24";
+            rows.add(row("ip", i % 7 == 0 ? null : range));
+        }
+
+        assertVectorizedMatchesRows(
+                new IPRangeDimensionSchema("ip", IPColumnOptions.DEFAULT), rows, new File(tempDir, "plain"));
+        assertVectorizedMatchesRows(
+                new IPRangeDimensionSchema("ip", IPColumnOptions.of(IPColumnOptions.DICTIONARY_ENCODED)),
+                rows,
+                new File(tempDir, "dictionary"));
+    }
+
+    @Test
+    void testVectorizedMatchesRowsOnRangeArrays(@TempDir File tempDir) throws Exception {
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            rows.add(row(
+                    "ip",
+                    i % 7 == 0
+                            ? null
+                            : Arrays.asList("10.0." + i % 5 + ".0/24", "2001:db8:" + i % 4 + "::/48")));
+        }
+
+        assertVectorizedMatchesRows(
+                new IPRangeArrayDimensionSchema("ip", IPColumnOptions.DEFAULT), rows, new File(tempDir, "plain"));
+        assertVectorizedMatchesRows(
+                new IPRangeArrayDimensionSchema("ip", IPColumnOptions.of(IPColumnOptions.DICTIONARY_ENCODED)),
+                rows,
+                new File(tempDir, "dictionary"));
+    }
+
+    private static void assertVectorizedMatchesRows(
+            DimensionSchema schema, List<Map<String, Object>> rows, File dir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(Collections.singletonList(schema), rows, dir);
+        final QueryableIndexCursorFactory cursorFactory = new QueryableIndexCursorFactory(index);
+
+        assertFalse(TestSegments.select(cursorFactory, filter("10.0.2.9")).isEmpty());
+        assertFalse(TestSegments.select(cursorFactory, filter("2001:db8:1::1")).isEmpty());
+        assertTrue(TestSegments.select(cursorFactory, filter("192.168.0.1")).isEmpty());
+
+        for (String ip : new String[] {"10.0.2.9", "2001:db8:1::1", "192.168.0.1"}) {
+            final Filter filter = filter(ip);
+            TestSegments.assertVectorizedMatchesRows(index, filter);
+
+            // Rows picked by another index reach the matcher as a sparse vector offset
+            final Filter someRows =
+                    new InDimFilter(TestSegments.ROW, ImmutableSet.of("1", "4", "5", "17", "33")).toFilter();
+            TestSegments.assertVectorizedMatchesRows(
+                    index, new AndFilter(Arrays.asList(someRows, TestSegments.matcherOnly(filter))));
+        }
+    }
+
+    private static Filter filter(String ip) {
+        return new IPNativeRangeMatchingFilter("ip", ImmutableSet.of(ip)).toFilter();
+    }
+}
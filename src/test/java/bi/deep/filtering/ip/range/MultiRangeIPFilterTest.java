@@ -15,21 +15,45 @@
  */
 package bi.deep.filtering.ip.range;
 
+import static bi.deep.segment.TestSegments.row;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import bi.deep.filtering.ip.range.impl.MultiRangeIPFilterImpl;
+import bi.deep.filtering.ip.range.lookup.IPRangeEngine;
+import bi.deep.segment.TestSegments;
 import com.google.common.collect.ImmutableSet;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
+import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.LongStream;
+import org.apache.druid.data.input.impl.StringDimensionSchema;
 import org.apache.druid.query.filter.Filter;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.filter.NotFilter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class MultiRangeIPFilterTest {
+    private static final List<Map<String, Object>> IP_ROWS = Arrays.asList(
+            row("ip", "10.0.0.1"),
+            row("ip", "10.0.0.200"),
+            row("ip", "192.168.1.10"),
+            row("ip", "2001:db8::1"),
+            row("ip", "2001:db8::ffff"),
+            row("ip", null),
+            row("ip", "not-an-ip"),
+            row("ip", "10.0.0.1"),
+            row("ip", "fe80::1"),
+            row("ip", "172.16.5.4"));
+
     private final IPAddress ipV4Address = new IPAddressString("39.181.2.192").getAddress();
     private final IPAddress ipV6Address = new IPAddressString("6f:ad2f:938:5f8f:7f94:ddd0:e1a5:4f").getAddress();
 
@@ -129,4 +153,124 @@ class MultiRangeIPFilterTest {
             assertEquals(a.contains(ip), b.contains(ip), "Mismatch on " + s);
         }
     }
+
+    @Test
+    void testEnginesAgree() {
+        final ImmutableSet<String> ranges = ImmutableSet.of(
+                "10.0.0.0/24",
+                "10.0.0.128/10.0.1.5",
+                "10.0.1.6/10.0.1.10",
+                "10.0.2.0/10.0.2.0",
+                "255.255.255.0/24",
+                "2001:db8::/64",
+                "2001:db8::1:0:0:0/2001:db8::1:0:0:ffff");
+        final MultiRangeIPFilterImpl trie = (MultiRangeIPFilterImpl)
+                new MultiRangeIPFilter("dimension", ranges, false, IPRangeEngine.TRIE).toFilter();
+        final MultiRangeIPFilterImpl interval = (MultiRangeIPFilterImpl)
+                new MultiRangeIPFilter("dimension", ranges, false, IPRangeEngine.INTERVAL).toFilter();
+        final List<MultiRangeIPFilterImpl> others = Arrays.stream(IPRangeEngine.values())
+                .map(engine -> (MultiRangeIPFilterImpl)
+                        new MultiRangeIPFilter("dimension", ranges, false, engine).toFilter())
+                .collect(Collectors.toList());
+
+        for (String s : Arrays.asList(
+                "9.255.255.255",
+                "10.0.0.0",
+                "10.0.0.255",
+                "10.0.1.5",
+                "10.0.1.10",
+                "10.0.1.11",
+                "10.0.2.0",
+                "10.0.2.1",
+                "255.255.255.255",
+                "2001:db8::",
+                "2001:db8::ffff:ffff:ffff:ffff",
+                "2001:db8::1:0:0:ffff",
+                "2001:db8::1:0:1:0",
+                "::1")) {
+            IPAddress ip = new IPAddressString(s).getAddress();
+            for (MultiRangeIPFilterImpl other : others) {
+                assertEquals(trie.contains(ip), other.contains(ip), "Mismatch on " + s);
+            }
+        }
+
+        assertTrue(interval.contains(new IPAddressString("10.0.1.8").getAddress()));
+        assertFalse(interval.contains(new IPAddressString("10.0.1.11").getAddress()));
+    }
+
+    @Test
+    void testDictionaryIndexMatchesMatcher(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new StringDimensionSchema("ip")), IP_ROWS, tempDir);
+
+        final Filter bothVersions =
+                new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/25", "2001:db8::/120"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, bothVersions, 0, 3, 7);
+
+        final Filter v4Only = new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/24"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, v4Only, 0, 1, 7);
+
+        // Null and unparsable rows are unknown, so they match neither the filter nor its negation
+        TestSegments.assertIndexMatchesMatcher(index, new NotFilter(v4Only), 2, 3, 4, 8, 9);
+
+        final Filter ignoreMismatch =
+                new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/24"), true).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, ignoreMismatch, 0, 1, 3, 4, 7, 8);
+        TestSegments.assertIndexMatchesMatcher(index, new NotFilter(ignoreMismatch), 2, 9);
+    }
+
+    @Test
+    void testAddressColumnIndexMatchesMatcher(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persistAddresses(tempDir);
+
+        final Filter bothVersions =
+                new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/24", "2001:db8::/120"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, bothVersions, 0, 1, 3, 7);
+
+        // The IPv6 value sorting inside this IPv4 range must not match
+        final Filter spanning =
+                new MultiRangeIPFilter("ip", ImmutableSet.of("99.0.0.0/101.0.0.0"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, spanning, 10);
+
+        final Filter ignoreMismatch = new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/24"), true).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, ignoreMismatch, 0, 1, 3, 4, 7, 9);
+
+        final Filter v4Only = new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/24"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, new NotFilter(v4Only), 2, 3, 4, 8, 9, 10);
+    }
+
+    // A plain string column whose lowest and highest values look zero padded still holds values of any form
+    @Test
+    void testPaddedStringColumnMatchesEveryForm(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new StringDimensionSchema("ip")),
+                Arrays.asList(
+                        row("ip", "010.000.000.001"),
+                        row("ip", "10.0.0.5"),
+                        row("ip", "192.168.1.1"),
+                        row("ip", "255.255.255.255")),
+                tempDir);
+
+        final Filter filter = new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/24"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, filter, 0, 1);
+    }
+
+    @Test
+    void testVectorizedMatchesRows(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new StringDimensionSchema("ip")), IP_ROWS, tempDir);
+
+        for (boolean ignoreVersionMismatch : new boolean[] {false, true}) {
+            final Filter filter = new MultiRangeIPFilter(
+                            "ip", ImmutableSet.of("10.0.0.0/25", "2001:db8::/120"), ignoreVersionMismatch)
+                    .toFilter();
+            TestSegments.assertVectorizedMatchesRows(index, filter);
+            TestSegments.assertVectorizedMatchesRows(index, new NotFilter(filter));
+
+            final Filter v4Only =
+                    new MultiRangeIPFilter("ip", ImmutableSet.of("10.0.0.0/24"), ignoreVersionMismatch).toFilter();
+            TestSegments.assertVectorizedMatchesRows(index, v4Only);
+            TestSegments.assertVectorizedMatchesRows(index, new NotFilter(v4Only));
+        }
+    }
 }
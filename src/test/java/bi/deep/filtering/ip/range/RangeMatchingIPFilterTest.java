@@ -15,6 +15,7 @@
  */
 package bi.deep.filtering.ip.range;
 
+import static bi.deep.segment.TestSegments.row;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -22,14 +23,33 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import bi.deep.entity.IPSetContents;
 import bi.deep.filtering.ip.range.impl.RangeMatchingIPFilterImpl;
 import bi.deep.range.IPBoundedRange;
+import bi.deep.segment.TestSegments;
+import com.google.common.collect.ImmutableSet;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
+import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.druid.data.input.impl.StringDimensionSchema;
 import org.apache.druid.query.filter.Filter;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.filter.NotFilter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class RangeMatchingIPFilterTest {
+    private static final List<Map<String, Object>> RANGE_ROWS = Arrays.asList(
+            row("ranges", "10.0.0.0/24"),
+            row("ranges", "10.0.0.0/24, 192.168.1.1-192.168.1.20"),
+            row("ranges", "2001:db8::/64"),
+            row("ranges", null),
+            row("ranges", "garbage"),
+            row("ranges", "192.168.1.5"),
+            row("ranges", "10.0.0.0/24"));
+
     private final IPAddress ipV4Address = new IPAddressString("39.181.2.192").getAddress();
     private final IPAddress ipV6Address = new IPAddressString("6f:ad2f:938:5f8f:7f94:ddd0:e1a5:4f").getAddress();
 
@@ -128,4 +148,23 @@ public class RangeMatchingIPFilterTest {
     public void testV6FilterMatchingVersionMismatch() {
         testFilterMatching(ipV6Address, false, false, true, false, false);
     }
+
+    @Test
+    public void testDictionaryIndexMatchesMatcher(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new StringDimensionSchema("ranges")), RANGE_ROWS, tempDir);
+
+        final Filter inRanges = new RangeMatchingIPFilter("ranges", ImmutableSet.of("10.0.0.7"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, inRanges, 0, 1, 6);
+
+        final Filter inList = new RangeMatchingIPFilter("ranges", ImmutableSet.of("192.168.1.5"), false).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, inList, 1, 5);
+
+        final Filter ignoreMismatch =
+                new RangeMatchingIPFilter("ranges", ImmutableSet.of("10.0.0.7"), true).toFilter();
+        TestSegments.assertIndexMatchesMatcher(index, ignoreMismatch, 0, 1, 2, 6);
+
+        // Null rows are unknown and match neither the filter nor its negation, unparsable lists hold no range
+        TestSegments.assertIndexMatchesMatcher(index, new NotFilter(inRanges), 2, 4, 5);
+    }
 }
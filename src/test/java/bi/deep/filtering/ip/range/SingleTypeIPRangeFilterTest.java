@@ -20,12 +20,20 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import bi.deep.filtering.ip.range.impl.SingleTypeIPRangeFilterImpl;
 import bi.deep.range.IPBoundedRange;
+import bi.deep.segment.TestSegments;
 import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.stream.LongStream;
+import org.apache.druid.data.input.impl.StringDimensionSchema;
 import org.apache.druid.query.filter.Filter;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.filter.NotFilter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class SingleTypeIPRangeFilterTest {
     private final IPAddress ipV4Address = new IPAddressString("39.181.2.192").getAddress();
@@ -105,4 +113,39 @@ class SingleTypeIPRangeFilterTest {
         assertFalse(LongStream.range(0, count).mapToObj(ipV4Address::increment).allMatch(filterImp::contains));
         assertFalse(filterImp.contains(ipV6Address.increment(count + 1)));
     }
+
+    @Test
+    void testAddressColumnIndexMatchesMatcher(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persistAddresses(tempDir);
+
+        final IPBoundedRange closed = new IPBoundedRange("10.0.0.1", "10.0.0.200", false, false);
+        TestSegments.assertIndexMatchesMatcher(index, filter(closed, false), 0, 1, 7);
+        TestSegments.assertIndexMatchesMatcher(index, filter(closed, true), 0, 1, 3, 4, 7, 9);
+
+        final IPBoundedRange lowerOpen = new IPBoundedRange("10.0.0.1", "10.0.0.200", true, false);
+        TestSegments.assertIndexMatchesMatcher(index, filter(lowerOpen, false), 1);
+
+        final IPBoundedRange below = new IPBoundedRange(null, "10.0.0.200", false, true);
+        TestSegments.assertIndexMatchesMatcher(index, filter(below, false), 0, 2, 7);
+    }
+
+    private static Filter filter(IPBoundedRange range, boolean ignoreVersionMismatch) {
+        return new SingleTypeIPRangeFilter("ip", range, ignoreVersionMismatch).toFilter();
+    }
+
+    // Plain string column holding null and unparsable rows
+    @Test
+    void testVectorizedMatchesRows(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = TestSegments.persist(
+                Collections.singletonList(new StringDimensionSchema("ip")), TestSegments.ADDRESS_ROWS, tempDir);
+
+        for (IPBoundedRange range : Arrays.asList(
+                new IPBoundedRange("10.0.0.1", "10.0.0.200", false, false),
+                new IPBoundedRange("10.0.0.1", "10.0.0.200", true, false),
+                new IPBoundedRange(null, "10.0.0.200", false, true))) {
+            TestSegments.assertVectorizedMatchesRows(index, filter(range, false));
+            TestSegments.assertVectorizedMatchesRows(index, filter(range, true));
+            TestSegments.assertVectorizedMatchesRows(index, new NotFilter(filter(range, false)));
+        }
+    }
 }
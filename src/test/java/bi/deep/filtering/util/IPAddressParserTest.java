@@ -0,0 +1,67 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.filtering.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import bi.deep.util.IPAddressBits;
+import bi.deep.util.IPAddressParser;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class IPAddressParserTest {
+    private final IPAddressParser parser = new IPAddressParser();
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "1.2.3.4",
+                "010.000.000.001",
+                "255.255.255.255",
+                "::",
+                "::1",
+                "1::",
+                "1:2:3:4:5:6:7:8",
+                "1:2:3:4:5:6:7::",
+                "::ffff:1.2.3.4",
+                "2001:DB8::8a2e:370:7334",
+                "2001:0db8:0000:0000:0000:0000:0000:0001",
+                "1:2:3:4:5:6:1.2.3.4",
+                "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"
+            })
+    void testParsesLikeIPAddressString(String value) {
+        IPAddress expected = new IPAddressString(value).getAddress();
+
+        assertEquals(IPAddressParser.Result.ADDRESS, parser.parse(value));
+        assertEquals(expected.isIPv6(), parser.isIPv6());
+        assertEquals(IPAddressBits.hi(expected), parser.getHi());
+        assertEquals(IPAddressBits.lo(expected), parser.getLo());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"hello", "unknown", "N/A", "10.0.0.1 via proxy"})
+    void testRejectsNonAddresses(String value) {
+        assertEquals(IPAddressParser.Result.NOT_ADDRESS, parser.parse(value));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "1.2.3", "256.1.1.1", "10.0.0.0/24", "fe80::1%eth0", "1:::2", "0x0a.0.0.1"})
+    void testLeavesOtherFormsToIPAddressString(String value) {
+        assertEquals(IPAddressParser.Result.UNSUPPORTED, parser.parse(value));
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.druid.error.DruidException;
 import org.apache.druid.java.util.common.IAE;
 import org.junit.jupiter.api.Test;
@@ -228,4 +229,36 @@ class IPRangeUtilTest {
         assertEquals("[]", IPRangeUtil.toString((Collection<IPAddressRange>) null));
         assertEquals("[]", IPRangeUtil.toString(List.of()));
     }
+
+    @Test
+    void testSortableStringFollowsNumericOrder() {
+        List<String> addresses = Arrays.asList("9.255.0.1", "10.0.0.2", "10.0.0.10", "192.168.1.1");
+        List<String> sortable = addresses.stream()
+                .map(IPRangeUtil::toSortableString)
+                .sorted()
+                .collect(Collectors.toList());
+
+        assertEquals("009.255.000.001", sortable.get(0));
+        assertEquals("010.000.000.002", sortable.get(1));
+        assertEquals("010.000.000.010", sortable.get(2));
+        assertEquals("192.168.001.001", sortable.get(3));
+        assertTrue(sortable.stream().allMatch(IPRangeUtil::isSortableIPv4));
+    }
+
+    @Test
+    void testSortableStringForIPv6() {
+        String sortable = IPRangeUtil.toSortableString("2001:DB8::1");
+
+        assertEquals("2001:0db8:0000:0000:0000:0000:0000:0001", sortable);
+        assertTrue(IPRangeUtil.isSortableIPv6(sortable));
+        assertFalse(IPRangeUtil.isSortableIPv6("2001:db8::1"));
+        assertEquals(new IPAddressString("2001:db8::1").getAddress(), new IPAddressString(sortable).getAddress());
+    }
+
+    @Test
+    void testSortableStringRejectsInvalidValues() {
+        assertNull(IPRangeUtil.toSortableString(" "));
+        assertThrows(DruidException.class, () -> IPRangeUtil.toSortableString("not-an-ip"));
+        assertThrows(DruidException.class, () -> IPRangeUtil.toSortableString("10.0.0.0/24"));
+    }
 }
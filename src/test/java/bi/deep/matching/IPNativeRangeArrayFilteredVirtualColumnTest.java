@@ -0,0 +1,95 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.matching;
+
+import static bi.deep.segment.TestSegments.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import bi.deep.entity.dimension.IPColumnOptions;
+import bi.deep.entity.dimension.IPRangeArrayDimensionSchema;
+import bi.deep.filtering.ip.range.IPNativeRangeMatchingFilter;
+import bi.deep.segment.TestSegments;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.query.dimension.DefaultDimensionSpec;
+import org.apache.druid.query.filter.Filter;
+import org.apache.druid.segment.CursorFactory;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.QueryableIndexCursorFactory;
+import org.apache.druid.segment.VirtualColumn;
+import org.apache.druid.segment.incremental.IncrementalIndexCursorFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IPNativeRangeArrayFilteredVirtualColumnTest {
+    private static final List<Map<String, Object>> ROWS = Arrays.asList(
+            row("ranges", Collections.singletonList("10.0.0.0/24")),
+            row("ranges", Arrays.asList("192.168.1.0/24", "10.0.0.0/24")),
+            row("ranges", Collections.singletonList("2001:db8::/64")),
+            row("ranges", null),
+            row("ranges", Collections.singletonList("172.16.0.0/16")),
+            row("ranges", Collections.singletonList("10.0.0.0/24")));
+
+    private static final VirtualColumn[] MATCHED = {
+        new IPNativeRangeArrayFilteredVirtualColumn(
+                "matched", DefaultDimensionSpec.of("ranges"), ImmutableSet.of("10.0.0.7", "2001:db8::1"))
+    };
+
+    private static final Filter V4 = filter("10.0.0.7");
+    private static final Filter V6 = filter("2001:db8::1");
+    private static final Filter NOT_EMITTED = filter("192.168.1.5");
+
+    @Test
+    void testIndexedSegment(@TempDir File tempDir) throws Exception {
+        final QueryableIndex index = persist(IPColumnOptions.PREFIX_INDEX, tempDir);
+
+        TestSegments.assertIndexMatchesMatcher(index, V4, MATCHED, 0, 1, 5);
+        TestSegments.assertIndexMatchesMatcher(index, V6, MATCHED, 2);
+        TestSegments.assertIndexMatchesMatcher(index, NOT_EMITTED, MATCHED);
+    }
+
+    // Realtime rows and persisted columns without a row index are matched row by row, null rows included
+    @Test
+    void testUnindexedSegments(@TempDir File tempDir) throws Exception {
+        assertMatches(new IncrementalIndexCursorFactory(TestSegments.realtime(schema(0), ROWS)));
+        assertMatches(new QueryableIndexCursorFactory(persist(0, new File(tempDir, "plain"))));
+        assertMatches(new QueryableIndexCursorFactory(
+                persist(IPColumnOptions.DICTIONARY_ENCODED, new File(tempDir, "dictionary"))));
+    }
+
+    private static void assertMatches(CursorFactory cursorFactory) throws Exception {
+        assertEquals(Arrays.asList(0, 1, 5), TestSegments.select(cursorFactory, V4, MATCHED));
+        assertEquals(Collections.singletonList(2), TestSegments.select(cursorFactory, V6, MATCHED));
+        assertEquals(Collections.emptyList(), TestSegments.select(cursorFactory, NOT_EMITTED, MATCHED));
+    }
+
+    private static QueryableIndex persist(int options, File dir) throws Exception {
+        return TestSegments.persist(schema(options), ROWS, dir);
+    }
+
+    private static List<DimensionSchema> schema(int options) {
+        return Collections.singletonList(new IPRangeArrayDimensionSchema("ranges", IPColumnOptions.of(options)));
+    }
+
+    private static Filter filter(String ip) {
+        return new IPNativeRangeMatchingFilter("matched", ImmutableSet.of(ip)).toFilter();
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright Deep BI, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bi.deep.segment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bi.deep.entity.dimension.IPAddressDimensionSchema;
+import bi.deep.guice.IPRangeDimensionModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.druid.data.input.MapBasedInputRow;
+import org.apache.druid.data.input.impl.DimensionSchema;
+import org.apache.druid.data.input.impl.DimensionsSpec;
+import org.apache.druid.data.input.impl.StringDimensionSchema;
+import org.apache.druid.jackson.DefaultObjectMapper;
+import org.apache.druid.query.QueryContext;
+import org.apache.druid.query.QueryContexts;
+import org.apache.druid.query.filter.ColumnIndexSelector;
+import org.apache.druid.query.filter.Filter;
+import org.apache.druid.query.filter.ValueMatcher;
+import org.apache.druid.query.filter.vector.VectorValueMatcher;
+import org.apache.druid.segment.ColumnInspector;
+import org.apache.druid.segment.ColumnSelectorFactory;
+import org.apache.druid.segment.ColumnValueSelector;
+import org.apache.druid.segment.Cursor;
+import org.apache.druid.segment.CursorBuildSpec;
+import org.apache.druid.segment.CursorFactory;
+import org.apache.druid.segment.CursorHolder;
+import org.apache.druid.segment.IndexIO;
+import org.apache.druid.segment.IndexMergerV9;
+import org.apache.druid.segment.IndexSpec;
+import org.apache.druid.segment.QueryableIndex;
+import org.apache.druid.segment.QueryableIndexCursorFactory;
+import org.apache.druid.segment.VirtualColumn;
+import org.apache.druid.segment.VirtualColumns;
+import org.apache.druid.segment.column.ColumnConfig;
+import org.apache.druid.segment.incremental.IncrementalIndex;
+import org.apache.druid.segment.incremental.IncrementalIndexSchema;
+import org.apache.druid.segment.incremental.OnheapIncrementalIndex;
+import org.apache.druid.segment.index.BitmapColumnIndex;
+import org.apache.druid.segment.vector.VectorColumnSelectorFactory;
+import org.apache.druid.segment.vector.VectorCursor;
+import org.apache.druid.segment.vector.VectorObjectSelector;
+import org.apache.druid.segment.writeout.OffHeapMemorySegmentWriteOutMediumFactory;
+
+// Builds small realtime and persisted segments and reads filtered rows back through Druid cursors
+public final class TestSegments {
+    public static final String ROW = "row";
+    private static final int VECTOR_SIZE = 3;
+
+    // The IPv6 value "100a::1" sorts between "099.x" and "101.x" in the dictionary of an ipAddress column
+    public static final List<Map<String, Object>> ADDRESS_ROWS = Arrays.asList(
+            row("ip", "10.0.0.1"),
+            row("ip", "10.0.0.200"),
+            row("ip", "9.255.255.255"),
+            row("ip", "2001:db8::1"),
+            row("ip", "2001:db8::ffff"),
+            row("ip", null),
+            row("ip", "not-an-ip"),
+            row("ip", "10.0.0.1"),
+            row("ip", "11.0.0.0"),
+            row("ip", "100a::1"),
+            row("ip", "100.0.0.1"));
+
+    public static final ObjectMapper MAPPER =
+            new DefaultObjectMapper().registerModules(new IPRangeDimensionModule().getJacksonModules());
+    private static final IndexIO INDEX_IO = new IndexIO(MAPPER, ColumnConfig.DEFAULT);
+    private static final IndexMergerV9 INDEX_MERGER =
+            new IndexMergerV9(MAPPER, INDEX_IO, OffHeapMemorySegmentWriteOutMediumFactory.instance(), true);
+
+    static {
+        IPRangeDimensionModule.registerSerde();
+    }
+
+    private TestSegments() {}
+
+    // Every row also gets its position in the "row" column, so filtered results can be compared row by row
+    public static IncrementalIndex realtime(List<DimensionSchema> dimensions, List<Map<String, Object>> rows)
+            throws Exception {
+        final List<DimensionSchema> schemas = new ArrayList<>(dimensions);
+        schemas.add(new StringDimensionSchema(ROW));
+        final List<String> names = schemas.stream().map(DimensionSchema::getName).collect(Collectors.toList());
+
+        final IncrementalIndex index = new OnheapIncrementalIndex.Builder()
+                .setIndexSchema(IncrementalIndexSchema.builder()
+                        .withDimensionsSpec(DimensionsSpec.builder()
+                                .setDimensions(schemas)
+                                .build())
+                        .withRollup(false)
+                        .build())
+                .setMaxRowCount(rows.size() + 1)
+                .build();
+
+        for (int i = 0; i < rows.size(); i++) {
+            final Map<String, Object> event = new HashMap<>(rows.get(i));
+            event.put(ROW, String.valueOf(i));
+            index.add(new MapBasedInputRow(0L, names, event));
+        }
+
+        return index;
+    }
+
+    public static QueryableIndex persist(IncrementalIndex index, File dir) throws Exception {
+        return INDEX_IO.loadIndex(INDEX_MERGER.persist(index, dir, IndexSpec.builder().build(), null));
+    }
+
+    public static QueryableIndex persist(List<DimensionSchema> dimensions, List<Map<String, Object>> rows, File dir)
+            throws Exception {
+        return persist(realtime(dimensions, rows), dir);
+    }
+
+    public static QueryableIndex persistAddresses(File dir) throws Exception {
+        return persist(
+                Collections.singletonList(new IPAddressDimensionSchema("ip", null, true)), ADDRESS_ROWS, dir);
+    }
+
+    public static Map<String, Object> row(Object... columnsAndValues) {
+        final Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < columnsAndValues.length; i += 2) {
+            if (columnsAndValues[i + 1] != null) {
+                row.put((String) columnsAndValues[i], columnsAndValues[i + 1]);
+            }
+        }
+        return row;
+    }
+
+    // Positions of the rows passing the filter, in ascending order
+    public static List<Integer> select(CursorFactory cursorFactory, @Nullable Filter filter, VirtualColumn... columns)
+            throws Exception {
+        final CursorBuildSpec spec = CursorBuildSpec.builder()
+                .setFilter(filter)
+                .setVirtualColumns(VirtualColumns.create(Arrays.asList(columns)))
+                .build();
+        final List<Integer> rows = new ArrayList<>();
+
+        try (CursorHolder holder = cursorFactory.makeCursorHolder(spec)) {
+            final Cursor cursor = holder.asCursor();
+
+            if (cursor != null) {
+                final ColumnValueSelector<?> selector = cursor.getColumnSelectorFactory().makeColumnValueSelector(ROW);
+                for (; !cursor.isDone(); cursor.advance()) {
+                    rows.add(Integer.parseInt(String.valueOf(selector.getObject())));
+                }
+            }
+        }
+
+        Collections.sort(rows);
+        return rows;
+    }
+
+    // Same as select, through a vectorized cursor reading a few rows per batch, so batches end mid dictionary
+    public static List<Integer> selectVectorized(
+            CursorFactory cursorFactory, @Nullable Filter filter, VirtualColumn... columns) throws Exception {
+        final CursorBuildSpec spec = CursorBuildSpec.builder()
+                .setFilter(filter)
+                .setVirtualColumns(VirtualColumns.create(Arrays.asList(columns)))
+                .setQueryContext(QueryContext.of(Map.of(
+                        QueryContexts.VECTORIZE_KEY, "force", QueryContexts.VECTOR_SIZE_KEY, VECTOR_SIZE)))
+                .build();
+        final List<Integer> rows = new ArrayList<>();
+
+        try (CursorHolder holder = cursorFactory.makeCursorHolder(spec)) {
+            assertTrue(holder.canVectorize(), "expected a vectorized cursor");
+            final VectorCursor cursor = holder.asVectorCursor();
+
+            if (cursor != null) {
+                final VectorObjectSelector selector = cursor.getColumnSelectorFactory().makeObjectSelector(ROW);
+                for (; !cursor.isDone(); cursor.advance()) {
+                    final Object[] vector = selector.getObjectVector();
+                    for (int i = 0; i < cursor.getCurrentVectorSize(); i++) {
+                        rows.add(Integer.parseInt(String.valueOf(vector[i])));
+                    }
+                }
+            }
+        }
+
+        Collections.sort(rows);
+        return rows;
+    }
+
+    // Values of the column in row order
+    public static List<Object> read(CursorFactory cursorFactory, String column) throws Exception {
+        final Map<Integer, Object> values = new TreeMap<>();
+
+        try (CursorHolder holder = cursorFactory.makeCursorHolder(CursorBuildSpec.FULL_SCAN)) {
+            final Cursor cursor = holder.asCursor();
+
+            if (cursor != null) {
+                final ColumnValueSelector<?> rows = cursor.getColumnSelectorFactory().makeColumnValueSelector(ROW);
+                final ColumnValueSelector<?> selector =
+                        cursor.getColumnSelectorFactory().makeColumnValueSelector(column);
+                for (; !cursor.isDone(); cursor.advance()) {
+                    values.put(Integer.parseInt(String.valueOf(rows.getObject())), selector.getObject());
+                }
+            }
+        }
+
+        return new ArrayList<>(values.values());
+    }
+
+    // The filter must answer through its bitmap index, and give the same rows as its value matcher
+    public static void assertIndexMatchesMatcher(
+            QueryableIndex index, Filter filter, VirtualColumn[] columns, Integer... expected) throws Exception {
+        final QueryableIndexCursorFactory cursorFactory = new QueryableIndexCursorFactory(index);
+
+        assertEquals(Arrays.asList(expected), select(cursorFactory, requireIndex(filter), columns), "index");
+        assertEquals(Arrays.asList(expected), select(cursorFactory, matcherOnly(filter), columns), "matcher");
+    }
+
+    public static void assertIndexMatchesMatcher(QueryableIndex index, Filter filter, Integer... expected)
+            throws Exception {
+        assertIndexMatchesMatcher(index, filter, new VirtualColumn[0], expected);
+    }
+
+    // The vectorized cursor must give the same rows as the row cursor, through the index and through the matcher
+    public static void assertVectorizedMatchesRows(QueryableIndex index, Filter filter, VirtualColumn... columns)
+            throws Exception {
+        final QueryableIndexCursorFactory cursorFactory = new QueryableIndexCursorFactory(index);
+
+        for (Filter variant : Arrays.asList(filter, matcherOnly(filter))) {
+            assertEquals(
+                    select(cursorFactory, variant, columns),
+                    selectVectorized(cursorFactory, variant, columns),
+                    variant == filter ? "index" : "matcher");
+        }
+    }
+
+    public static Filter requireIndex(Filter filter) {
+        return new Filter() {
+            @Override
+            public BitmapColumnIndex getBitmapColumnIndex(ColumnIndexSelector selector) {
+                final BitmapColumnIndex columnIndex = filter.getBitmapColumnIndex(selector);
+                assertNotNull(columnIndex, "expected a bitmap index");
+                return columnIndex;
+            }
+
+            @Override
+            public ValueMatcher makeMatcher(ColumnSelectorFactory factory) {
+                return filter.makeMatcher(factory);
+            }
+
+            @Override
+            public boolean canVectorizeMatcher(ColumnInspector inspector) {
+                return filter.canVectorizeMatcher(inspector);
+            }
+
+            @Override
+            public VectorValueMatcher makeVectorMatcher(VectorColumnSelectorFactory factory) {
+                return filter.makeVectorMatcher(factory);
+            }
+
+            @Override
+            public Set<String> getRequiredColumns() {
+                return filter.getRequiredColumns();
+            }
+        };
+    }
+
+    // Hides the index, so every row goes through the value matcher
+    public static Filter matcherOnly(Filter filter) {
+        return new Filter() {
+            @Nullable
+            @Override
+            public BitmapColumnIndex getBitmapColumnIndex(ColumnIndexSelector selector) {
+                return null;
+            }
+
+            @Override
+            public ValueMatcher makeMatcher(ColumnSelectorFactory factory) {
+                return filter.makeMatcher(factory);
+            }
+
+            @Override
+            public boolean canVectorizeMatcher(ColumnInspector inspector) {
+                return filter.canVectorizeMatcher(inspector);
+            }
+
+            @Override
+            public VectorValueMatcher makeVectorMatcher(VectorColumnSelectorFactory factory) {
+                return filter.makeVectorMatcher(factory);
+            }
+
+            @Override
+            public Set<String> getRequiredColumns() {
+                return filter.getRequiredColumns();
+            }
+        };
+    }
+}